@@ -37,6 +37,7 @@ import com.codahale.metrics.ConsoleReporter;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.eaio.uuid.UUID;
+import com.github.joschi.jadconfig.util.Duration;
 import com.moandjiezana.toml.Toml;
 
 import org.apache.commons.cli.CommandLine;
@@ -61,6 +62,8 @@ import org.graylog2.database.NotFoundException;
 import org.graylog2.grok.GrokPatternService;
 import org.graylog2.grok.InMemoryGrokPatternService;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageCollection;
+import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.Tools;
 import org.graylog2.plugin.alarms.AlertCondition;
 import org.graylog2.plugin.database.Persisted;
@@ -81,6 +84,7 @@ import org.joda.time.DateTime;
 import org.jooq.lambda.Seq;
 import org.jooq.lambda.tuple.Tuple2;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
 import org.openjdk.jmh.annotations.Setup;
@@ -131,6 +135,9 @@ public class PipelinePerformanceBenchmarks {
     private static final Logger LOG = LoggerFactory.getLogger(PipelinePerformanceBenchmarks.class);
     public static final Message MESSAGE = new Message("hallo welt", "127.0.0.1", Tools.nowUTC());
 
+    private static final int BATCH_SIZE = 1000;
+    private static final int PARALLEL_BATCH_THRESHOLD = 64;
+
     private static String benchmarkDir = System.getProperty("benchmarkDir", "benchmarks");
 
     private static MetricRegistry metricRegistry;
@@ -148,10 +155,20 @@ public class PipelinePerformanceBenchmarks {
         @Param({"false", "true"})
         private String cachedStageIterators;
 
+        @Param({"false", "true"})
+        private String parallelBatchProcessing;
+
+        @Param({"false", "true"})
+        private String parallelStageExecution;
+
+        @Param({"meters", "counters"})
+        private String pipelineMetricsMode;
+
         private PipelineInterpreter interpreter;
         private BenchmarkConfig config;
         private Injector injector;
         private Iterator<Message> messageCycler;
+        private Messages messageBatch;
         // enable when using yourkit for single runs
 //        private Controller controller;
 
@@ -177,6 +194,17 @@ public class PipelinePerformanceBenchmarks {
                             bind(MetricRegistry.class).toProvider(MetricRegistryProvider.class);
                             bindConstant().annotatedWith(Names.named("processbuffer_processors")).to(1);
                             bindConstant().annotatedWith(Names.named("cached_stageiterators")).to(Boolean.valueOf(cachedStageIterators));
+                            bindConstant().annotatedWith(Names.named("parallel_batch_processing")).to(Boolean.valueOf(parallelBatchProcessing));
+                            bindConstant().annotatedWith(Names.named("parallel_batch_threshold")).to(PARALLEL_BATCH_THRESHOLD);
+                            bindConstant().annotatedWith(Names.named("parallel_stage_execution")).to(Boolean.valueOf(parallelStageExecution));
+                            bind(Duration.class).annotatedWith(Names.named("processing_budget_time")).toInstance(Duration.seconds(5));
+                            bindConstant().annotatedWith(Names.named("processing_budget_iterations")).to(100);
+                            bindConstant().annotatedWith(Names.named("rule_circuit_breaker_threshold")).to(5);
+                            bind(Duration.class).annotatedWith(Names.named("rule_circuit_breaker_window")).toInstance(Duration.minutes(1));
+                            bind(Duration.class).annotatedWith(Names.named("rule_circuit_breaker_cooldown")).toInstance(Duration.minutes(5));
+                            bind(Duration.class).annotatedWith(Names.named("pipeline_configuration_resync_interval")).toInstance(Duration.minutes(1));
+                            bindConstant().annotatedWith(Names.named("pipeline_metrics_mode")).to(pipelineMetricsMode);
+                            bindConstant().annotatedWith(Names.named("pipeline_metrics_granularity")).to("stage");
                             install(new FactoryModuleBuilder().build(PipelineInterpreter.State.Factory.class));
                         }
                     });
@@ -299,6 +327,17 @@ public class PipelinePerformanceBenchmarks {
                     messageCycler = Iterators.cycle(MESSAGE);
                 }
             }
+            // batches must not contain the same message twice, because messages are processed concurrently
+            final List<Message> batch = Lists.newArrayListWithCapacity(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                final Message message = messageCycler.next();
+                final Message copy = new Message(message.getMessage(), message.getSource(), message.getTimestamp());
+                copy.addFields(message.getFields());
+                copy.addStreams(message.getStreams());
+                batch.add(copy);
+            }
+            messageBatch = new MessageCollection(batch);
+
             final MetricRegistry metrics = injector.getInstance(MetricRegistry.class);
             // make the registry available to the profiler
             metricRegistry = metrics;
@@ -566,6 +605,13 @@ public class PipelinePerformanceBenchmarks {
         bh.consume(config.interpreter.process(config.messageCycler.next()));
     }
 
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void runPipelineBatch(PipelineConfig config, Blackhole bh) {
+        // compares serial and parallel processing of a whole batch, as handed to the processor by the process buffer
+        bh.consume(config.interpreter.process(config.messageBatch));
+    }
+
     public static void main(String[] args) throws RunnerException, URISyntaxException, IOException {
 
         final org.apache.commons.cli.Options options = new org.apache.commons.cli.Options();
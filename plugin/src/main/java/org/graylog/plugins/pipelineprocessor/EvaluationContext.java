@@ -30,6 +30,9 @@ import javax.annotation.Nullable;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
 
 public class EvaluationContext {
 
@@ -43,6 +46,11 @@ public class EvaluationContext {
         public void define(String identifier, Class type, Object value) {
             // cannot define any variables in empty context
         }
+
+        @Override
+        public void guardMessages(@Nullable ReadWriteLock lock) {
+            // the empty context is shared, it never runs concurrently with other code accessing its message
+        }
     };
 
     @Nonnull
@@ -53,6 +61,8 @@ public class EvaluationContext {
     private List<Message> createdMessages;
     @Nullable
     private List<EvalError> evalErrors;
+    @Nullable
+    private ReadWriteLock messageLock;
 
     private EvaluationContext() {
         this(new Message("__dummy", "__dummy", DateTime.parse("2010-07-30T16:03:25Z"))); // first Graylog release
@@ -73,6 +83,50 @@ public class EvaluationContext {
         return message;
     }
 
+    /**
+     * Sets the lock guarding the messages of this context while other code processes them concurrently, or
+     * <code>null</code> if there is no such code.
+     *
+     * Code accessing a message must do so via {@link #readMessage(Supplier)} and {@link #updateMessage(Runnable)}, which
+     * only hold the lock for the access itself. Anything else, e.g. computing function arguments, runs unlocked.
+     */
+    public void guardMessages(@Nullable ReadWriteLock lock) {
+        this.messageLock = lock;
+    }
+
+    /**
+     * Runs code reading messages, concurrently with other readers of the same messages.
+     */
+    public <T> T readMessage(Supplier<T> reader) {
+        if (messageLock == null) {
+            return reader.get();
+        }
+        final Lock lock = messageLock.readLock();
+        lock.lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs code changing messages, excluding any other access to the same messages.
+     */
+    public void updateMessage(Runnable writer) {
+        if (messageLock == null) {
+            writer.run();
+            return;
+        }
+        final Lock lock = messageLock.writeLock();
+        lock.lock();
+        try {
+            writer.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     public TypedValue get(String identifier) {
         if (ruleVars == null) {
             throw new IllegalStateException("Use of undeclared variable " + identifier);
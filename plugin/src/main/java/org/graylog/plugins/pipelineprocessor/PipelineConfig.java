@@ -1,7 +1,11 @@
 package org.graylog.plugins.pipelineprocessor;
 
 import com.github.joschi.jadconfig.Parameter;
+import com.github.joschi.jadconfig.util.Duration;
+import com.github.joschi.jadconfig.validators.PositiveDurationValidator;
+import com.github.joschi.jadconfig.validators.PositiveIntegerValidator;
 
+import org.graylog.plugins.pipelineprocessor.processors.PipelineMetrics;
 import org.graylog2.plugin.PluginConfigBean;
 
 public class PipelineConfig implements PluginConfigBean {
@@ -11,4 +15,37 @@ public class PipelineConfig implements PluginConfigBean {
 
     @Parameter("generate_native_code")
     private boolean generateNativeCode = false;
+
+    @Parameter(value = "pipeline_configuration_resync_interval", validator = PositiveDurationValidator.class)
+    private Duration pipelineConfigurationResyncInterval = Duration.minutes(1);
+
+    @Parameter("parallel_batch_processing")
+    private boolean parallelBatchProcessing = false;
+
+    @Parameter(value = "parallel_batch_threshold", validator = PositiveIntegerValidator.class)
+    private int parallelBatchThreshold = 64;
+
+    @Parameter("parallel_stage_execution")
+    private boolean parallelStageExecution = false;
+
+    @Parameter(value = "processing_budget_time", validator = PositiveDurationValidator.class)
+    private Duration processingBudgetTime = Duration.seconds(5);
+
+    @Parameter(value = "processing_budget_iterations", validator = PositiveIntegerValidator.class)
+    private int processingBudgetIterations = 100;
+
+    @Parameter(value = "rule_circuit_breaker_threshold", validator = PositiveIntegerValidator.class)
+    private int ruleCircuitBreakerThreshold = 5;
+
+    @Parameter(value = "rule_circuit_breaker_window", validator = PositiveDurationValidator.class)
+    private Duration ruleCircuitBreakerWindow = Duration.minutes(1);
+
+    @Parameter(value = "rule_circuit_breaker_cooldown", validator = PositiveDurationValidator.class)
+    private Duration ruleCircuitBreakerCooldown = Duration.minutes(5);
+
+    @Parameter(value = "pipeline_metrics_mode", validator = PipelineMetrics.ModeValidator.class)
+    private String pipelineMetricsMode = "meters";
+
+    @Parameter(value = "pipeline_metrics_granularity", validator = PipelineMetrics.GranularityValidator.class)
+    private String pipelineMetricsGranularity = "stage";
 }
@@ -0,0 +1,73 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.ast;
+
+import java.util.Set;
+
+/**
+ * Hands out the markers counting the executions of pipelines, stages and rules.
+ *
+ * The pipelines, stages and rules register their markers on (re)load, so that marking an execution needs no lookups.
+ */
+public interface ExecutionMetrics {
+    /**
+     * @param pipelineId the id of the pipeline
+     * @return the markers of the pipeline
+     */
+    Markers pipelineMarkers(String pipelineId);
+
+    /**
+     * @param pipelineId the id of the pipeline
+     * @param stage      the number of the stage
+     * @return the markers of the stage
+     */
+    Markers stageMarkers(String pipelineId, String stage);
+
+    /**
+     * @param ruleId the id of the rule
+     * @return the markers of the rule across all pipelines
+     */
+    Markers ruleMarkers(String ruleId);
+
+    /**
+     * @param ruleId     the id of the rule
+     * @param pipelineId the id of the pipeline using the rule
+     * @param stage      the number of the stage using the rule
+     * @return the markers of the rule in the given stage
+     */
+    Markers ruleMarkers(String ruleId, String pipelineId, String stage);
+
+    interface Marker {
+        void mark();
+    }
+
+    /**
+     * The markers of one pipeline, stage or rule, by the type of execution they count.
+     */
+    interface Markers {
+        /**
+         * @param type the type of execution, e.g. {@code executed}
+         * @return the marker of the given type, or a marker doing nothing if there is no such metric
+         */
+        Marker get(String type);
+
+        /**
+         * @return the names of the metrics behind these markers
+         */
+        Set<String> metricNames();
+    }
+}
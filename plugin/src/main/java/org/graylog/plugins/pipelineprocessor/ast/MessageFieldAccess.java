@@ -0,0 +1,574 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.ast;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import org.graylog.plugins.pipelineprocessor.ast.expressions.AndExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.BooleanValuedFunctionWrapper;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.EqualityExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.Expression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.FieldRefExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.FunctionExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.MessageRefExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.StringExpression;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog.plugins.pipelineprocessor.ast.statements.Statement;
+import org.graylog.plugins.pipelineprocessor.functions.messages.CloneMessage;
+import org.graylog.plugins.pipelineprocessor.functions.messages.CreateMessage;
+import org.graylog.plugins.pipelineprocessor.functions.messages.DropMessage;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.RemoveField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.RenameField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.RouteToStream;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetFields;
+import org.graylog2.plugin.Message;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Static view of the fields of the current message a piece of rule code reads and writes.
+ *
+ * Field names are known for <code>$message.field</code> references and for the message functions called with constant
+ * field names. Fields set with a constant prefix, e.g. by <code>set_fields(fields, "prefix_")</code>, are recorded as
+ * writes of that prefix. Other computed field names, <code>clone_message</code> and functions from other plugins, which
+ * could access the message in any way, are recorded as reading or writing all fields. Routing a message
+ * is recorded as a write of the <code>streams</code> pseudo field. Calls passing an explicit message only touch
+ * messages created by the rule itself, so they do not count as accesses of the current message.
+ *
+ * Rules, stages and pipelines expose their memoized accesses via <code>fieldAccess()</code>.
+ */
+public class MessageFieldAccess {
+    public static final String STREAMS = Message.FIELD_STREAMS;
+
+    private static final String FUNCTIONS_PACKAGE = "org.graylog.plugins.pipelineprocessor.functions";
+    private static final String MESSAGE_ARG = "message";
+    private static final String FIELD_ARG = "field";
+
+    private static final MessageFieldAccess NONE =
+            new MessageFieldAccess(ImmutableSet.of(), ImmutableSet.of(), ImmutableSet.of(), false, false);
+
+    private final ImmutableSet<String> reads;
+    private final ImmutableSet<String> writes;
+    private final ImmutableSet<String> writePrefixes;
+    private final boolean readsAll;
+    private final boolean writesAll;
+
+    private MessageFieldAccess(ImmutableSet<String> reads,
+                               ImmutableSet<String> writes,
+                               ImmutableSet<String> writePrefixes,
+                               boolean readsAll,
+                               boolean writesAll) {
+        this.reads = reads;
+        this.writes = writes;
+        this.writePrefixes = writePrefixes;
+        this.readsAll = readsAll;
+        this.writesAll = writesAll;
+    }
+
+    public static MessageFieldAccess none() {
+        return NONE;
+    }
+
+    public static MessageFieldAccess of(Pipeline pipeline) {
+        return pipeline.stages().stream().map(MessageFieldAccess::of).reduce(NONE, MessageFieldAccess::union);
+    }
+
+    public static MessageFieldAccess of(Stage stage) {
+        final List<Rule> rules = stage.getRules();
+        if (rules == null) {
+            return NONE;
+        }
+        return rules.stream().map(rule -> rule.fieldAccess().all()).reduce(NONE, MessageFieldAccess::union);
+    }
+
+    /**
+     * Analyses the given rule, use {@link Rule#fieldAccess()} for the memoized result.
+     */
+    public static RuleAccess of(Rule rule) {
+        final Collector collector = new Collector();
+        new RuleAstWalker().walk(collector, rule);
+        final ImmutableSet.Builder<String> requiredFields = ImmutableSet.builder();
+        collectRequiredFields(rule.when(), requiredFields);
+        return new RuleAccess(collector.condition, ImmutableList.copyOf(collector.statements), requiredFields.build());
+    }
+
+    /**
+     * Finds the fields whose values are overwritten or removed in a pipeline before anything reads them.
+     *
+     * Stages and statements are considered in execution order: the conditions of a stage's rules before the
+     * statements of the matching rules. A reported write is only dead if the overwriting rule actually runs, and
+     * other pipelines on the same stream could still read the field in between.
+     */
+    public static List<DeadWrite> deadWrites(Pipeline pipeline) {
+        final List<DeadWrite> deadWrites = Lists.newArrayList();
+        // the last unread write of each field
+        final Map<String, Step> pending = Maps.newHashMap();
+        for (Stage stage : pipeline.stages()) {
+            final List<Rule> rules = stage.getRules();
+            if (rules == null) {
+                continue;
+            }
+            for (Rule rule : rules) {
+                visit(new Step(stage.stage(), rule.name(), rule.fieldAccess().condition()), pending, deadWrites);
+            }
+            for (Rule rule : rules) {
+                for (MessageFieldAccess statement : rule.fieldAccess().statements()) {
+                    visit(new Step(stage.stage(), rule.name(), statement), pending, deadWrites);
+                }
+            }
+        }
+        return deadWrites;
+    }
+
+    private static void visit(Step step, Map<String, Step> pending, List<DeadWrite> deadWrites) {
+        // a statement reads its arguments before writing
+        if (step.access.readsAll) {
+            pending.clear();
+        } else {
+            step.access.reads.forEach(pending::remove);
+        }
+        for (String field : step.access.writes) {
+            // routing adds streams instead of replacing them
+            if (STREAMS.equals(field)) {
+                continue;
+            }
+            final Step previous = pending.put(field, step);
+            if (previous != null) {
+                deadWrites.add(new DeadWrite(field, previous.stage, previous.ruleName, step.stage, step.ruleName));
+            }
+        }
+    }
+
+    // the fields a condition requires to be present, because it cannot be true without them
+    private static void collectRequiredFields(Expression expr, ImmutableSet.Builder<String> fields) {
+        if (expr instanceof AndExpression) {
+            collectRequiredFields(((AndExpression) expr).left(), fields);
+            collectRequiredFields(((AndExpression) expr).right(), fields);
+        } else if (expr instanceof BooleanValuedFunctionWrapper) {
+            collectRequiredFields(((BooleanValuedFunctionWrapper) expr).expression(), fields);
+        } else if (expr instanceof FunctionExpression) {
+            final FunctionExpression function = (FunctionExpression) expr;
+            final FunctionArgs args = function.getArgs();
+            if (HasField.NAME.equals(function.getFunction().descriptor().name()) && !args.isPresent(MESSAGE_ARG)) {
+                final String field = Collector.constantArg(args, FIELD_ARG);
+                if (field != null) {
+                    fields.add(field);
+                }
+            }
+        } else if (expr instanceof EqualityExpression) {
+            // both == and != are false if the left side is null
+            final Expression left = ((EqualityExpression) expr).left();
+            if (left instanceof MessageRefExpression) {
+                final String field = Collector.constantName(((MessageRefExpression) left).getFieldExpr());
+                if (field != null) {
+                    fields.add(field);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the names of the fields that are read, see {@link #readsAllFields()}
+     */
+    public ImmutableSet<String> reads() {
+        return reads;
+    }
+
+    /**
+     * @return the names of the fields that are written, see {@link #writesAllFields()}
+     */
+    public ImmutableSet<String> writes() {
+        return writes;
+    }
+
+    /**
+     * @return the prefixes of fields that are written without knowing their full names
+     */
+    public ImmutableSet<String> writePrefixes() {
+        return writePrefixes;
+    }
+
+    public boolean readsAllFields() {
+        return readsAll;
+    }
+
+    public boolean writesAllFields() {
+        return writesAll;
+    }
+
+    public boolean isWriting() {
+        return writesAll || !writes.isEmpty() || !writePrefixes.isEmpty();
+    }
+
+    /**
+     * Two accesses conflict if either one writes a field the other one reads or writes, i.e. their outcome can depend
+     * on the order they are executed in.
+     */
+    public boolean conflictsWith(MessageFieldAccess other) {
+        return writesInto(other) || other.writesInto(this);
+    }
+
+    private boolean writesInto(MessageFieldAccess other) {
+        if (!isWriting()) {
+            return false;
+        }
+        if (writesAll) {
+            return other.readsAll || other.isWriting() || !other.reads.isEmpty();
+        }
+        return other.readsAll || other.writesAll
+                || !Sets.intersection(writes, other.reads).isEmpty()
+                || !Sets.intersection(writes, other.writes).isEmpty()
+                || anyHasPrefix(writes, other.writePrefixes)
+                || anyHasPrefix(other.reads, writePrefixes)
+                || anyHasPrefix(other.writes, writePrefixes)
+                || overlapping(writePrefixes, other.writePrefixes);
+    }
+
+    private static boolean anyHasPrefix(Set<String> fields, Set<String> prefixes) {
+        if (prefixes.isEmpty()) {
+            return false;
+        }
+        return fields.stream().anyMatch(field -> prefixes.stream().anyMatch(field::startsWith));
+    }
+
+    // some field name starts with both prefixes
+    private static boolean overlapping(Set<String> prefixes, Set<String> otherPrefixes) {
+        return prefixes.stream().anyMatch(
+                prefix -> otherPrefixes.stream().anyMatch(other -> prefix.startsWith(other) || other.startsWith(prefix)));
+    }
+
+    public MessageFieldAccess union(MessageFieldAccess other) {
+        if (other == NONE) {
+            return this;
+        }
+        if (this == NONE) {
+            return other;
+        }
+        return new MessageFieldAccess(ImmutableSet.<String>builder().addAll(reads).addAll(other.reads).build(),
+                ImmutableSet.<String>builder().addAll(writes).addAll(other.writes).build(),
+                ImmutableSet.<String>builder().addAll(writePrefixes).addAll(other.writePrefixes).build(),
+                readsAll || other.readsAll,
+                writesAll || other.writesAll);
+    }
+
+    @Override
+    public String toString() {
+        return "MessageFieldAccess{" +
+                "reads=" + (readsAll ? "*" : reads) +
+                ", writes=" + (writesAll ? "*" : writes) +
+                ", writePrefixes=" + writePrefixes +
+                '}';
+    }
+
+    /**
+     * The field accesses of a rule's condition and of each of its statements, in the order of {@link Rule#then()}.
+     */
+    public static class RuleAccess {
+        private final MessageFieldAccess condition;
+        private final ImmutableList<MessageFieldAccess> statements;
+        private final MessageFieldAccess actions;
+        private final MessageFieldAccess all;
+        private final ImmutableSet<String> requiredFields;
+
+        private RuleAccess(MessageFieldAccess condition,
+                           ImmutableList<MessageFieldAccess> statements,
+                           ImmutableSet<String> requiredFields) {
+            this.condition = condition;
+            this.statements = statements;
+            this.actions = statements.stream().reduce(NONE, MessageFieldAccess::union);
+            this.all = condition.union(actions);
+            this.requiredFields = requiredFields;
+        }
+
+        /**
+         * @return the fields which must be present for the condition to be true, e.g. because of
+         * <code>has_field("name") &amp;&amp; ...</code>
+         */
+        public ImmutableSet<String> requiredFields() {
+            return requiredFields;
+        }
+
+        public MessageFieldAccess condition() {
+            return condition;
+        }
+
+        public MessageFieldAccess statement(int index) {
+            return statements.get(index);
+        }
+
+        public ImmutableList<MessageFieldAccess> statements() {
+            return statements;
+        }
+
+        public MessageFieldAccess all() {
+            return all;
+        }
+
+        /**
+         * @return the statements only, without the condition
+         */
+        public MessageFieldAccess actions() {
+            return actions;
+        }
+    }
+
+    /**
+     * A field written in one stage and overwritten or removed by a later rule of the same pipeline before being read.
+     */
+    public static class DeadWrite {
+        private final String field;
+        private final int stage;
+        private final String ruleName;
+        private final int overwritingStage;
+        private final String overwritingRuleName;
+
+        private DeadWrite(String field, int stage, String ruleName, int overwritingStage, String overwritingRuleName) {
+            this.field = field;
+            this.stage = stage;
+            this.ruleName = ruleName;
+            this.overwritingStage = overwritingStage;
+            this.overwritingRuleName = overwritingRuleName;
+        }
+
+        public String field() {
+            return field;
+        }
+
+        public int stage() {
+            return stage;
+        }
+
+        public String ruleName() {
+            return ruleName;
+        }
+
+        public int overwritingStage() {
+            return overwritingStage;
+        }
+
+        public String overwritingRuleName() {
+            return overwritingRuleName;
+        }
+
+        @Override
+        public String toString() {
+            return "DeadWrite{" + field + " in stage " + stage + " rule `" + ruleName + "`, overwritten in stage "
+                    + overwritingStage + " rule `" + overwritingRuleName + "`}";
+        }
+    }
+
+    private static class Step {
+        private final int stage;
+        private final String ruleName;
+        private final MessageFieldAccess access;
+
+        private Step(int stage, String ruleName, MessageFieldAccess access) {
+            this.stage = stage;
+            this.ruleName = ruleName;
+            this.access = access;
+        }
+    }
+
+    private static class Builder {
+        private final Set<String> reads = Sets.newHashSet();
+        private final Set<String> writes = Sets.newHashSet();
+        private final Set<String> writePrefixes = Sets.newHashSet();
+        private boolean readsAll = false;
+        private boolean writesAll = false;
+
+        private void read(@Nullable String field) {
+            if (field == null) {
+                readsAll = true;
+            } else {
+                reads.add(field);
+            }
+        }
+
+        private void write(@Nullable String field) {
+            if (field == null) {
+                writesAll = true;
+            } else {
+                writes.add(field);
+            }
+        }
+
+        // an empty or unknown prefix can be followed by any field name
+        private void writePrefix(@Nullable String prefix) {
+            if (Strings.isNullOrEmpty(prefix)) {
+                writesAll = true;
+            } else {
+                writePrefixes.add(prefix);
+            }
+        }
+
+        private MessageFieldAccess build() {
+            if (reads.isEmpty() && writes.isEmpty() && writePrefixes.isEmpty() && !readsAll && !writesAll) {
+                return NONE;
+            }
+            return new MessageFieldAccess(ImmutableSet.copyOf(reads),
+                    ImmutableSet.copyOf(writes),
+                    ImmutableSet.copyOf(writePrefixes),
+                    readsAll,
+                    writesAll);
+        }
+    }
+
+    private static class Collector extends RuleAstBaseListener {
+        private final List<MessageFieldAccess> statements = Lists.newArrayList();
+        private MessageFieldAccess condition = NONE;
+        private Builder current;
+
+        @Override
+        public void enterWhen(Rule rule) {
+            current = new Builder();
+        }
+
+        @Override
+        public void exitWhen(Rule rule) {
+            condition = current.build();
+        }
+
+        @Override
+        public void enterStatement(Statement statement) {
+            current = new Builder();
+        }
+
+        @Override
+        public void exitStatement(Statement statement) {
+            statements.add(current.build());
+        }
+
+        @Override
+        public void enterMessageRef(MessageRefExpression expr) {
+            current.read(constantName(expr.getFieldExpr()));
+        }
+
+        @Override
+        public void enterFunctionCall(FunctionExpression expr) {
+            final FunctionArgs args = expr.getArgs();
+            switch (expr.getFunction().descriptor().name()) {
+                case HasField.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.read(constantArg(args, FIELD_ARG));
+                    }
+                    break;
+                case SetField.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        final String field = setFieldName(args);
+                        if (field != null) {
+                            current.write(field);
+                        } else {
+                            current.writePrefix(prefixArg(args));
+                        }
+                    }
+                    break;
+                case SetFields.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.writePrefix(prefixArg(args));
+                    }
+                    break;
+                case RemoveField.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.write(constantArg(args, FIELD_ARG));
+                    }
+                    break;
+                case RenameField.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        final String oldField = constantArg(args, "old_field");
+                        current.read(oldField);
+                        current.write(oldField);
+                        current.write(constantArg(args, "new_field"));
+                    }
+                    break;
+                case RouteToStream.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.write(STREAMS);
+                    }
+                    break;
+                case CloneMessage.NAME:
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.read(null);
+                    }
+                    break;
+                case CreateMessage.NAME:
+                    // the new message defaults to the current message's message and source
+                    if (!args.isPresent(MESSAGE_ARG)) {
+                        current.read(Message.FIELD_MESSAGE);
+                    }
+                    if (!args.isPresent("source")) {
+                        current.read(Message.FIELD_SOURCE);
+                    }
+                    break;
+                case DropMessage.NAME:
+                    // only flags the message, which is not visible to other rules
+                    break;
+                default:
+                    if (!expr.getFunction().getClass().getName().startsWith(FUNCTIONS_PACKAGE)) {
+                        current.read(null);
+                        current.write(null);
+                    }
+            }
+        }
+
+        @Nullable
+        private static String setFieldName(FunctionArgs args) {
+            final String field = constantArg(args, FIELD_ARG);
+            if (field == null) {
+                return null;
+            }
+            final String prefix = args.isPresent("prefix") ? constantArg(args, "prefix") : "";
+            final String suffix = args.isPresent("suffix") ? constantArg(args, "suffix") : "";
+            if (prefix == null || suffix == null) {
+                return null;
+            }
+            return prefix + field + suffix;
+        }
+
+        @Nullable
+        private static String prefixArg(FunctionArgs args) {
+            return args.isPresent("prefix") ? constantArg(args, "prefix") : null;
+        }
+
+        @Nullable
+        private static String constantArg(FunctionArgs args, String name) {
+            final Object value = args.getPreComputedValue(name);
+            return value instanceof String ? (String) value : null;
+        }
+
+        @Nullable
+        private static String constantName(Expression fieldExpr) {
+            if (fieldExpr instanceof FieldRefExpression) {
+                return ((FieldRefExpression) fieldExpr).fieldName();
+            }
+            if (fieldExpr instanceof StringExpression) {
+                return (String) fieldExpr.evaluateUnsafe(null);
+            }
+            return null;
+        }
+    }
+}
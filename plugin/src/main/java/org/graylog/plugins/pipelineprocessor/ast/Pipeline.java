@@ -16,13 +16,10 @@
  */
 package org.graylog.plugins.pipelineprocessor.ast;
 
-import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricFilter;
-import com.codahale.metrics.MetricRegistry;
 import com.google.auto.value.AutoValue;
 import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.Sets;
-import org.graylog2.shared.metrics.MetricUtils;
 
 import javax.annotation.Nullable;
 import java.util.SortedSet;
@@ -30,8 +27,8 @@ import java.util.SortedSet;
 @AutoValue
 public abstract class Pipeline {
 
-    private String metricName;
-    private transient Meter executed;
+    private transient ExecutionMetrics.Markers markers;
+    private transient ExecutionMetrics.Marker executed;
 
     @Nullable
     public abstract String id();
@@ -55,15 +52,24 @@ public abstract class Pipeline {
     @Memoized
     public abstract int hashCode();
 
+    /**
+     * @return the message fields the rules of this pipeline read and write, see {@link MessageFieldAccess}, only
+     * valid after the rules of the stages have been resolved
+     */
+    @Memoized
+    public MessageFieldAccess fieldAccess() {
+        return MessageFieldAccess.of(this);
+    }
+
     /**
      * Register the metrics attached to this pipeline.
      *
-     * @param metricRegistry the registry to add the metrics to
+     * @param pipelineMetrics the pipeline metrics to add the metrics to
      */
-    public void registerMetrics(MetricRegistry metricRegistry) {
+    public void registerMetrics(ExecutionMetrics pipelineMetrics) {
         if (id() != null) {
-            metricName = MetricRegistry.name(Pipeline.class, id(), "executed");
-            executed = metricRegistry.meter(metricName);
+            markers = pipelineMetrics.pipelineMarkers(id());
+            executed = markers.get("executed");
         }
     }
 
@@ -74,10 +80,10 @@ public abstract class Pipeline {
      * @return the filter matching this pipeline's metrics
      */
     public MetricFilter metricsFilter() {
-        if (id() == null) {
+        if (markers == null) {
             return (name, metric) -> false;
         }
-        return new MetricUtils.SingleMetricFilter(metricName);
+        return (name, metric) -> markers.metricNames().contains(name);
 
     }
     public void markExecution() {
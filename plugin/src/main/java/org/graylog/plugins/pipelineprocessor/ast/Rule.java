@@ -17,12 +17,10 @@
 package org.graylog.plugins.pipelineprocessor.ast;
 
 import com.google.auto.value.AutoValue;
+import com.google.auto.value.extension.memoized.Memoized;
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 
-import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricFilter;
-import com.codahale.metrics.MetricRegistry;
 
 import org.antlr.v4.runtime.CommonToken;
 import org.graylog.plugins.pipelineprocessor.ast.expressions.BooleanExpression;
@@ -46,16 +44,17 @@ import javax.annotation.Nullable;
 public abstract class Rule {
     private static final Logger LOG = LoggerFactory.getLogger(Rule.class);
 
-    private transient Set<String> metricNames = Sets.newHashSet();
+    private transient ExecutionMetrics.Markers globalMarkers;
+    private transient ExecutionMetrics.Markers localMarkers;
 
-    private transient Meter globalExecuted;
-    private transient Meter localExecuted;
-    private transient Meter globalFailed;
-    private transient Meter localFailed;
-    private transient Meter globalMatched;
-    private transient Meter localMatched;
-    private transient Meter globalNotMatched;
-    private transient Meter localNotMatched;
+    private transient ExecutionMetrics.Marker globalExecuted;
+    private transient ExecutionMetrics.Marker localExecuted;
+    private transient ExecutionMetrics.Marker globalFailed;
+    private transient ExecutionMetrics.Marker localFailed;
+    private transient ExecutionMetrics.Marker globalMatched;
+    private transient ExecutionMetrics.Marker localMatched;
+    private transient ExecutionMetrics.Marker globalNotMatched;
+    private transient ExecutionMetrics.Marker localNotMatched;
 
     @Nullable
     public abstract String id();
@@ -82,6 +81,14 @@ public abstract class Rule {
         return toBuilder().id(id).build();
     }
 
+    /**
+     * @return the message fields this rule reads and writes, see {@link MessageFieldAccess}
+     */
+    @Memoized
+    public MessageFieldAccess.RuleAccess fieldAccess() {
+        return MessageFieldAccess.of(this);
+    }
+
     public static Rule alwaysFalse(String name) {
         return builder().name(name).when(new BooleanExpression(new CommonToken(-1), false)).then(Collections.emptyList()).build();
     }
@@ -89,41 +96,27 @@ public abstract class Rule {
     /**
      * Register the metrics attached to this pipeline.
      *
-     * @param metricRegistry the registry to add the metrics to
+     * @param pipelineMetrics the pipeline metrics to add the metrics to
      */
-    public void registerMetrics(MetricRegistry metricRegistry, String pipelineId, String stageId) {
+    public void registerMetrics(ExecutionMetrics pipelineMetrics, String pipelineId, String stageId) {
         if (id() == null) {
             LOG.debug("Not registering metrics for unsaved rule {}", name());
             return;
         }
-        if (id() != null) {
-            globalExecuted = registerGlobalMeter(metricRegistry, "executed");
-            localExecuted = registerLocalMeter(metricRegistry, pipelineId, stageId, "executed");
+        globalMarkers = pipelineMetrics.ruleMarkers(id());
+        localMarkers = pipelineMetrics.ruleMarkers(id(), pipelineId, stageId);
 
-            globalFailed = registerGlobalMeter(metricRegistry, "failed");
-            localFailed = registerLocalMeter(metricRegistry, pipelineId, stageId, "failed");
+        globalExecuted = globalMarkers.get("executed");
+        localExecuted = localMarkers.get("executed");
 
-            globalMatched = registerGlobalMeter(metricRegistry, "matched");
-            localMatched = registerLocalMeter(metricRegistry, pipelineId, stageId, "matched");
+        globalFailed = globalMarkers.get("failed");
+        localFailed = localMarkers.get("failed");
 
-            globalNotMatched = registerGlobalMeter(metricRegistry, "not-matched");
-            localNotMatched = registerLocalMeter(metricRegistry, pipelineId, stageId, "not-matched");
+        globalMatched = globalMarkers.get("matched");
+        localMatched = localMarkers.get("matched");
 
-        }
-    }
-
-    private Meter registerGlobalMeter(MetricRegistry metricRegistry, String type) {
-        final String name = MetricRegistry.name(Rule.class, id(), type);
-        metricNames.add(name);
-        return metricRegistry.meter(name);
-    }
-
-    private Meter registerLocalMeter(MetricRegistry metricRegistry,
-                                     String pipelineId,
-                                     String stageId, String type) {
-        final String name = MetricRegistry.name(Rule.class, id(), pipelineId, stageId, type);
-        metricNames.add(name);
-        return metricRegistry.meter(name);
+        globalNotMatched = globalMarkers.get("not-matched");
+        localNotMatched = localMarkers.get("not-matched");
     }
 
     /**
@@ -133,10 +126,10 @@ public abstract class Rule {
      * @return the filter matching this pipeline's metrics
      */
     public MetricFilter metricsFilter() {
-        if (id() == null) {
+        if (globalMarkers == null) {
             return (name, metric) -> false;
         }
-        return (name, metric) -> metricNames.contains(name);
+        return (name, metric) -> globalMarkers.metricNames().contains(name) || localMarkers.metricNames().contains(name);
 
     }
 
@@ -16,23 +16,20 @@
  */
 package org.graylog.plugins.pipelineprocessor.ast;
 
-import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricFilter;
-import com.codahale.metrics.MetricRegistry;
 import com.google.auto.value.AutoValue;
-import org.graylog2.shared.metrics.MetricUtils;
 
 import java.util.List;
 
-import static com.codahale.metrics.MetricRegistry.name;
-
 @AutoValue
 public abstract class Stage implements Comparable<Stage> {
     private List<Rule> rules;
     // not an autovalue property, because it introduces a cycle in hashCode() and we have no way of excluding it
     private transient Pipeline pipeline;
-    private transient Meter executed;
-    private transient String meterName;
+    private transient ExecutionMetrics.Markers markers;
+    private transient ExecutionMetrics.Marker executed;
+    // depends on the rules, which are only set when resolving the pipeline
+    private transient volatile MessageFieldAccess fieldAccess;
 
     public abstract int stage();
     public abstract boolean matchAll();
@@ -44,6 +41,19 @@ public abstract class Stage implements Comparable<Stage> {
 
     public void setRules(List<Rule> rules) {
         this.rules = rules;
+        this.fieldAccess = null;
+    }
+
+    /**
+     * @return the message fields the rules of this stage read and write, see {@link MessageFieldAccess}
+     */
+    public MessageFieldAccess fieldAccess() {
+        MessageFieldAccess access = fieldAccess;
+        if (access == null) {
+            // racing threads compute equal results, keeping either one is fine
+            access = fieldAccess = MessageFieldAccess.of(this);
+        }
+        return access;
     }
 
     public static Builder builder() {
@@ -60,11 +70,11 @@ public abstract class Stage implements Comparable<Stage> {
     /**
      * Register the metrics attached to this stage.
      *
-     * @param metricRegistry the registry to add the metrics to
+     * @param pipelineMetrics the pipeline metrics to add the metrics to
      */
-    public void registerMetrics(MetricRegistry metricRegistry, String pipelineId) {
-        meterName = name(Pipeline.class, pipelineId, "stage", String.valueOf(stage()), "executed");
-        executed = metricRegistry.meter(meterName);
+    public void registerMetrics(ExecutionMetrics pipelineMetrics, String pipelineId) {
+        markers = pipelineMetrics.stageMarkers(pipelineId, String.valueOf(stage()));
+        executed = markers.get("executed");
     }
 
     /**
@@ -74,10 +84,10 @@ public abstract class Stage implements Comparable<Stage> {
      * @return the filter matching this pipeline's metrics
      */
     public MetricFilter metricsFilter() {
-        if (meterName == null) {
+        if (markers == null) {
             return (name, metric) -> false;
         }
-        return new MetricUtils.SingleMetricFilter(meterName);
+        return (name, metric) -> markers.metricNames().contains(name);
 
     }
     public void markExecution() {
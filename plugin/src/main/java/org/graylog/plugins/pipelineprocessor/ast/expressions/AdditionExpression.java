@@ -24,11 +24,11 @@ import org.joda.time.Period;
 
 import javax.annotation.Nullable;
 
-import static com.google.common.base.MoreObjects.firstNonNull;
-
 public class AdditionExpression extends BinaryExpression implements NumericExpression {
     private final boolean isPlus;
     private Class type = Void.class;
+    private boolean integral = false;
+    private boolean floating = false;
 
     public AdditionExpression(Token start, Expression left, Expression right, boolean isPlus) {
         super(start, left, right);
@@ -37,22 +37,38 @@ public class AdditionExpression extends BinaryExpression implements NumericExpre
 
     @Override
     public boolean isIntegral() {
-        return getType().equals(Long.class);
+        return integral;
     }
 
     @Override
     public long evaluateLong(EvaluationContext context) {
-        return (long) firstNonNull(evaluateUnsafe(context), 0);
+        if (integral) {
+            final long l = NumericExpression.longValue(left, context);
+            final long r = NumericExpression.longValue(right, context);
+            return isPlus ? l + r : l - r;
+        }
+        return floating ? (long) evaluateDouble(context) : ((Number) evaluateUnsafe(context)).longValue();
     }
 
     @Override
     public double evaluateDouble(EvaluationContext context) {
-        return (double) firstNonNull(evaluateUnsafe(context), 0d);
+        if (floating) {
+            final double l = NumericExpression.doubleValue(left, context);
+            final double r = NumericExpression.doubleValue(right, context);
+            return isPlus ? l + r : l - r;
+        }
+        return integral ? evaluateLong(context) : ((Number) evaluateUnsafe(context)).doubleValue();
     }
 
     @Nullable
     @Override
     public Object evaluateUnsafe(EvaluationContext context) {
+        // the type annotator has resolved the numeric variants
+        if (integral) {
+            return evaluateLong(context);
+        } else if (floating) {
+            return evaluateDouble(context);
+        }
         final Object leftValue = left.evaluateUnsafe(context);
         final Object rightValue = right.evaluateUnsafe(context);
 
@@ -123,6 +139,8 @@ public class AdditionExpression extends BinaryExpression implements NumericExpre
 
     public void setType(Class type) {
         this.type = type;
+        this.integral = Long.class.equals(type);
+        this.floating = Double.class.equals(type);
     }
 
     @Override
@@ -22,10 +22,13 @@ import org.joda.time.DateTime;
 
 public class ComparisonExpression extends BinaryExpression implements LogicalExpression {
     private final String operator;
+    private final Operator opcode;
+    private Class<?> operandType = Object.class;
 
     public ComparisonExpression(Token start, Expression left, Expression right, String operator) {
         super(start, left, right);
         this.operator = operator;
+        this.opcode = Operator.of(operator);
     }
 
     @Override
@@ -40,30 +43,36 @@ public class ComparisonExpression extends BinaryExpression implements LogicalExp
 
     @Override
     public boolean evaluateBool(EvaluationContext context) {
+        // numeric operands have been resolved by the type annotator and are compared without boxing
+        if (operandType == Long.class) {
+            return compareLong(opcode, NumericExpression.longValue(left, context), NumericExpression.longValue(right, context));
+        } else if (operandType == Double.class) {
+            return compareDouble(opcode, NumericExpression.doubleValue(left, context), NumericExpression.doubleValue(right, context));
+        }
 
         final Object leftValue = this.left.evaluateUnsafe(context);
         final Object rightValue = this.right.evaluateUnsafe(context);
         if (leftValue instanceof DateTime && rightValue instanceof DateTime) {
-            return compareDateTimes(operator, (DateTime) leftValue, (DateTime) rightValue);
+            return compareDateTimes(opcode, (DateTime) leftValue, (DateTime) rightValue);
         }
 
         if (leftValue instanceof Double || rightValue instanceof Double) {
-            return compareDouble(operator, (double) leftValue, (double) rightValue);
+            return compareDouble(opcode, (double) leftValue, (double) rightValue);
         }
 
-        return compareLong(operator, (long) leftValue, (long) rightValue);
+        return compareLong(opcode, (long) leftValue, (long) rightValue);
     }
 
     @SuppressWarnings("Duplicates")
-    private boolean compareLong(String operator, long left, long right) {
+    private boolean compareLong(Operator operator, long left, long right) {
         switch (operator) {
-            case ">":
+            case GREATER:
                 return left > right;
-            case ">=":
+            case GREATER_EQUAL:
                 return left >= right;
-            case "<":
+            case LESS:
                 return left < right;
-            case "<=":
+            case LESS_EQUAL:
                 return left <= right;
             default:
                 return false;
@@ -71,30 +80,30 @@ public class ComparisonExpression extends BinaryExpression implements LogicalExp
     }
 
     @SuppressWarnings("Duplicates")
-    private boolean compareDouble(String operator, double left, double right) {
+    private boolean compareDouble(Operator operator, double left, double right) {
         switch (operator) {
-            case ">":
+            case GREATER:
                 return left > right;
-            case ">=":
+            case GREATER_EQUAL:
                 return left >= right;
-            case "<":
+            case LESS:
                 return left < right;
-            case "<=":
+            case LESS_EQUAL:
                 return left <= right;
             default:
                 return false;
         }
     }
 
-    private boolean compareDateTimes(String operator, DateTime left, DateTime right) {
+    private boolean compareDateTimes(Operator operator, DateTime left, DateTime right) {
         switch (operator) {
-            case ">":
+            case GREATER:
                 return left.isAfter(right);
-            case ">=":
+            case GREATER_EQUAL:
                 return !left.isBefore(right);
-            case "<":
+            case LESS:
                 return left.isBefore(right);
-            case "<=":
+            case LESS_EQUAL:
                 return !left.isAfter(right);
             default:
                 return false;
@@ -105,8 +114,37 @@ public class ComparisonExpression extends BinaryExpression implements LogicalExp
         return operator;
     }
 
+    /**
+     * Lets the type annotator select the unboxed comparison for operands of the same numeric type.
+     *
+     * @param operandType the common type of both operands, any other type than {@code Long} or {@code Double}
+     *                    compares the runtime values
+     */
+    public void setOperandType(Class<?> operandType) {
+        this.operandType = operandType;
+    }
+
     @Override
     public String toString() {
         return left.toString() + " " + operator + " " + right.toString();
     }
+
+    private enum Operator {
+        GREATER, GREATER_EQUAL, LESS, LESS_EQUAL, UNKNOWN;
+
+        static Operator of(String operator) {
+            switch (operator) {
+                case ">":
+                    return GREATER;
+                case ">=":
+                    return GREATER_EQUAL;
+                case "<":
+                    return LESS;
+                case "<=":
+                    return LESS_EQUAL;
+                default:
+                    return UNKNOWN;
+            }
+        }
+    }
 }
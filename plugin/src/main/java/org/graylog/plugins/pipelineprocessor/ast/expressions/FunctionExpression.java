@@ -22,6 +22,7 @@ import org.antlr.v4.runtime.Token;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.exceptions.FunctionEvaluationException;
 import org.graylog.plugins.pipelineprocessor.ast.exceptions.LocationAwareEvalException;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ElementAccessFunction;
 import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
@@ -70,6 +71,24 @@ public class FunctionExpression extends BaseExpression {
         }
     }
 
+    public boolean supportsElementAccess() {
+        return function instanceof ElementAccessFunction;
+    }
+
+    /**
+     * Evaluates a single element of the function's array result, see {@link ElementAccessFunction}.
+     * Indexes outside of the result throw the same {@link ArrayIndexOutOfBoundsException} as indexing into the full result.
+     */
+    public Object evaluateElementUnsafe(EvaluationContext context, int index) {
+        try {
+            return ((ElementAccessFunction) function).evaluateElement(args, context, index);
+        } catch (LocationAwareEvalException | ArrayIndexOutOfBoundsException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FunctionEvaluationException(this, e);
+        }
+    }
+
     @Override
     public Class getType() {
         return descriptor.returnType();
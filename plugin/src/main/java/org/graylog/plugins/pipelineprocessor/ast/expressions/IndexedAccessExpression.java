@@ -44,6 +44,11 @@ public class IndexedAccessExpression extends BaseExpression {
     @Override
     public Object evaluateUnsafe(EvaluationContext context) {
         final Object idxObj = this.index.evaluateUnsafe(context);
+        if (idxObj instanceof Long && indexableObject instanceof FunctionExpression
+                && ((FunctionExpression) indexableObject).supportsElementAccess()) {
+            // only compute the element we need instead of the function's entire result
+            return ((FunctionExpression) indexableObject).evaluateElementUnsafe(context, Ints.saturatedCast((long) idxObj));
+        }
         final Object indexable = indexableObject.evaluateUnsafe(context);
         if (idxObj == null || indexable == null) {
             return null;
@@ -40,7 +40,7 @@ public class MessageRefExpression extends BaseExpression {
         if (fieldName == null) {
             return null;
         }
-        return context.currentMessage().getField(fieldName.toString());
+        return context.readMessage(() -> context.currentMessage().getField(fieldName.toString()));
     }
 
     @Override
@@ -21,11 +21,10 @@ import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 
 import javax.annotation.Nullable;
 
-import static com.google.common.base.MoreObjects.firstNonNull;
-
 public class MultiplicationExpression extends BinaryExpression implements NumericExpression  {
     private final char operator;
     private Class type;
+    private boolean integral = false;
 
     public MultiplicationExpression(Token start, Expression left, Expression right, char operator) {
         super(start, left, right);
@@ -34,53 +33,55 @@ public class MultiplicationExpression extends BinaryExpression implements Numeri
 
     @Override
     public boolean isIntegral() {
-        return getType().equals(Long.class);
+        return integral;
     }
 
     @Override
     public long evaluateLong(EvaluationContext context) {
-        return (long) firstNonNull(evaluateUnsafe(context), 0);
+        if (!integral) {
+            return (long) evaluateDouble(context);
+        }
+        final long l = NumericExpression.longValue(left, context);
+        final long r = NumericExpression.longValue(right, context);
+        switch (operator) {
+            case '*':
+                return l * r;
+            case '/':
+                return l / r;
+            case '%':
+                return l % r;
+            default:
+                throw new IllegalStateException("Invalid operator, this is a bug.");
+        }
     }
 
+    @SuppressWarnings("Duplicates")
     @Override
     public double evaluateDouble(EvaluationContext context) {
-        return (double) firstNonNull(evaluateUnsafe(context), 0d);
+        if (integral) {
+            return evaluateLong(context);
+        }
+        final double l = NumericExpression.doubleValue(left, context);
+        final double r = NumericExpression.doubleValue(right, context);
+        switch (operator) {
+            case '*':
+                return l * r;
+            case '/':
+                return l / r;
+            case '%':
+                return l % r;
+            default:
+                throw new IllegalStateException("Invalid operator, this is a bug.");
+        }
     }
 
-    @SuppressWarnings("Duplicates")
     @Nullable
     @Override
     public Object evaluateUnsafe(EvaluationContext context) {
-        final Object leftValue = left.evaluateUnsafe(context);
-        final Object rightValue = right.evaluateUnsafe(context);
-
-        if (isIntegral()) {
-            long l = (long) leftValue;
-            long r = (long) rightValue;
-            switch (operator) {
-                case '*':
-                    return l * r;
-                case '/':
-                    return l / r;
-                case '%':
-                    return l % r;
-                default:
-                    throw new IllegalStateException("Invalid operator, this is a bug.");
-            }
+        if (integral) {
+            return evaluateLong(context);
         } else {
-            final double l = (double) leftValue;
-            final double r = (double) rightValue;
-
-            switch (operator) {
-                case '*':
-                    return l * r;
-                case '/':
-                    return l / r;
-                case '%':
-                    return l % r;
-                default:
-                    throw new IllegalStateException("Invalid operator, this is a bug.");
-            }
+            return evaluateDouble(context);
         }
     }
 
@@ -95,6 +96,7 @@ public class MultiplicationExpression extends BinaryExpression implements Numeri
 
     public void setType(Class type) {
         this.type = type;
+        this.integral = Long.class.equals(type);
     }
 
     @Override
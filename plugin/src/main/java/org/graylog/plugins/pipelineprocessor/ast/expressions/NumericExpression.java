@@ -25,4 +25,24 @@ public interface NumericExpression extends Expression {
     long evaluateLong(EvaluationContext context);
 
     double evaluateDouble(EvaluationContext context);
+
+    /**
+     * Evaluates an operand of an integral expression, without boxing if the operand is numeric itself.
+     */
+    static long longValue(Expression expression, EvaluationContext context) {
+        if (expression instanceof NumericExpression) {
+            return ((NumericExpression) expression).evaluateLong(context);
+        }
+        return (long) expression.evaluateUnsafe(context);
+    }
+
+    /**
+     * Evaluates an operand of a floating point expression, without boxing if the operand is numeric itself.
+     */
+    static double doubleValue(Expression expression, EvaluationContext context) {
+        if (expression instanceof NumericExpression) {
+            return ((NumericExpression) expression).evaluateDouble(context);
+        }
+        return (double) expression.evaluateUnsafe(context);
+    }
 }
@@ -21,8 +21,6 @@ import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 
 import javax.annotation.Nullable;
 
-import static com.google.common.base.MoreObjects.firstNonNull;
-
 public class SignedExpression extends UnaryExpression implements NumericExpression {
     private final boolean isPlus;
 
@@ -38,12 +36,20 @@ public class SignedExpression extends UnaryExpression implements NumericExpressi
 
     @Override
     public long evaluateLong(EvaluationContext context) {
-        return (long) firstNonNull(evaluateUnsafe(context), 0);
+        if (isIntegral()) {
+            final long number = NumericExpression.longValue(right, context);
+            return isPlus ? number : -number;
+        }
+        return ((Number) evaluateUnsafe(context)).longValue();
     }
 
     @Override
     public double evaluateDouble(EvaluationContext context) {
-        return (double) firstNonNull(evaluateUnsafe(context), 0d);
+        if (Double.class.equals(getType())) {
+            final double number = NumericExpression.doubleValue(right, context);
+            return isPlus ? number : -number;
+        }
+        return ((Number) evaluateUnsafe(context)).doubleValue();
     }
 
     @Nullable
@@ -0,0 +1,40 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.ast.functions;
+
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+
+/**
+ * Implemented by functions returning arrays which can produce a single element of their result more cheaply than the
+ * whole result.
+ * <br>
+ * When a rule only indexes into the result, e.g. <code>split(",", value)[3]</code>, the indexed access calls
+ * {@link #evaluateElement(FunctionArgs, EvaluationContext, int)} instead of {@link Function#evaluate(FunctionArgs, EvaluationContext)}.
+ */
+public interface ElementAccessFunction {
+
+    /**
+     * Has to behave exactly like indexing into the result of {@link Function#evaluate(FunctionArgs, EvaluationContext)}.
+     *
+     * @param args    the function arguments
+     * @param context the evaluation context
+     * @param index   the index of the element to return
+     * @return the element at the index
+     * @throws ArrayIndexOutOfBoundsException if the result would not contain an element at the index
+     */
+    Object evaluateElement(FunctionArgs args, EvaluationContext context, int index);
+}
@@ -36,14 +36,28 @@ public class FunctionArgs {
     @Nonnull
     private final Map<String, Expression> args;
 
+    // values precomputed by functions under their own names, e.g. a compiled parser
     private final Map<String, Object> constantValues = Maps.newHashMap();
-    private final Function function;
-    private final FunctionDescriptor descriptor;
+    private final Function<?> function;
+    private final FunctionDescriptor<?> descriptor;
 
-    public FunctionArgs(Function func, Map<String, Expression> args) {
+    // the parameters in declaration order, their argument expressions and precomputed values share the same slots
+    private final ParameterDescriptor<?, ?>[] params;
+    private final Expression[] expressions;
+    private final Object[] preComputedValues;
+
+    public FunctionArgs(Function<?> func, Map<String, Expression> args) {
         function = func;
         descriptor = function.descriptor();
         this.args = firstNonNull(args, Collections.<String, Expression>emptyMap());
+
+        params = new ParameterDescriptor<?, ?>[descriptor.params().size()];
+        expressions = new Expression[params.length];
+        preComputedValues = new Object[params.length];
+        for (int slot = 0; slot < params.length; slot++) {
+            params[slot] = descriptor.params().get(slot);
+            expressions[slot] = this.args.get(params[slot].name());
+        }
     }
 
     @Nonnull
@@ -68,13 +82,51 @@ public class FunctionArgs {
         return args.get(key);
     }
 
+    @Nullable
+    public Expression expression(int slot) {
+        return expressions[slot];
+    }
+
     public Object getPreComputedValue(String name) {
-        return constantValues.get(name);
+        final int slot = slot(name);
+        return slot < 0 ? constantValues.get(name) : getPreComputedValue(slot);
+    }
+
+    public Object getPreComputedValue(int slot) {
+        return preComputedValues[slot];
     }
 
     public void setPreComputedValue(@Nonnull String name, @Nonnull Object value) {
         Objects.requireNonNull(value);
-        constantValues.put(name, value);
+        final int slot = slot(name);
+        if (slot < 0) {
+            constantValues.put(name, value);
+        } else {
+            preComputedValues[slot] = value;
+        }
+    }
+
+    /**
+     * @param param the parameter to look up
+     * @return the slot of the parameter's expression and precomputed value, or -1 if it isn't a parameter of this function
+     */
+    public int slot(ParameterDescriptor<?, ?> param) {
+        final int slot = param.slot();
+        if (slot >= 0 && slot < params.length && params[slot] == param) {
+            return slot;
+        }
+        // the parameter was declared at a different position by another function
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] == param) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int slot(String name) {
+        final ParameterDescriptor<?, ?> param = param(name);
+        return param == null ? -1 : slot(param);
     }
 
     public Function<?> getFunction() {
@@ -64,6 +64,10 @@ public abstract class FunctionDescriptor<T> {
         abstract FunctionDescriptor<T> autoBuild();
 
         public FunctionDescriptor<T> build() {
+            for (int slot = 0; slot < params().size(); slot++) {
+                final ParameterDescriptor<?, ?> param = params().get(slot);
+                param.assignSlot(slot);
+            }
             return paramMap(Maps.uniqueIndex(params(), ParameterDescriptor::name))
                     .autoBuild();
         }
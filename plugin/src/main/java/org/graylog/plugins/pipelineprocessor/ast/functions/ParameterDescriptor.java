@@ -33,6 +33,10 @@ import javax.annotation.Nullable;
 @JsonAutoDetect
 public abstract class ParameterDescriptor<T, R> {
 
+    // position in the first function descriptor declaring this parameter, see FunctionArgs#slot. Only assigned once
+    // by FunctionDescriptor.Builder#build and not a property, so it doesn't take part in equality or serialization.
+    private int slot = -1;
+
     @JsonProperty
     public abstract Class<? extends T> type();
 
@@ -105,11 +109,12 @@ public abstract class ParameterDescriptor<T, R> {
 
     @Nullable
     public R required(FunctionArgs args, EvaluationContext context) {
-        final Object precomputedValue = args.getPreComputedValue(name());
+        final int slot = args.slot(this);
+        final Object precomputedValue = slot < 0 ? args.getPreComputedValue(name()) : args.getPreComputedValue(slot);
         if (precomputedValue != null) {
             return transformedType().cast(precomputedValue);
         }
-        final Expression valueExpr = args.expression(name());
+        final Expression valueExpr = slot < 0 ? args.expression(name()) : args.expression(slot);
         if (valueExpr == null) {
             return null;
         }
@@ -121,6 +126,27 @@ public abstract class ParameterDescriptor<T, R> {
         return Optional.ofNullable(required(args, context));
     }
 
+    /**
+     * Like {@link #optional(FunctionArgs, EvaluationContext)} followed by {@link Optional#orElse(Object)}, without
+     * allocating the {@link Optional}.
+     */
+    @Nullable
+    public R optional(FunctionArgs args, EvaluationContext context, @Nullable R defaultValue) {
+        final R value = required(args, context);
+        return value == null ? defaultValue : value;
+    }
+
+    int slot() {
+        return slot;
+    }
+
+    // the functions read their arguments through the instances they declared, so those have to know their slot
+    void assignSlot(int slot) {
+        if (this.slot < 0) {
+            this.slot = slot;
+        }
+    }
+
     @AutoValue.Builder
     public static abstract class Builder<T, R> {
         public abstract Builder<T, R> type(Class<? extends T> type);
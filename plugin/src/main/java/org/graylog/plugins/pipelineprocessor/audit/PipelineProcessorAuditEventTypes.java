@@ -28,18 +28,26 @@ public class PipelineProcessorAuditEventTypes implements PluginAuditEventTypes {
     public static final String PIPELINE_CREATE = NAMESPACE + "pipeline:create";
     public static final String PIPELINE_UPDATE = NAMESPACE + "pipeline:update";
     public static final String PIPELINE_DELETE = NAMESPACE + "pipeline:delete";
+    public static final String PIPELINE_BULK_UPDATE = NAMESPACE + "pipeline:bulk_update";
+    public static final String PIPELINE_BULK_DELETE = NAMESPACE + "pipeline:bulk_delete";
     public static final String RULE_CREATE = NAMESPACE + "rule:create";
     public static final String RULE_UPDATE = NAMESPACE + "rule:update";
     public static final String RULE_DELETE = NAMESPACE + "rule:delete";
+    public static final String RULE_BULK_UPDATE = NAMESPACE + "rule:bulk_update";
+    public static final String RULE_BULK_DELETE = NAMESPACE + "rule:bulk_delete";
 
     private static final Set<String> EVENT_TYPES = ImmutableSet.<String>builder()
             .add(PIPELINE_CONNECTION_UPDATE)
             .add(PIPELINE_CREATE)
             .add(PIPELINE_UPDATE)
             .add(PIPELINE_DELETE)
+            .add(PIPELINE_BULK_UPDATE)
+            .add(PIPELINE_BULK_DELETE)
             .add(RULE_CREATE)
             .add(RULE_UPDATE)
             .add(RULE_DELETE)
+            .add(RULE_BULK_UPDATE)
+            .add(RULE_BULK_DELETE)
             .build();
 
     @Override
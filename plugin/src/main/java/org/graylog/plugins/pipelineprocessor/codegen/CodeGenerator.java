@@ -51,6 +51,7 @@ import org.graylog.plugins.pipelineprocessor.ast.expressions.StringExpression;
 import org.graylog.plugins.pipelineprocessor.ast.expressions.VarRefExpression;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.statements.VarAssignStatement;
 import org.graylog.plugins.pipelineprocessor.codegen.compiler.JavaCompiler;
 import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
@@ -352,7 +353,10 @@ public class CodeGenerator {
                     .addStatement("super($L, $T.emptyMap())", funcReferenceName, ClassName.get(Collections.class));
 
             final CodeBlock.Builder parameterValues = CodeBlock.builder();
-            functionDescriptor.params().forEach(pd -> {
+            final CodeBlock.Builder slotValues = CodeBlock.builder();
+            final int paramCount = functionDescriptor.params().size();
+            for (int slot = 0; slot < paramCount; slot++) {
+                final ParameterDescriptor<?, ?> pd = functionDescriptor.params().get(slot);
                 directFunctionArgs.addMethod(MethodSpec.methodBuilder("setAndTransform$" + pd.name())
                         .returns(TypeName.VOID)
                         .addParameter(ClassName.get(pd.type()), "arg$" + pd.name())
@@ -376,7 +380,11 @@ public class CodeGenerator {
                         .beginControlFlow("case $S:", pd.name())
                         .addStatement("return transformed$$$L", pd.name())
                         .endControlFlow().build());
-            });
+                slotValues.add(CodeBlock.builder()
+                        .beginControlFlow("case $L:", slot)
+                        .addStatement("return transformed$$$L", pd.name())
+                        .endControlFlow().build());
+            }
 
             directFunctionArgs.addMethod(MethodSpec.methodBuilder("getPreComputedValue")
                     .returns(TypeName.OBJECT)
@@ -391,6 +399,19 @@ public class CodeGenerator {
                             .build())
                     .build());
 
+            directFunctionArgs.addMethod(MethodSpec.methodBuilder("getPreComputedValue")
+                    .returns(TypeName.OBJECT)
+                    .addParameter(TypeName.INT, "slot")
+                    .addModifiers(Modifier.PUBLIC)
+                    .addAnnotation(Override.class)
+                    .addCode(CodeBlock.builder()
+                            .beginControlFlow("switch (slot)")
+                            .add(slotValues.build())
+                            .endControlFlow()
+                            .addStatement("return null")
+                            .build())
+                    .build());
+
             directFunctionArgs.addMethod(constructorBuilder.build());
 
             final TypeSpec holder = directFunctionArgs.build();
@@ -536,7 +557,7 @@ public class CodeGenerator {
         public void exitMessageRef(MessageRefExpression expr) {
             final Object field = blockOrMissing(codeSnippet.get(expr.getFieldExpr()), expr.getFieldExpr());
 
-            codeSnippet.putIfAbsent(expr, CodeBlock.of("context.currentMessage().getField($S)", field));
+            codeSnippet.putIfAbsent(expr, CodeBlock.of("context.readMessage(() -> context.currentMessage().getField($S))", field));
         }
 
         @Override
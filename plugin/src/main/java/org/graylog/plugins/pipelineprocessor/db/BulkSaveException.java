@@ -0,0 +1,51 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.db;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Thrown when saving documents in bulk stopped part-way. The documents before the first failed one have been saved.
+ */
+public class BulkSaveException extends RuntimeException {
+    private final ImmutableList<String> savedIds;
+    private final ImmutableMap<Integer, String> errors;
+
+    public BulkSaveException(List<String> savedIds, Map<Integer, String> errors, Throwable cause) {
+        super("Saved " + savedIds.size() + " documents before failing: " + errors, cause);
+        this.savedIds = ImmutableList.copyOf(savedIds);
+        this.errors = ImmutableMap.copyOf(errors);
+    }
+
+    /**
+     * @return the ids of the documents which have been saved
+     */
+    public ImmutableList<String> savedIds() {
+        return savedIds;
+    }
+
+    /**
+     * @return the error messages by the position of the failed documents in the saved collection
+     */
+    public ImmutableMap<Integer, String> errors() {
+        return errors;
+    }
+}
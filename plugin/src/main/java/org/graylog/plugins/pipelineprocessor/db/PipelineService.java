@@ -17,15 +17,51 @@
 package org.graylog.plugins.pipelineprocessor.db;
 
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 
 import java.util.Collection;
+import java.util.Set;
 
 public interface PipelineService {
     PipelineDao save(PipelineDao pipeline);
 
+    /**
+     * Saves all documents in one operation, documents without an id are created.
+     *
+     * @return the saved documents in the same order
+     * @throws BulkSaveException if saving stopped part-way, for example because of a duplicate title
+     */
+    Collection<PipelineDao> saveAll(Collection<PipelineDao> pipelines);
+
     PipelineDao load(String id) throws NotFoundException;
 
+    /**
+     * Loading errors are not swallowed, an empty result always means there are no documents.
+     */
     Collection<PipelineDao> loadAll();
 
+    /**
+     * Loading errors are not swallowed, ids which are missing from the result no longer exist.
+     */
+    Collection<PipelineDao> loadByIds(Collection<String> ids);
+
+    /**
+     * Loading errors are not swallowed, documents without a modification time are never returned.
+     *
+     * @return the documents which have been modified at or after the given time
+     */
+    Collection<PipelineDao> loadModifiedSince(DateTime since);
+
+    /**
+     * Loading errors are not swallowed, only the ids are read from the database.
+     *
+     * @return the ids of all documents
+     */
+    Set<String> loadAllIds();
+
     void delete(String id);
+
+    void deleteAll(Collection<String> ids);
+
+    Collection<PipelineDao> loadNamed(Collection<String> pipelineNames);
 }
@@ -19,6 +19,7 @@ package org.graylog.plugins.pipelineprocessor.db;
 import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.graylog2.database.NotFoundException;
 
+import java.util.Collection;
 import java.util.Set;
 
 public interface PipelineStreamConnectionsService {
@@ -26,7 +27,15 @@ public interface PipelineStreamConnectionsService {
 
     PipelineConnections load(String streamId) throws NotFoundException;
 
+    /**
+     * Loading errors are not swallowed, an empty result always means there are no connections.
+     */
     Set<PipelineConnections> loadAll();
 
+    /**
+     * Loading errors are not swallowed, streams which are missing from the result have no connections.
+     */
+    Set<PipelineConnections> loadByStreamIds(Collection<String> streamIds);
+
     void delete(String streamId);
 }
@@ -1,14 +1,23 @@
 package org.graylog.plugins.pipelineprocessor.db.memory;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Sets;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
 import org.graylog.plugins.pipelineprocessor.db.PipelineService;
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * A PipelineService that does not persist any data, but simply keeps it in memory.
@@ -39,6 +48,21 @@ public class InMemoryPipelineService implements PipelineService {
         return toSave;
     }
 
+    @Override
+    public Collection<PipelineDao> saveAll(Collection<PipelineDao> pipelines) {
+        final List<PipelineDao> saved = Lists.newArrayList();
+        for (PipelineDao dao : pipelines) {
+            try {
+                saved.add(save(dao));
+            } catch (IllegalArgumentException e) {
+                throw new BulkSaveException(saved.stream().map(PipelineDao::id).collect(Collectors.toList()),
+                        Collections.singletonMap(saved.size(), e.getMessage()),
+                        e);
+            }
+        }
+        return saved;
+    }
+
     @Override
     public PipelineDao load(String id) throws NotFoundException {
         final PipelineDao pipeline = store.get(id);
@@ -53,6 +77,26 @@ public class InMemoryPipelineService implements PipelineService {
         return ImmutableSet.copyOf(store.values());
     }
 
+    @Override
+    public Collection<PipelineDao> loadByIds(Collection<String> ids) {
+        return ids.stream()
+                .map(store::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Collection<PipelineDao> loadModifiedSince(DateTime since) {
+        return store.values().stream()
+                .filter(dao -> dao.modifiedAt() != null && !dao.modifiedAt().isBefore(since))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Set<String> loadAllIds() {
+        return ImmutableSet.copyOf(store.keySet());
+    }
+
     @Override
     public void delete(String id) {
         if (id == null) {
@@ -65,6 +109,19 @@ public class InMemoryPipelineService implements PipelineService {
         }
     }
 
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        ids.forEach(this::delete);
+    }
+
+    @Override
+    public Collection<PipelineDao> loadNamed(Collection<String> pipelineNames) {
+        final Set<String> needles = Sets.newHashSet(pipelineNames);
+        return store.values().stream()
+                .filter(pipelineDao -> needles.contains(pipelineDao.title()))
+                .collect(Collectors.toList());
+    }
+
     private String createId() {
         return String.valueOf(idGen.incrementAndGet());
     }
@@ -2,13 +2,16 @@ package org.graylog.plugins.pipelineprocessor.db.memory;
 
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
+import com.google.common.collect.Sets;
 import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
 import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.graylog2.database.NotFoundException;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 public class InMemoryPipelineStreamConnectionsService implements PipelineStreamConnectionsService {
 
@@ -41,6 +44,14 @@ public class InMemoryPipelineStreamConnectionsService implements PipelineStreamC
         return ImmutableSet.copyOf(store.values());
     }
 
+    @Override
+    public Set<PipelineConnections> loadByStreamIds(Collection<String> streamIds) {
+        final Set<String> needles = Sets.newHashSet(streamIds);
+        return store.values().stream()
+                .filter(connections -> needles.contains(connections.streamId()))
+                .collect(Collectors.toSet());
+    }
+
     @Override
     public void delete(String streamId) {
         try {
@@ -17,14 +17,20 @@
 package org.graylog.plugins.pipelineprocessor.db.memory;
 
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.RuleDao;
 import org.graylog.plugins.pipelineprocessor.db.RuleService;
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
@@ -58,6 +64,21 @@ public class InMemoryRuleService implements RuleService {
         return toSave;
     }
 
+    @Override
+    public Collection<RuleDao> saveAll(Collection<RuleDao> rules) {
+        final List<RuleDao> saved = Lists.newArrayList();
+        for (RuleDao dao : rules) {
+            try {
+                saved.add(save(dao));
+            } catch (IllegalArgumentException e) {
+                throw new BulkSaveException(saved.stream().map(RuleDao::id).collect(Collectors.toList()),
+                        Collections.singletonMap(saved.size(), e.getMessage()),
+                        e);
+            }
+        }
+        return saved;
+    }
+
     @Override
     public RuleDao load(String id) throws NotFoundException {
         final RuleDao rule = store.get(id);
@@ -72,6 +93,26 @@ public class InMemoryRuleService implements RuleService {
         return ImmutableSet.copyOf(store.values());
     }
 
+    @Override
+    public Collection<RuleDao> loadByIds(Collection<String> ids) {
+        return ids.stream()
+                .map(store::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Collection<RuleDao> loadModifiedSince(DateTime since) {
+        return store.values().stream()
+                .filter(dao -> dao.modifiedAt() != null && !dao.modifiedAt().isBefore(since))
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public Set<String> loadAllIds() {
+        return ImmutableSet.copyOf(store.keySet());
+    }
+
     @Override
     public void delete(String id) {
         if (id == null) {
@@ -92,6 +133,11 @@ public class InMemoryRuleService implements RuleService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        ids.forEach(this::delete);
+    }
+
     private String createId() {
         return String.valueOf(idGen.incrementAndGet());
     }
@@ -18,13 +18,15 @@ package org.graylog.plugins.pipelineprocessor.db.mongodb;
 
 import com.google.common.collect.Sets;
 import com.mongodb.BasicDBObject;
-import com.mongodb.MongoException;
+import org.bson.types.ObjectId;
 import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
 import org.graylog.plugins.pipelineprocessor.db.PipelineService;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 import org.mongojack.DBCursor;
+import org.mongojack.DBQuery;
 import org.mongojack.DBSort;
 import org.mongojack.JacksonDBCollection;
 import org.mongojack.WriteResult;
@@ -33,7 +35,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class MongoDbPipelineService implements PipelineService {
     private static final Logger log = LoggerFactory.getLogger(MongoDbPipelineService.class);
@@ -58,6 +62,15 @@ public class MongoDbPipelineService implements PipelineService {
         return save.getSavedObject();
     }
 
+    @Override
+    public Collection<PipelineDao> saveAll(Collection<PipelineDao> pipelines) {
+        final List<PipelineDao> toSave = pipelines.stream()
+                .map(pipeline -> pipeline.id() != null ? pipeline : pipeline.toBuilder().id(new ObjectId().toHexString()).build())
+                .collect(Collectors.toList());
+        MongoDbRuleService.bulkSave(dbCollection, toSave, PipelineDao::id);
+        return toSave;
+    }
+
     @Override
     public PipelineDao load(String id) throws NotFoundException {
         final PipelineDao pipeline = dbCollection.findOneById(id);
@@ -69,17 +82,43 @@ public class MongoDbPipelineService implements PipelineService {
 
     @Override
     public Collection<PipelineDao> loadAll() {
-        try {
-            final DBCursor<PipelineDao> daos = dbCollection.find();
-            return Sets.newHashSet(daos.iterator());
-        } catch (MongoException e) {
-            log.error("Unable to load pipelines", e);
-            return Collections.emptySet();
-        }
+        final DBCursor<PipelineDao> daos = dbCollection.find();
+        return Sets.newHashSet(daos.iterator());
+    }
+
+    @Override
+    public Collection<PipelineDao> loadByIds(Collection<String> ids) {
+        final DBCursor<PipelineDao> daos = dbCollection.find(DBQuery.in("_id", MongoDbRuleService.objectIds(ids)));
+        return Sets.newHashSet(daos.iterator());
+    }
+
+    @Override
+    public Collection<PipelineDao> loadModifiedSince(DateTime since) {
+        final DBCursor<PipelineDao> daos = dbCollection.find(DBQuery.greaterThanEquals("modified_at", since.toDate()));
+        return Sets.newHashSet(daos.iterator());
+    }
+
+    @Override
+    public Set<String> loadAllIds() {
+        return MongoDbRuleService.ids(dbCollection);
     }
 
     @Override
     public void delete(String id) {
         dbCollection.removeById(id);
     }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        final WriteResult<PipelineDao, String> result = dbCollection.remove(DBQuery.in("_id", MongoDbRuleService.objectIds(ids)));
+        if (result.getN() != ids.size()) {
+            log.error("Unable to delete all pipelines {}, deleted {}", ids, result.getN());
+        }
+    }
+
+    @Override
+    public Collection<PipelineDao> loadNamed(Collection<String> pipelineNames) {
+        final DBCursor<PipelineDao> daos = dbCollection.find(DBQuery.in("title", pipelineNames));
+        return Sets.newHashSet(daos.iterator());
+    }
 }
@@ -18,7 +18,6 @@ package org.graylog.plugins.pipelineprocessor.db.mongodb;
 
 import com.google.common.collect.Sets;
 import com.mongodb.BasicDBObject;
-import com.mongodb.MongoException;
 import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
 import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
@@ -33,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 
@@ -78,13 +78,14 @@ public class MongoDbPipelineStreamConnectionsService implements PipelineStreamCo
 
     @Override
     public Set<PipelineConnections> loadAll() {
-        try {
-            final DBCursor<PipelineConnections> connections = dbCollection.find();
-            return Sets.newHashSet(connections.iterator());
-        } catch (MongoException e) {
-            log.error("Unable to load pipeline connections", e);
-            return Collections.emptySet();
-        }
+        final DBCursor<PipelineConnections> connections = dbCollection.find();
+        return Sets.newHashSet(connections.iterator());
+    }
+
+    @Override
+    public Set<PipelineConnections> loadByStreamIds(Collection<String> streamIds) {
+        final DBCursor<PipelineConnections> connections = dbCollection.find(DBQuery.in("stream_id", streamIds));
+        return Sets.newHashSet(connections.iterator());
     }
 
     @Override
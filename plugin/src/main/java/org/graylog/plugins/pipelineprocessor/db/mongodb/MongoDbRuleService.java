@@ -16,14 +16,21 @@
  */
 package org.graylog.plugins.pipelineprocessor.db.mongodb;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBObject;
 import com.mongodb.MongoException;
+import org.bson.types.ObjectId;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.RuleDao;
 import org.graylog.plugins.pipelineprocessor.db.RuleService;
 import org.graylog2.bindings.providers.MongoJackObjectMapperProvider;
 import org.graylog2.database.MongoConnection;
 import org.graylog2.database.NotFoundException;
+import org.joda.time.DateTime;
 import org.mongojack.DBCursor;
 import org.mongojack.DBQuery;
 import org.mongojack.DBSort;
@@ -35,6 +42,11 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * A RuleService backed by a MongoDB collection.
@@ -62,6 +74,15 @@ public class MongoDbRuleService implements RuleService {
         return save.getSavedObject();
     }
 
+    @Override
+    public Collection<RuleDao> saveAll(Collection<RuleDao> rules) {
+        final List<RuleDao> toSave = rules.stream()
+                .map(rule -> rule.id() != null ? rule : rule.toBuilder().id(new ObjectId().toHexString()).build())
+                .collect(Collectors.toList());
+        bulkSave(dbCollection, toSave, RuleDao::id);
+        return toSave;
+    }
+
     @Override
     public RuleDao load(String id) throws NotFoundException {
         final RuleDao rule = dbCollection.findOneById(id);
@@ -73,13 +94,25 @@ public class MongoDbRuleService implements RuleService {
 
     @Override
     public Collection<RuleDao> loadAll() {
-        try {
-            final DBCursor<RuleDao> ruleDaos = dbCollection.find();
-            return Sets.newHashSet(ruleDaos.iterator());
-        } catch (MongoException e) {
-            log.error("Unable to load processing rules", e);
-            return Collections.emptySet();
-        }
+        final DBCursor<RuleDao> ruleDaos = dbCollection.find();
+        return Sets.newHashSet(ruleDaos.iterator());
+    }
+
+    @Override
+    public Collection<RuleDao> loadByIds(Collection<String> ids) {
+        final DBCursor<RuleDao> ruleDaos = dbCollection.find(DBQuery.in("_id", objectIds(ids)));
+        return Sets.newHashSet(ruleDaos.iterator());
+    }
+
+    @Override
+    public Collection<RuleDao> loadModifiedSince(DateTime since) {
+        final DBCursor<RuleDao> ruleDaos = dbCollection.find(DBQuery.greaterThanEquals("modified_at", since.toDate()));
+        return Sets.newHashSet(ruleDaos.iterator());
+    }
+
+    @Override
+    public Set<String> loadAllIds() {
+        return ids(dbCollection);
     }
 
     @Override
@@ -90,6 +123,14 @@ public class MongoDbRuleService implements RuleService {
         }
     }
 
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        final WriteResult<RuleDao, String> result = dbCollection.remove(DBQuery.in("_id", objectIds(ids)));
+        if (result.getN() != ids.size()) {
+            log.error("Unable to delete all rules {}, deleted {}", ids, result.getN());
+        }
+    }
+
     @Override
     public Collection<RuleDao> loadNamed(Collection<String> ruleNames) {
         try {
@@ -100,4 +141,56 @@ public class MongoDbRuleService implements RuleService {
             return Collections.emptySet();
         }
     }
+
+    /**
+     * Replaces or inserts all documents, which must have an id, in one ordered bulk write.
+     *
+     * @throws BulkSaveException naming the documents written before the write failed
+     */
+    static <T> void bulkSave(JacksonDBCollection<T, String> collection, List<T> documents, Function<T, String> id) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        final BulkWriteOperation bulk = collection.getDbCollection().initializeOrderedBulkOperation();
+        for (T document : documents) {
+            bulk.find(new BasicDBObject("_id", new ObjectId(id.apply(document))))
+                    .upsert()
+                    .replaceOne(collection.convertToDbObject(document));
+        }
+        try {
+            bulk.execute();
+        } catch (BulkWriteException e) {
+            // an ordered bulk write stops at the first error, everything before it has been written
+            final Map<Integer, String> errors = Maps.newTreeMap();
+            e.getWriteErrors().forEach(error -> errors.put(error.getIndex(), error.getMessage()));
+            final int written = errors.isEmpty() ? documents.size() : Collections.min(errors.keySet());
+            if (errors.isEmpty() && e.getWriteConcernError() != null) {
+                errors.put(documents.size() - 1, e.getWriteConcernError().getMessage());
+            }
+            final List<String> savedIds = documents.subList(0, written).stream()
+                    .map(id)
+                    .collect(Collectors.toList());
+            throw new BulkSaveException(savedIds, errors, e);
+        }
+    }
+
+    /**
+     * Reads the ids of all documents, projecting away everything else.
+     */
+    static Set<String> ids(JacksonDBCollection<?, String> collection) {
+        final Set<String> ids = Sets.newHashSet();
+        try (com.mongodb.DBCursor cursor = collection.getDbCollection().find(new BasicDBObject(), new BasicDBObject("_id", 1))) {
+            for (DBObject document : cursor) {
+                ids.add(document.get("_id").toString());
+            }
+        }
+        return ids;
+    }
+
+    static List<ObjectId> objectIds(Collection<String> ids) {
+        return ids.stream()
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .collect(Collectors.toList());
+    }
 }
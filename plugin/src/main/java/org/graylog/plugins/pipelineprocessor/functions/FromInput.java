@@ -49,11 +49,11 @@ public class FromInput extends AbstractFunction<Boolean> {
 
     @Override
     public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
-        String id = idParam.optional(args, context).orElse("");
+        String id = idParam.optional(args, context, "");
 
         MessageInput input = null;
         if ("".equals(id)) {
-            final String name = nameParam.optional(args, context).orElse("");
+            final String name = nameParam.optional(args, context, "");
             for (IOState<MessageInput> messageInputIOState : inputRegistry.getInputStates()) {
                 final MessageInput messageInput = messageInputIOState.getStoppable();
                 if (messageInput.getTitle().equalsIgnoreCase(name)) {
@@ -72,7 +72,7 @@ public class FromInput extends AbstractFunction<Boolean> {
 
         }
         return input != null
-                && input.getId().equals(context.currentMessage().getSourceInputId());
+                && input.getId().equals(context.readMessage(() -> context.currentMessage().getSourceInputId()));
     }
 
     @Override
@@ -42,13 +42,19 @@ import org.graylog.plugins.pipelineprocessor.functions.dates.periods.Weeks;
 import org.graylog.plugins.pipelineprocessor.functions.dates.periods.Years;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32C;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32CLong;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.MD5;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_128;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_128Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_32;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_32Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA1;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA256;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA512;
+import org.graylog.plugins.pipelineprocessor.functions.ips.CidrLookup;
 import org.graylog.plugins.pipelineprocessor.functions.ips.CidrMatch;
+import org.graylog.plugins.pipelineprocessor.functions.ips.CidrMatchAny;
 import org.graylog.plugins.pipelineprocessor.functions.ips.IpAddressConversion;
 import org.graylog.plugins.pipelineprocessor.functions.json.JsonParse;
 import org.graylog.plugins.pipelineprocessor.functions.json.SelectJsonPath;
@@ -147,16 +153,22 @@ public class ProcessorFunctionsModule extends PluginModule {
 
         // hash digest
         addMessageProcessorFunction(CRC32.NAME, CRC32.class);
+        addMessageProcessorFunction(CRC32Long.NAME, CRC32Long.class);
         addMessageProcessorFunction(CRC32C.NAME, CRC32C.class);
+        addMessageProcessorFunction(CRC32CLong.NAME, CRC32CLong.class);
         addMessageProcessorFunction(MD5.NAME, MD5.class);
         addMessageProcessorFunction(Murmur3_32.NAME, Murmur3_32.class);
+        addMessageProcessorFunction(Murmur3_32Long.NAME, Murmur3_32Long.class);
         addMessageProcessorFunction(Murmur3_128.NAME, Murmur3_128.class);
+        addMessageProcessorFunction(Murmur3_128Long.NAME, Murmur3_128Long.class);
         addMessageProcessorFunction(SHA1.NAME, SHA1.class);
         addMessageProcessorFunction(SHA256.NAME, SHA256.class);
         addMessageProcessorFunction(SHA512.NAME, SHA512.class);
 
         // ip handling
         addMessageProcessorFunction(CidrMatch.NAME, CidrMatch.class);
+        addMessageProcessorFunction(CidrMatchAny.NAME, CidrMatchAny.class);
+        addMessageProcessorFunction(CidrLookup.NAME, CidrLookup.class);
         addMessageProcessorFunction(IpAddressConversion.NAME, IpAddressConversion.class);
 
         // null support
@@ -42,7 +42,7 @@ public class BooleanConversion extends AbstractFunction<Boolean> {
     public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
         final Object value = valueParam.required(args, context);
         if (value == null) {
-            return defaultParam.optional(args, context).orElse(false);
+            return defaultParam.optional(args, context, false);
         }
         return Boolean.parseBoolean(String.valueOf(value));
     }
@@ -45,7 +45,7 @@ public class DoubleConversion extends AbstractFunction<Double> {
     @Override
     public Double evaluate(FunctionArgs args, EvaluationContext context) {
         final Object evaluated = valueParam.required(args, context);
-        final Double defaultValue = defaultParam.optional(args, context).orElse(0d);
+        final Double defaultValue = defaultParam.optional(args, context, 0d);
         if (evaluated == null) {
             return defaultValue;
         }
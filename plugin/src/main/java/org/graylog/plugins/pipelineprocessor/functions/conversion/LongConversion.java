@@ -46,7 +46,7 @@ public class LongConversion extends AbstractFunction<Long> {
     @Override
     public Long evaluate(FunctionArgs args, EvaluationContext context) {
         final Object evaluated = valueParam.required(args, context);
-        final Long defaultValue = defaultParam.optional(args, context).orElse(0L);
+        final Long defaultValue = defaultParam.optional(args, context, 0L);
 
         return firstNonNull(tryParse(String.valueOf(evaluated)), defaultValue);
     }
@@ -60,7 +60,7 @@ public class StringConversion extends AbstractFunction<String> {
     public String evaluate(FunctionArgs args, EvaluationContext context) {
         final Object evaluated = valueParam.required(args, context);
         if (evaluated == null) {
-            return defaultParam.optional(args, context).orElse("");
+            return defaultParam.optional(args, context, "");
         }
         // fast path for the most common targets
         if (evaluated instanceof String
@@ -84,11 +84,11 @@ public class StringConversion extends AbstractFunction<String> {
                 if ((declaringClass != Object.class)) {
                     return evaluated.toString();
                 } else {
-                    return defaultParam.optional(args, context).orElse("");
+                    return defaultParam.optional(args, context, "");
                 }
             } catch (NoSuchMethodException ignored) {
                 // should never happen because toString is always there
-                return defaultParam.optional(args, context).orElse("");
+                return defaultParam.optional(args, context, "");
             }
         }
     }
@@ -0,0 +1,82 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.dates;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded cache of fully configured formatters, keyed by pattern, time zone and locale.
+ * <br>
+ * Joda only caches the formatter for a pattern, every call to {@link DateTimeFormatter#withZone(DateTimeZone)} or
+ * {@link DateTimeFormatter#withLocale(Locale)} allocates a new instance. This cache is used for call sites whose
+ * arguments are not constant, constant call sites resolve their formatter once when the rule is parsed.
+ */
+final class DateFormatterCache {
+    private static final int MAXIMUM_SIZE = 1000;
+
+    private static final LoadingCache<Key, DateTimeFormatter> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build(CacheLoader.from(DateFormatterCache::create));
+
+    private DateFormatterCache() {
+    }
+
+    static DateTimeFormatter forPattern(String pattern, DateTimeZone timezone, @Nullable Locale locale) {
+        try {
+            return CACHE.getUnchecked(Key.create(pattern, timezone, locale));
+        } catch (UncheckedExecutionException e) {
+            // invalid patterns should surface exactly like they did without the cache
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    static DateTimeFormatter create(String pattern, DateTimeZone timezone, @Nullable Locale locale) {
+        return DateTimeFormat.forPattern(pattern).withZone(timezone).withLocale(locale);
+    }
+
+    private static DateTimeFormatter create(Key key) {
+        return create(key.pattern(), key.timezone(), key.locale());
+    }
+
+    @AutoValue
+    static abstract class Key {
+        abstract String pattern();
+
+        abstract DateTimeZone timezone();
+
+        @Nullable
+        abstract Locale locale();
+
+        static Key create(String pattern, DateTimeZone timezone, @Nullable Locale locale) {
+            return new AutoValue_DateFormatterCache_Key(pattern, timezone, locale);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.dates;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+/**
+ * Hand-written parsers for a few fixed timestamp layouts which make up the vast majority of timestamps in log messages:
+ * ISO 8601 (which includes RFC 5424 syslog timestamps) and RFC 3164 syslog timestamps.
+ * <br>
+ * The parsers only accept a strict subset of what the equivalent Joda pattern accepts and produce the same result for
+ * it. Whenever they cannot handle the input they return <code>null</code> and the caller has to fall back to the
+ * general formatter, which also takes care of reporting malformed input.
+ */
+abstract class FixedLayoutDateParser {
+    // Joda uses the year 2000 for patterns which don't contain a year
+    private static final int DEFAULT_YEAR = 2000;
+    private static final int INVALID = Integer.MIN_VALUE;
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+
+    private static final FixedLayoutDateParser ISO_OFFSET = new Iso8601('T', false, true);
+    private static final FixedLayoutDateParser ISO_MILLIS_OFFSET = new Iso8601('T', true, true);
+    private static final FixedLayoutDateParser ISO_LOCAL = new Iso8601('T', false, false);
+    private static final FixedLayoutDateParser ISO_MILLIS_LOCAL = new Iso8601('T', true, false);
+    private static final FixedLayoutDateParser SPACE_LOCAL = new Iso8601(' ', false, false);
+    private static final FixedLayoutDateParser SPACE_MILLIS_LOCAL = new Iso8601(' ', true, false);
+    private static final FixedLayoutDateParser RFC_3164 = new Rfc3164();
+
+    // layouts which are unambiguous without a pattern, RFC 3164 is not among them because it lacks the year
+    private static final FixedLayoutDateParser[] COMMON_LAYOUTS = {
+            ISO_OFFSET, ISO_MILLIS_OFFSET, ISO_LOCAL, ISO_MILLIS_LOCAL, SPACE_LOCAL, SPACE_MILLIS_LOCAL
+    };
+
+    /**
+     * @param pattern the Joda pattern the parser has to be equivalent to
+     * @param locale  the locale of the formatter, <code>null</code> meaning the default locale
+     * @return the parser for the pattern or <code>null</code> if there is no hand-written parser for it
+     */
+    @Nullable
+    static FixedLayoutDateParser forPattern(String pattern, @Nullable Locale locale) {
+        switch (pattern) {
+            case "yyyy-MM-dd'T'HH:mm:ssZ":
+            case "yyyy-MM-dd'T'HH:mm:ssZZ":
+                return ISO_OFFSET;
+            case "yyyy-MM-dd'T'HH:mm:ss.SSSZ":
+            case "yyyy-MM-dd'T'HH:mm:ss.SSSZZ":
+                return ISO_MILLIS_OFFSET;
+            case "yyyy-MM-dd'T'HH:mm:ss":
+                return ISO_LOCAL;
+            case "yyyy-MM-dd'T'HH:mm:ss.SSS":
+                return ISO_MILLIS_LOCAL;
+            case "yyyy-MM-dd HH:mm:ss":
+                return SPACE_LOCAL;
+            case "yyyy-MM-dd HH:mm:ss.SSS":
+                return SPACE_MILLIS_LOCAL;
+            case "MMM dd HH:mm:ss":
+            case "MMM d HH:mm:ss":
+                // month names are locale dependent, we only know the english ones
+                final Locale effectiveLocale = locale != null ? locale : Locale.getDefault();
+                return Locale.ENGLISH.getLanguage().equals(effectiveLocale.getLanguage()) ? RFC_3164 : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Tries all layouts which don't need a pattern to be recognized, i.e. the ISO 8601 variants.
+     *
+     * @param value    the string to parse
+     * @param timezone the time zone used for local timestamps and for the resulting date
+     * @return the parsed date or <code>null</code> if the value isn't in one of the common layouts
+     */
+    @Nullable
+    static DateTime parseCommonLayout(String value, DateTimeZone timezone) {
+        for (FixedLayoutDateParser parser : COMMON_LAYOUTS) {
+            final DateTime dateTime = parser.parse(value, timezone);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param value    the string to parse
+     * @param timezone the time zone of the formatter, used for local timestamps and for the resulting date
+     * @return the parsed date or <code>null</code> if the parser cannot handle the value
+     */
+    @Nullable
+    abstract DateTime parse(String value, DateTimeZone timezone);
+
+    // yyyy-MM-dd?HH:mm:ss[.SSS][Z|+HH:mm|+HHmm]
+    private static class Iso8601 extends FixedLayoutDateParser {
+        private final char dateTimeSeparator;
+        private final boolean millis;
+        private final boolean offset;
+
+        Iso8601(char dateTimeSeparator, boolean millis, boolean offset) {
+            this.dateTimeSeparator = dateTimeSeparator;
+            this.millis = millis;
+            this.offset = offset;
+        }
+
+        @Nullable
+        @Override
+        DateTime parse(String value, DateTimeZone timezone) {
+            if (value.length() < 19
+                    || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != dateTimeSeparator
+                    || value.charAt(13) != ':' || value.charAt(16) != ':') {
+                return null;
+            }
+            final int year = digits(value, 0, 4);
+            final int month = digits(value, 5, 2);
+            final int day = digits(value, 8, 2);
+            final int hour = digits(value, 11, 2);
+            final int minute = digits(value, 14, 2);
+            final int second = digits(value, 17, 2);
+            if (year == INVALID || month == INVALID || day == INVALID
+                    || hour == INVALID || minute == INVALID || second == INVALID) {
+                return null;
+            }
+            int position = 19;
+            int millisOfSecond = 0;
+            if (millis) {
+                if (value.length() < position + 4 || value.charAt(position) != '.') {
+                    return null;
+                }
+                millisOfSecond = digits(value, position + 1, 3);
+                if (millisOfSecond == INVALID) {
+                    return null;
+                }
+                position += 4;
+            }
+            if (!offset) {
+                if (position != value.length()) {
+                    return null;
+                }
+                return localDate(year, month, day, hour, minute, second, millisOfSecond, timezone);
+            }
+            final int offsetMillis = offsetMillis(value, position);
+            if (offsetMillis == INVALID) {
+                return null;
+            }
+            try {
+                final long utcMillis = ISOChronology.getInstanceUTC()
+                        .getDateTimeMillis(year, month, day, hour, minute, second, millisOfSecond);
+                return new DateTime(utcMillis - offsetMillis, timezone);
+            } catch (IllegalArgumentException e) {
+                // field values out of range, let the general formatter report it
+                return null;
+            }
+        }
+    }
+
+    // MMM d HH:mm:ss
+    private static class Rfc3164 extends FixedLayoutDateParser {
+        @Nullable
+        @Override
+        DateTime parse(String value, DateTimeZone timezone) {
+            final int length = value.length();
+            // "Jan 1 00:00:00" or "Jan 01 00:00:00"
+            if (length != 14 && length != 15) {
+                return null;
+            }
+            final int month = month(value);
+            final int dayLength = length - 13;
+            if (month == INVALID || value.charAt(3) != ' ' || value.charAt(4 + dayLength) != ' ') {
+                return null;
+            }
+            final int day = digits(value, 4, dayLength);
+            final int timeStart = 5 + dayLength;
+            if (day == INVALID || value.charAt(timeStart + 2) != ':' || value.charAt(timeStart + 5) != ':') {
+                return null;
+            }
+            final int hour = digits(value, timeStart, 2);
+            final int minute = digits(value, timeStart + 3, 2);
+            final int second = digits(value, timeStart + 6, 2);
+            if (hour == INVALID || minute == INVALID || second == INVALID) {
+                return null;
+            }
+            return localDate(DEFAULT_YEAR, month, day, hour, minute, second, 0, timezone);
+        }
+
+        private static int month(String value) {
+            for (int i = 0; i < MONTHS.length; i++) {
+                if (value.regionMatches(true, 0, MONTHS[i], 0, 3)) {
+                    return i + 1;
+                }
+            }
+            return INVALID;
+        }
+    }
+
+    @Nullable
+    private static DateTime localDate(int year, int month, int day, int hour, int minute, int second, int millis, DateTimeZone timezone) {
+        try {
+            return new DateTime(year, month, day, hour, minute, second, millis, timezone);
+        } catch (IllegalArgumentException e) {
+            // field values out of range or local time in a DST gap, let the general formatter report it
+            return null;
+        }
+    }
+
+    private static int digits(String value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            final char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return INVALID;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    // Z, +HH:mm or +HHmm until the end of the value
+    private static int offsetMillis(String value, int position) {
+        final int remaining = value.length() - position;
+        if (remaining == 1 && value.charAt(position) == 'Z') {
+            return 0;
+        }
+        if (remaining != 5 && remaining != 6) {
+            return INVALID;
+        }
+        final char sign = value.charAt(position);
+        if (sign != '+' && sign != '-') {
+            return INVALID;
+        }
+        final int hours = digits(value, position + 1, 2);
+        int minutesStart = position + 3;
+        if (remaining == 6) {
+            if (value.charAt(minutesStart) != ':') {
+                return INVALID;
+            }
+            minutesStart++;
+        }
+        final int minutes = digits(value, minutesStart, 2);
+        if (hours == INVALID || minutes == INVALID || hours > 23 || minutes > 59) {
+            return INVALID;
+        }
+        final int offset = (hours * 60 + minutes) * 60_000;
+        return sign == '-' ? -offset : offset;
+    }
+}
@@ -17,15 +17,12 @@
 package org.graylog.plugins.pipelineprocessor.functions.dates;
 
 import com.google.common.collect.ImmutableList;
-import com.joestelmach.natty.DateGroup;
-import com.joestelmach.natty.Parser;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 
-import java.util.List;
 import java.util.Optional;
 
 public class FlexParseDate extends TimezoneAwareFunction {
@@ -45,8 +42,8 @@ public class FlexParseDate extends TimezoneAwareFunction {
     protected DateTime evaluate(FunctionArgs args, EvaluationContext context, DateTimeZone timezone) {
         final String time = valueParam.required(args, context);
 
-        final List<DateGroup> dates = new Parser(timezone.toTimeZone()).parse(time);
-        if (dates.size() == 0) {
+        final DateTime dateTime = time == null ? null : NattyDateParser.parse(time, timezone);
+        if (dateTime == null) {
             final Optional<DateTime> defaultTime = defaultParam.optional(args, context);
             if (defaultTime.isPresent()) {
                 return defaultTime.get();
@@ -54,12 +51,12 @@ public class FlexParseDate extends TimezoneAwareFunction {
             // TODO really? this should probably throw an exception of some sort to be handled in the interpreter
             return null;
         }
-        return new DateTime(dates.get(0).getDates().get(0), timezone);
+        return dateTime;
     }
 
     @Override
     protected String description() {
-        return "Parses a date string using natural language (see http://natty.joestelmach.com/)";
+        return "Parses a date string using natural language (see http://natty.joestelmach.com/), values longer than " + NattyDateParser.MAXIMUM_LENGTH + " characters are not parsed";
     }
 
     @Override
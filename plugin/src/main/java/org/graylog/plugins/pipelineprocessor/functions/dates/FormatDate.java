@@ -17,29 +17,34 @@
 package org.graylog.plugins.pipelineprocessor.functions.dates;
 
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.exceptions.PrecomputeFailure;
 import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
+import java.util.Locale;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.collect.ImmutableList.of;
 
 public class FormatDate extends AbstractFunction<String> {
 
     public static final String NAME = "format_date";
+    // not a parameter: holds the formatter for call sites with constant format, timezone and locale
+    private static final String CONSTANT_FORMATTER = "__constant_formatter";
 
     private final ParameterDescriptor<DateTime, DateTime> value;
-    private final ParameterDescriptor<String, DateTimeFormatter> format;
+    private final ParameterDescriptor<String, String> format;
     private final ParameterDescriptor<String, DateTimeZone> timeZoneParam;
+    private final ParameterDescriptor<String, Locale> localeParam;
 
     public FormatDate() {
         value = ParameterDescriptor.type("value", DateTime.class).description("The date to format").build();
-        format = ParameterDescriptor.string("format", DateTimeFormatter.class)
-                .transform(DateTimeFormat::forPattern)
+        format = ParameterDescriptor.string("format")
                 .description("The format string to use, see http://www.joda.org/joda-time/apidocs/org/joda/time/format/DateTimeFormat.html")
                 .build();
         timeZoneParam = ParameterDescriptor.string("timezone", DateTimeZone.class)
@@ -47,18 +52,49 @@ public class FormatDate extends AbstractFunction<String> {
                 .optional()
                 .description("The timezone to apply to the date, defaults to UTC")
                 .build();
+        localeParam = ParameterDescriptor.string("locale", Locale.class)
+                .transform(Locale::forLanguageTag)
+                .optional()
+                .description("The locale (IETF BCP 47 language tag) to format the date with, defaults to the system locale")
+                .build();
+    }
+
+    @Override
+    public void preprocessArgs(FunctionArgs args) {
+        super.preprocessArgs(args);
+
+        final String pattern = (String) args.getPreComputedValue(format.name());
+        if (pattern == null || !isConstantOrAbsent(args, timeZoneParam.name()) || !isConstantOrAbsent(args, localeParam.name())) {
+            return;
+        }
+        final DateTimeZone timeZone = firstNonNull((DateTimeZone) args.getPreComputedValue(timeZoneParam.name()), DateTimeZone.UTC);
+        final Locale locale = (Locale) args.getPreComputedValue(localeParam.name());
+        try {
+            args.setPreComputedValue(CONSTANT_FORMATTER, DateFormatterCache.create(pattern, timeZone, locale));
+        } catch (IllegalArgumentException e) {
+            throw new PrecomputeFailure(format.name(), e);
+        }
+    }
+
+    private static boolean isConstantOrAbsent(FunctionArgs args, String name) {
+        return !args.isPresent(name) || args.getPreComputedValue(name) != null;
     }
 
     @Override
     public String evaluate(FunctionArgs args, EvaluationContext context) {
         final DateTime dateTime = value.required(args, context);
-        final DateTimeFormatter formatter = format.required(args, context);
-        if (dateTime == null || formatter == null) {
+        final DateTimeFormatter constantFormatter = (DateTimeFormatter) args.getPreComputedValue(CONSTANT_FORMATTER);
+        if (constantFormatter != null) {
+            return dateTime == null ? null : constantFormatter.print(dateTime);
+        }
+        final String pattern = format.required(args, context);
+        if (dateTime == null || pattern == null) {
             return null;
         }
-        final DateTimeZone timeZone = timeZoneParam.optional(args, context).orElse(DateTimeZone.UTC);
+        final DateTimeZone timeZone = timeZoneParam.optional(args, context, DateTimeZone.UTC);
+        final Locale locale = localeParam.optional(args, context, null);
 
-        return formatter.withZone(timeZone).print(dateTime);
+        return DateFormatterCache.forPattern(pattern, timeZone, locale).print(dateTime);
     }
 
     @Override
@@ -66,7 +102,7 @@ public class FormatDate extends AbstractFunction<String> {
         return FunctionDescriptor.<String>builder()
                 .name(NAME)
                 .returnType(String.class)
-                .params(of(value, format, timeZoneParam))
+                .params(of(value, format, timeZoneParam, localeParam))
                 .description("Formats a date using the given format string")
                 .build();
     }
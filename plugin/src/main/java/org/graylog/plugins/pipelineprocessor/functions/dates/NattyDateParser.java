@@ -0,0 +1,137 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.dates;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.joestelmach.natty.DateGroup;
+import com.joestelmach.natty.Parser;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounds the cost of natural language date parsing.
+ * <br>
+ * Values in one of the common ISO 8601 layouts are parsed directly, without involving natty at all. Overly long
+ * values are rejected because natty scans the entire text for anything resembling a date. The results of all other
+ * values are remembered in a small LRU cache, as long as they don't depend on the current time, because the same
+ * timestamps tend to show up over and over again.
+ */
+final class NattyDateParser {
+    static final int MAXIMUM_LENGTH = 256;
+    private static final int CACHE_SIZE = 1000;
+
+    // values are parsed relative to this date as well, dates which don't depend on the current time come out the same
+    private static final Date DISTANT_REFERENCE = new Date(0L);
+
+    // the parser only holds its time zone, so instances can be shared between threads
+    private static final ConcurrentMap<DateTimeZone, Parser> PARSERS = new ConcurrentHashMap<>();
+    private static final Cache<Key, Optional<DateTime>> RESULTS = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+    // whether values of a layout, i.e. with all digits replaced, describe an absolute date, so that checking this by
+    // parsing again only happens once per layout and not for every unique timestamp
+    private static final Cache<String, Boolean> ABSOLUTE_LAYOUTS = CacheBuilder.newBuilder()
+            .maximumSize(CACHE_SIZE)
+            .build();
+
+    private NattyDateParser() {
+    }
+
+    /**
+     * @param value    the string to parse
+     * @param timezone the time zone used for the resulting date and for values which don't specify one
+     * @return the first date found in the value or <code>null</code> if there is none
+     */
+    @Nullable
+    static DateTime parse(String value, DateTimeZone timezone) {
+        final String trimmed = value.trim();
+        final DateTime commonLayout = FixedLayoutDateParser.parseCommonLayout(trimmed, timezone);
+        if (commonLayout != null) {
+            return commonLayout;
+        }
+        if (trimmed.length() > MAXIMUM_LENGTH) {
+            return null;
+        }
+
+        final Key key = Key.create(trimmed, timezone);
+        final Optional<DateTime> cached = RESULTS.getIfPresent(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        final Parser parser = PARSERS.computeIfAbsent(timezone, zone -> new Parser(zone.toTimeZone()));
+        final List<DateGroup> dates = parser.parse(trimmed);
+        if (dates.isEmpty()) {
+            RESULTS.put(key, Optional.empty());
+            return null;
+        }
+        final DateGroup dateGroup = dates.get(0);
+        final DateTime dateTime = new DateTime(dateGroup.getDates().get(0), timezone);
+        if (isAbsolute(parser, trimmed, dateGroup)) {
+            RESULTS.put(key, Optional.of(dateTime));
+        }
+        return dateTime;
+    }
+
+    private static boolean isAbsolute(Parser parser, String value, DateGroup dateGroup) {
+        if (dateGroup.isRecurring() || dateGroup.isDateInferred() || dateGroup.isTimeInferred()) {
+            return false;
+        }
+        final String layout = layout(value);
+        final Boolean absoluteLayout = ABSOLUTE_LAYOUTS.getIfPresent(layout);
+        if (absoluteLayout != null) {
+            return absoluteLayout;
+        }
+        // e.g. "tomorrow" or dates without a year yield a different date for another reference date
+        final List<DateGroup> distantDates = parser.parse(value, DISTANT_REFERENCE);
+        final boolean absolute = !distantDates.isEmpty()
+                && dateGroup.getDates().get(0).equals(distantDates.get(0).getDates().get(0));
+        ABSOLUTE_LAYOUTS.put(layout, absolute);
+        return absolute;
+    }
+
+    private static String layout(String value) {
+        final char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= '0' && chars[i] <= '9') {
+                chars[i] = '0';
+            }
+        }
+        return new String(chars);
+    }
+
+    @AutoValue
+    static abstract class Key {
+        abstract String value();
+
+        abstract DateTimeZone timezone();
+
+        static Key create(String value, DateTimeZone timezone) {
+            return new AutoValue_NattyDateParser_Key(value, timezone);
+        }
+    }
+}
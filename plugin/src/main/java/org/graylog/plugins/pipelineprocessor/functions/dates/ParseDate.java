@@ -18,24 +18,40 @@ package org.graylog.plugins.pipelineprocessor.functions.dates;
 
 import com.google.common.collect.ImmutableList;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.exceptions.PrecomputeFailure;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
-import org.joda.time.format.DateTimeFormat;
 import org.joda.time.format.DateTimeFormatter;
 
+import java.util.Locale;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.MoreObjects.firstNonNull;
+
 public class ParseDate extends TimezoneAwareFunction {
 
     public static final String NAME = "parse_date";
     public static final String VALUE = "value";
     public static final String PATTERN = "pattern";
+    public static final String LOCALE = "locale";
+    // not a parameter: holds the parser for call sites with constant pattern, timezone and locale
+    private static final String CONSTANT_PARSER = "__constant_parser";
+
     private final ParameterDescriptor<String, String> valueParam;
     private final ParameterDescriptor<String, String> patternParam;
+    private final ParameterDescriptor<String, Locale> localeParam;
 
     public ParseDate() {
         valueParam = ParameterDescriptor.string(VALUE).description("Date string to parse").build();
         patternParam = ParameterDescriptor.string(PATTERN).description("The pattern to parse the date with, see http://www.joda.org/joda-time/apidocs/org/joda/time/format/DateTimeFormat.html").build();
+        localeParam = ParameterDescriptor.string(LOCALE, Locale.class)
+                .transform(Locale::forLanguageTag)
+                .optional()
+                .description("The locale (IETF BCP 47 language tag) to parse the date with, defaults to the system locale")
+                .build();
     }
 
     @Override
@@ -51,15 +67,59 @@ public class ParseDate extends TimezoneAwareFunction {
         );
     }
 
+    @Override
+    protected ImmutableList<ParameterDescriptor<?, ?>> paramsAfterTimezone() {
+        return ImmutableList.of(localeParam);
+    }
+
+    @Override
+    public void preprocessArgs(FunctionArgs args) {
+        super.preprocessArgs(args);
+
+        final String pattern = (String) args.getPreComputedValue(PATTERN);
+        if (pattern == null || !isConstantOrAbsent(args, TIMEZONE) || !isConstantOrAbsent(args, LOCALE)) {
+            return;
+        }
+        final DateTimeZone timezone = firstNonNull((DateTimeZone) args.getPreComputedValue(TIMEZONE), DateTimeZone.UTC);
+        final Locale locale = (Locale) args.getPreComputedValue(LOCALE);
+        try {
+            args.setPreComputedValue(CONSTANT_PARSER, new ConstantParser(pattern, timezone, locale));
+        } catch (IllegalArgumentException e) {
+            throw new PrecomputeFailure(PATTERN, e);
+        }
+    }
+
+    private static boolean isConstantOrAbsent(FunctionArgs args, String name) {
+        return !args.isPresent(name) || args.getPreComputedValue(name) != null;
+    }
+
     @Override
     public DateTime evaluate(FunctionArgs args, EvaluationContext context, DateTimeZone timezone) {
         final String dateString = valueParam.required(args, context);
+        final ConstantParser constantParser = (ConstantParser) args.getPreComputedValue(CONSTANT_PARSER);
+        if (constantParser != null) {
+            return dateString == null ? null : constantParser.parse(dateString);
+        }
         final String pattern = patternParam.required(args, context);
         if (dateString == null || pattern == null) {
             return null;
         }
-        final DateTimeFormatter formatter = DateTimeFormat.forPattern(pattern).withZone(timezone);
+        final Locale locale = localeParam.optional(args, context, null);
+        final DateTimeFormatter formatter = DateFormatterCache.forPattern(pattern, timezone, locale);
 
+        return parse(dateString, timezone, formatter, FixedLayoutDateParser.forPattern(pattern, locale));
+    }
+
+    private static DateTime parse(String dateString,
+                                  DateTimeZone timezone,
+                                  DateTimeFormatter formatter,
+                                  @Nullable FixedLayoutDateParser fixedLayoutParser) {
+        if (fixedLayoutParser != null) {
+            final DateTime dateTime = fixedLayoutParser.parse(dateString, timezone);
+            if (dateTime != null) {
+                return dateTime;
+            }
+        }
         return formatter.parseDateTime(dateString);
     }
 
@@ -67,4 +127,22 @@ public class ParseDate extends TimezoneAwareFunction {
     protected String description() {
         return "Parses a date string using the given date format";
     }
+
+    private static class ConstantParser {
+        private final DateTimeZone timezone;
+        private final DateTimeFormatter formatter;
+        @Nullable
+        private final FixedLayoutDateParser fixedLayoutParser;
+
+        ConstantParser(String pattern, DateTimeZone timezone, @Nullable Locale locale) {
+            this.timezone = timezone;
+            // not using the cache, this is only resolved once per call site
+            this.formatter = DateFormatterCache.create(pattern, timezone, locale);
+            this.fixedLayoutParser = FixedLayoutDateParser.forPattern(pattern, locale);
+        }
+
+        DateTime parse(String dateString) {
+            return ParseDate.parse(dateString, timezone, formatter, fixedLayoutParser);
+        }
+    }
 }
@@ -31,7 +31,7 @@ import java.util.Locale;
 
 public abstract class TimezoneAwareFunction extends AbstractFunction<DateTime> {
 
-    private static final String TIMEZONE = "timezone";
+    protected static final String TIMEZONE = "timezone";
     private static final ImmutableMap<String, String> UPPER_ZONE_MAP = Maps.uniqueIndex(
             DateTimeZone.getAvailableIDs(),
             input -> input != null ? input.toUpperCase(Locale.ENGLISH) : "UTC");
@@ -48,7 +48,7 @@ public abstract class TimezoneAwareFunction extends AbstractFunction<DateTime> {
 
     @Override
     public DateTime evaluate(FunctionArgs args, EvaluationContext context) {
-        final DateTimeZone timezone = timeZoneParam.optional(args, context).orElse(DateTimeZone.UTC);
+        final DateTimeZone timezone = timeZoneParam.optional(args, context, DateTimeZone.UTC);
 
         return evaluate(args, context, timezone);
     }
@@ -63,6 +63,7 @@ public abstract class TimezoneAwareFunction extends AbstractFunction<DateTime> {
                 .params(ImmutableList.<ParameterDescriptor>builder()
                                 .addAll(params())
                                 .add(timeZoneParam)
+                                .addAll(paramsAfterTimezone())
                                 .build())
                 .description(description())
                 .build();
@@ -73,4 +74,14 @@ public abstract class TimezoneAwareFunction extends AbstractFunction<DateTime> {
     protected abstract String getName();
 
     protected abstract ImmutableList<ParameterDescriptor> params();
+
+    /**
+     * Parameters declared after the timezone, which keeps positional arguments of existing rules working when
+     * functions gain new optional parameters.
+     *
+     * @return the parameters following the timezone parameter
+     */
+    protected ImmutableList<ParameterDescriptor<?, ?>> paramsAfterTimezone() {
+        return ImmutableList.of();
+    }
 }
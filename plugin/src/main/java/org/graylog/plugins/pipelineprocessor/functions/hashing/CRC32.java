@@ -16,17 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import com.google.common.hash.Hashing;
-
-import java.nio.charset.StandardCharsets;
-
 public class CRC32 extends SingleArgStringFunction {
 
     public static final String NAME = "crc32";
 
     @Override
     protected String getDigest(String value) {
-        return Hashing.crc32().hashString(value, StandardCharsets.UTF_8).toString();
+        final HashingBuffer buffer = HashingBuffer.utf8(value);
+        return buffer.hexLittleEndian(Checksums.crc32(buffer.bytes(), buffer.length()), 4);
     }
 
     @Override
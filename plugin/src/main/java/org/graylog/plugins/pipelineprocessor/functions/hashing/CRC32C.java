@@ -16,17 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import com.google.common.hash.Hashing;
-
-import java.nio.charset.StandardCharsets;
-
 public class CRC32C extends SingleArgStringFunction {
 
     public static final String NAME = "crc32c";
 
     @Override
     protected String getDigest(String value) {
-        return Hashing.crc32c().hashString(value, StandardCharsets.UTF_8).toString();
+        final HashingBuffer buffer = HashingBuffer.utf8(value);
+        return buffer.hexLittleEndian(Checksums.crc32c(buffer.bytes(), buffer.length()), 4);
     }
 
     @Override
@@ -0,0 +1,57 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+import java.util.zip.CRC32;
+
+/**
+ * CRC-32 and CRC-32C checksums over byte ranges, without allocating a new checksum object for every value.
+ */
+final class Checksums {
+    private static final ThreadLocal<CRC32> CRC32_CHECKSUMS = ThreadLocal.withInitial(CRC32::new);
+    // reflected Castagnoli polynomial, as used by Hashing#crc32c()
+    private static final int CRC32C_POLYNOMIAL = 0x82f63b78;
+    private static final int[] CRC32C_TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 1) != 0 ? (crc >>> 1) ^ CRC32C_POLYNOMIAL : crc >>> 1;
+            }
+            CRC32C_TABLE[i] = crc;
+        }
+    }
+
+    private Checksums() {
+    }
+
+    static int crc32(byte[] data, int length) {
+        final CRC32 checksum = CRC32_CHECKSUMS.get();
+        checksum.reset();
+        checksum.update(data, 0, length);
+        return (int) checksum.getValue();
+    }
+
+    static int crc32c(byte[] data, int length) {
+        int crc = ~0;
+        for (int i = 0; i < length; i++) {
+            crc = CRC32C_TABLE[(crc ^ data[i]) & 0xff] ^ (crc >>> 8);
+        }
+        return ~crc;
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+/**
+ * Per-thread scratch space for the hashing functions.
+ * <br>
+ * Strings are encoded to UTF-8 directly into a reused byte array and hex strings are built in a reused char array,
+ * so hashing a value only allocates the resulting string. Very large values get temporary arrays instead, to avoid
+ * keeping them around for the lifetime of the thread.
+ */
+final class HashingBuffer {
+    private static final int MAXIMUM_RETAINED_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final ThreadLocal<HashingBuffer> BUFFERS = ThreadLocal.withInitial(HashingBuffer::new);
+
+    private byte[] retained = new byte[256];
+    private byte[] bytes = retained;
+    private int length;
+    private char[] chars = new char[128];
+    private final byte[] digest = new byte[64];
+    private final long[] longs = new long[2];
+
+    private HashingBuffer() {
+    }
+
+    /**
+     * @param value the string to encode
+     * @return the current thread's buffer, holding the UTF-8 representation of the value
+     */
+    static HashingBuffer utf8(String value) {
+        final HashingBuffer buffer = BUFFERS.get();
+        buffer.encode(value);
+        return buffer;
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    int length() {
+        return length;
+    }
+
+    // scratch space for message digests, large enough for SHA-512
+    byte[] digest() {
+        return digest;
+    }
+
+    // scratch space for hash functions producing more than one long
+    long[] longs() {
+        return longs;
+    }
+
+    String hex(byte[] source, int count) {
+        final char[] hex = charBuffer(count * 2);
+        for (int i = 0; i < count; i++) {
+            hex[2 * i] = HEX_DIGITS[(source[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[source[i] & 0xf];
+        }
+        return new String(hex, 0, count * 2);
+    }
+
+    // hex representation of the lowest byteCount bytes of the value, least significant byte first
+    String hexLittleEndian(long value, int byteCount) {
+        final char[] hex = charBuffer(byteCount * 2);
+        appendHexLittleEndian(hex, 0, value, byteCount);
+        return new String(hex, 0, byteCount * 2);
+    }
+
+    String hexLittleEndian(long first, long second) {
+        final char[] hex = charBuffer(32);
+        appendHexLittleEndian(hex, 0, first, 8);
+        appendHexLittleEndian(hex, 16, second, 8);
+        return new String(hex, 0, 32);
+    }
+
+    private static void appendHexLittleEndian(char[] hex, int offset, long value, int byteCount) {
+        for (int i = 0; i < byteCount; i++) {
+            final int b = (int) (value >>> (8 * i)) & 0xff;
+            hex[offset + 2 * i] = HEX_DIGITS[b >> 4];
+            hex[offset + 2 * i + 1] = HEX_DIGITS[b & 0xf];
+        }
+    }
+
+    private char[] charBuffer(int size) {
+        if (size <= chars.length) {
+            return chars;
+        }
+        final char[] buffer = new char[size];
+        if (size <= MAXIMUM_RETAINED_SIZE) {
+            chars = buffer;
+        }
+        return buffer;
+    }
+
+    // same result as String#getBytes(UTF_8), including the replacement of unpaired surrogates with '?'
+    private void encode(String value) {
+        final int charCount = value.length();
+        byte[] buffer = retained;
+        if (charCount * 3 > buffer.length) {
+            buffer = new byte[charCount * 3];
+            if (buffer.length <= MAXIMUM_RETAINED_SIZE) {
+                retained = buffer;
+            }
+        }
+        int position = 0;
+        for (int i = 0; i < charCount; i++) {
+            final char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < charCount && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else {
+                    buffer[position++] = '?';
+                }
+            } else {
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        bytes = buffer;
+        length = position;
+    }
+}
@@ -16,15 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
 
-public class MD5 extends SingleArgStringFunction {
+public class MD5 extends MessageDigestFunction {
 
     public static final String NAME = "md5";
 
-    @Override
-    protected String getDigest(String value) {
-        return DigestUtils.md5Hex(value);
+    public MD5() {
+        super(MessageDigestAlgorithms.MD5);
     }
 
     @Override
@@ -0,0 +1,46 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+abstract class MessageDigestFunction extends SingleArgStringFunction {
+
+    // MessageDigest instances are not thread safe, but expensive enough to create to warrant reusing them
+    private final ThreadLocal<MessageDigest> digests;
+
+    MessageDigestFunction(String algorithm) {
+        digests = ThreadLocal.withInitial(() -> DigestUtils.getDigest(algorithm));
+    }
+
+    @Override
+    protected String getDigest(String value) {
+        final HashingBuffer buffer = HashingBuffer.utf8(value);
+        final MessageDigest digest = digests.get();
+        digest.update(buffer.bytes(), 0, buffer.length());
+        try {
+            final int length = digest.digest(buffer.digest(), 0, buffer.digest().length);
+            return buffer.hex(buffer.digest(), length);
+        } catch (DigestException e) {
+            digest.reset();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+/**
+ * Allocation free implementation of MurmurHash3 (x86 32 bit and x64 128 bit variants, seed 0), producing the same
+ * values as {@link com.google.common.hash.Hashing#murmur3_32()} and {@link com.google.common.hash.Hashing#murmur3_128()}.
+ */
+final class Murmur3 {
+    private static final int C1_32 = 0xcc9e2d51;
+    private static final int C2_32 = 0x1b873593;
+    private static final long C1_128 = 0x87c37b91114253d5L;
+    private static final long C2_128 = 0x4cf5ad432745937fL;
+
+    private Murmur3() {
+    }
+
+    static int hash32(byte[] data, int length) {
+        int h1 = 0;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            h1 ^= mixK1(getIntLittleEndian(data, i));
+            h1 = Integer.rotateLeft(h1, 13);
+            h1 = h1 * 5 + 0xe6546b64;
+        }
+        int k1 = 0;
+        for (int shift = 0; i < length; i++, shift += 8) {
+            k1 ^= (data[i] & 0xff) << shift;
+        }
+        h1 ^= mixK1(k1);
+
+        h1 ^= length;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    /**
+     * @param data   the bytes to hash
+     * @param length the number of bytes to hash
+     * @param result receives the two halves of the hash, the first one being what {@link com.google.common.hash.HashCode#asLong()} returns
+     */
+    static void hash128(byte[] data, int length, long[] result) {
+        long h1 = 0;
+        long h2 = 0;
+        int i = 0;
+        for (; i + 16 <= length; i += 16) {
+            h1 ^= mixK1(getLongLittleEndian(data, i, 8));
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(getLongLittleEndian(data, i + 8, 8));
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        final int remaining = length - i;
+        if (remaining > 0) {
+            h1 ^= mixK1(getLongLittleEndian(data, i, Math.min(remaining, 8)));
+            if (remaining > 8) {
+                h2 ^= mixK2(getLongLittleEndian(data, i + 8, remaining - 8));
+            }
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        result[0] = h1;
+        result[1] = h2;
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= C1_32;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= C2_32;
+        return k1;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1_128;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2_128;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2_128;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1_128;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static int getIntLittleEndian(byte[] data, int offset) {
+        return (data[offset] & 0xff)
+                | (data[offset + 1] & 0xff) << 8
+                | (data[offset + 2] & 0xff) << 16
+                | (data[offset + 3] & 0xff) << 24;
+    }
+
+    private static long getLongLittleEndian(byte[] data, int offset, int count) {
+        long result = 0;
+        for (int i = 0; i < count; i++) {
+            result |= (data[offset + i] & 0xffL) << (8 * i);
+        }
+        return result;
+    }
+}
@@ -16,17 +16,16 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import com.google.common.hash.Hashing;
-
-import java.nio.charset.StandardCharsets;
-
 public class Murmur3_128 extends SingleArgStringFunction {
 
     public static final String NAME = "murmur3_128";
 
     @Override
     protected String getDigest(String value) {
-        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).toString();
+        final HashingBuffer buffer = HashingBuffer.utf8(value);
+        final long[] hash = buffer.longs();
+        Murmur3.hash128(buffer.bytes(), buffer.length(), hash);
+        return buffer.hexLittleEndian(hash[0], hash[1]);
     }
 
     @Override
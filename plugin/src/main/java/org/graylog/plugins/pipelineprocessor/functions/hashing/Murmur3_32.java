@@ -16,17 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import com.google.common.hash.Hashing;
-
-import java.nio.charset.StandardCharsets;
-
 public class Murmur3_32 extends SingleArgStringFunction {
 
     public static final String NAME = "murmur3_32";
 
     @Override
     protected String getDigest(String value) {
-        return Hashing.murmur3_32().hashString(value, StandardCharsets.UTF_8).toString();
+        final HashingBuffer buffer = HashingBuffer.utf8(value);
+        return buffer.hexLittleEndian(Murmur3.hash32(buffer.bytes(), buffer.length()), 4);
     }
 
     @Override
@@ -0,0 +1,32 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+public class Murmur3_32Long extends SingleArgLongFunction {
+
+    public static final String NAME = "murmur3_32_long";
+
+    @Override
+    protected long getHash(HashingBuffer utf8) {
+        return Integer.toUnsignedLong(Murmur3.hash32(utf8.bytes(), utf8.length()));
+    }
+
+    @Override
+    protected String getName() {
+        return NAME;
+    }
+}
@@ -16,15 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
 
-public class SHA1 extends SingleArgStringFunction {
+public class SHA1 extends MessageDigestFunction {
 
     public static final String NAME = "sha1";
 
-    @Override
-    protected String getDigest(String value) {
-        return DigestUtils.sha1Hex(value);
+    public SHA1() {
+        super(MessageDigestAlgorithms.SHA_1);
     }
 
     @Override
@@ -16,15 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
 
-public class SHA256 extends SingleArgStringFunction {
+public class SHA256 extends MessageDigestFunction {
 
     public static final String NAME = "sha256";
 
-    @Override
-    protected String getDigest(String value) {
-        return DigestUtils.sha256Hex(value);
+    public SHA256() {
+        super(MessageDigestAlgorithms.SHA_256);
     }
 
     @Override
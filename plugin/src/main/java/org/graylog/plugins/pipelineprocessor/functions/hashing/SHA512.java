@@ -16,15 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.hashing;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.digest.MessageDigestAlgorithms;
 
-public class SHA512 extends SingleArgStringFunction {
+public class SHA512 extends MessageDigestFunction {
 
     public static final String NAME = "sha512";
 
-    @Override
-    protected String getDigest(String value) {
-        return DigestUtils.sha512Hex(value);
+    public SHA512() {
+        super(MessageDigestAlgorithms.SHA_512);
     }
 
     @Override
@@ -0,0 +1,69 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
+
+import java.util.Locale;
+
+import static com.google.common.collect.ImmutableList.of;
+
+/**
+ * Hash functions returning the raw hash value as a number, which is cheaper than a hex string when rules only need
+ * to bucket or sample messages.
+ */
+abstract class SingleArgLongFunction extends AbstractFunction<Long> {
+
+    private final ParameterDescriptor<String, String> valueParam;
+
+    SingleArgLongFunction() {
+        valueParam = ParameterDescriptor.string("value").description("The value to hash").build();
+    }
+
+    @Override
+    public Long evaluate(FunctionArgs args, EvaluationContext context) {
+        final String value = valueParam.required(args, context);
+        if (value == null) {
+            return null;
+        }
+        return getHash(HashingBuffer.utf8(value));
+    }
+
+    protected abstract long getHash(HashingBuffer utf8);
+
+    protected abstract String getName();
+
+    protected String description() {
+        return getName().toUpperCase(Locale.ENGLISH) + " hash of the string as number";
+    }
+
+    @Override
+    public FunctionDescriptor<Long> descriptor() {
+        return FunctionDescriptor.<Long>builder()
+                .name(getName())
+                .returnType(Long.class)
+                .params(of(
+                        valueParam)
+                )
+                .description(description())
+                .build();
+    }
+}
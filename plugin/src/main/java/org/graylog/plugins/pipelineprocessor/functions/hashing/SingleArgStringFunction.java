@@ -37,6 +37,9 @@ abstract class SingleArgStringFunction extends AbstractFunction<String> {
     @Override
     public String evaluate(FunctionArgs args, EvaluationContext context) {
         final String value = valueParam.required(args, context);
+        if (value == null) {
+            return null;
+        }
         return getDigest(value);
     }
 
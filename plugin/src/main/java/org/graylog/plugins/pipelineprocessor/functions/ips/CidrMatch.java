@@ -16,12 +16,14 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.ips;
 
+import com.google.common.net.InetAddresses;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.jboss.netty.handler.ipfilter.CIDR;
+import org.jboss.netty.handler.ipfilter.CIDR4;
 
 import java.net.UnknownHostException;
 
@@ -32,14 +34,14 @@ public class CidrMatch extends AbstractFunction<Boolean> {
     public static final String NAME = "cidr_match";
     public static final String IP = "ip";
 
-    private final ParameterDescriptor<String, CIDR> cidrParam;
+    private final ParameterDescriptor<String, Cidr> cidrParam;
     private final ParameterDescriptor<IpAddress, IpAddress> ipParam;
 
     public CidrMatch() {
         // a little ugly because newCIDR throws a checked exception :(
-        cidrParam = ParameterDescriptor.string("cidr", CIDR.class).transform(cidrString -> {
+        cidrParam = ParameterDescriptor.string("cidr", Cidr.class).transform(cidrString -> {
             try {
-                return CIDR.newCIDR(cidrString);
+                return new Cidr(CIDR.newCIDR(cidrString));
             } catch (UnknownHostException e) {
                 throw new IllegalArgumentException(e);
             }
@@ -49,12 +51,12 @@ public class CidrMatch extends AbstractFunction<Boolean> {
 
     @Override
     public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
-        final CIDR cidr = cidrParam.required(args, context);
+        final Cidr cidr = cidrParam.required(args, context);
         final IpAddress ipAddress = ipParam.required(args, context);
         if (cidr == null || ipAddress == null) {
             return null;
         }
-        return cidr.contains(ipAddress.inetAddress());
+        return cidr.contains(ipAddress);
     }
 
     @Override
@@ -68,4 +70,33 @@ public class CidrMatch extends AbstractFunction<Boolean> {
                 .description("Checks if an IP address matches a CIDR subnet mask")
                 .build();
     }
+
+    /**
+     * Matches IPv4 addresses against IPv4 subnets on their primitive form, everything else is left to {@link CIDR}.
+     */
+    private static class Cidr {
+        private final CIDR cidr;
+        private final boolean ipv4;
+        private final int network;
+        private final int netmask;
+
+        Cidr(CIDR cidr) {
+            this.cidr = cidr;
+            this.ipv4 = cidr instanceof CIDR4;
+            this.netmask = ipv4 && cidr.getMask() > 0 ? -1 << (32 - cidr.getMask()) : 0;
+            this.network = ipv4 ? InetAddresses.coerceToInteger(cidr.getBaseAddress()) & netmask : 0;
+        }
+
+        boolean contains(IpAddress ipAddress) {
+            if (ipv4 && ipAddress.isIpv4()) {
+                return (ipAddress.ipv4Address() & netmask) == network;
+            }
+            return cidr.contains(ipAddress.inetAddress());
+        }
+
+        @Override
+        public String toString() {
+            return cidr.toString();
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
+
+import static com.google.common.collect.ImmutableList.of;
+
+public class CidrMatchAny extends AbstractFunction<Boolean> {
+
+    public static final String NAME = "cidr_match_any";
+    public static final String CIDRS = "cidrs";
+    public static final String IP = "ip";
+
+    private final ParameterDescriptor<Object, CidrTrie> cidrsParam;
+    private final ParameterDescriptor<IpAddress, IpAddress> ipParam;
+
+    public CidrMatchAny() {
+        cidrsParam = ParameterDescriptor.object(CIDRS, CidrTrie.class)
+                .transform(CidrTrieCache::forSubnets)
+                .description("The CIDR subnet masks, either a list or a map of tags to subnet masks")
+                .build();
+        ipParam = ParameterDescriptor.type(IP, IpAddress.class).description("The parsed IP address to match against the CIDR masks").build();
+    }
+
+    @Override
+    public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
+        final CidrTrie cidrs = cidrsParam.required(args, context);
+        final IpAddress ipAddress = ipParam.required(args, context);
+        if (cidrs == null || ipAddress == null) {
+            return null;
+        }
+        return cidrs.contains(ipAddress);
+    }
+
+    @Override
+    public FunctionDescriptor<Boolean> descriptor() {
+        return FunctionDescriptor.<Boolean>builder()
+                .name(NAME)
+                .returnType(Boolean.class)
+                .params(of(
+                        cidrsParam,
+                        ipParam))
+                .description("Checks if an IP address matches any of the given CIDR subnet masks")
+                .build();
+    }
+}
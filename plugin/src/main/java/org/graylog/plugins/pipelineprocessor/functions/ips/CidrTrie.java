@@ -0,0 +1,176 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Binary radix trie of CIDR subnets, answering which subnet an IP address belongs to in at most 32 (IPv4) or
+ * 128 (IPv6) steps, regardless of the number of subnets.
+ * <br>
+ * Each subnet carries a tag, which is returned for addresses it contains. If multiple subnets contain an address, the
+ * most specific one wins.
+ */
+public class CidrTrie {
+
+    private final Node ipv4Root = new Node();
+    private final Node ipv6Root = new Node();
+
+    private CidrTrie() {
+    }
+
+    /**
+     * Builds a trie from the subnet argument of a rule function.
+     * <br>
+     * Accepted are a single subnet, a list of subnets tagged with their own string representation, or a map of tags
+     * to either a single subnet or a list of subnets. Plain IP addresses are treated as subnets containing only that
+     * address.
+     *
+     * @param subnets the subnets to add
+     * @return the compiled trie
+     * @throws IllegalArgumentException if a subnet is malformed
+     */
+    public static CidrTrie fromObject(Object subnets) {
+        final CidrTrie trie = new CidrTrie();
+        if (subnets instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) subnets).entrySet()) {
+                final String tag = String.valueOf(entry.getKey());
+                for (Object subnet : asCollection(entry.getValue())) {
+                    trie.add(String.valueOf(subnet), tag);
+                }
+            }
+        } else {
+            for (Object subnet : asCollection(subnets)) {
+                final String cidr = String.valueOf(subnet);
+                trie.add(cidr, cidr);
+            }
+        }
+        return trie;
+    }
+
+    private static Collection<?> asCollection(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        }
+        if (value instanceof String) {
+            return Collections.singleton(value);
+        }
+        throw new IllegalArgumentException("Expected a subnet or a list of subnets, got " + value);
+    }
+
+    private void add(String cidr, String tag) {
+        final int slash = cidr.indexOf('/');
+        final String addressString = slash == -1 ? cidr.trim() : cidr.substring(0, slash).trim();
+        final InetAddress address = InetAddresses.forString(addressString);
+        final byte[] bytes = address.getAddress();
+        final int maxPrefixLength = bytes.length * 8;
+        final int prefixLength;
+        if (slash == -1) {
+            prefixLength = maxPrefixLength;
+        } else {
+            try {
+                prefixLength = Integer.parseInt(cidr.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix length in subnet " + cidr, e);
+            }
+        }
+        if (prefixLength < 0 || prefixLength > maxPrefixLength) {
+            throw new IllegalArgumentException("Invalid prefix length in subnet " + cidr);
+        }
+
+        Node node = address instanceof Inet4Address ? ipv4Root : ipv6Root;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            if (isSet(bytes, bit)) {
+                if (node.one == null) {
+                    node.one = new Node();
+                }
+                node = node.one;
+            } else {
+                if (node.zero == null) {
+                    node.zero = new Node();
+                }
+                node = node.zero;
+            }
+        }
+        // the first definition of a subnet wins
+        if (node.tag == null) {
+            node.tag = tag;
+        }
+    }
+
+    /**
+     * @param address the address to look up
+     * @return the tag of the most specific subnet containing the address or <code>null</code> if there is none
+     */
+    @Nullable
+    public String lookup(IpAddress address) {
+        if (address.isIpv4()) {
+            return lookupIpv4(address.ipv4Address());
+        }
+        final byte[] bytes = address.inetAddress().getAddress();
+        Node node = bytes.length == 4 ? ipv4Root : ipv6Root;
+        String tag = node.tag;
+        for (int bit = 0; bit < bytes.length * 8; bit++) {
+            node = isSet(bytes, bit) ? node.one : node.zero;
+            if (node == null) {
+                break;
+            }
+            if (node.tag != null) {
+                tag = node.tag;
+            }
+        }
+        return tag;
+    }
+
+    @Nullable
+    private String lookupIpv4(int address) {
+        Node node = ipv4Root;
+        String tag = node.tag;
+        for (int bit = 0; bit < 32; bit++) {
+            node = (address << bit) < 0 ? node.one : node.zero;
+            if (node == null) {
+                break;
+            }
+            if (node.tag != null) {
+                tag = node.tag;
+            }
+        }
+        return tag;
+    }
+
+    public boolean contains(IpAddress address) {
+        return lookup(address) != null;
+    }
+
+    private static boolean isSet(byte[] bytes, int bit) {
+        return (bytes[bit >>> 3] & (0x80 >>> (bit & 7))) != 0;
+    }
+
+    private static class Node {
+        private Node zero;
+        private Node one;
+        private String tag;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded cache of compiled subnet tries, keyed by the subnet argument they were built from.
+ * <br>
+ * Call sites with a constant subnet argument compile their trie once when the rule is parsed, but subnets taken from
+ * message fields or variables are transformed on every call. Those usually name the same few subnets over and over
+ * again, so building the trie again would dominate the lookup itself.
+ */
+final class CidrTrieCache {
+    private static final int MAXIMUM_SIZE = 100;
+
+    private static final Cache<Object, CidrTrie> CACHE = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .build();
+
+    private CidrTrieCache() {
+    }
+
+    /**
+     * @param subnets the subnet argument, see {@link CidrTrie#fromObject(Object)}
+     * @return the trie of the given subnets, or null if there are none, e.g. because they come from a missing field
+     * @throws IllegalArgumentException if a subnet is malformed
+     */
+    @Nullable
+    static CidrTrie forSubnets(@Nullable Object subnets) {
+        if (subnets == null) {
+            return null;
+        }
+        final CidrTrie cached = CACHE.getIfPresent(subnets);
+        if (cached != null) {
+            return cached;
+        }
+        final CidrTrie trie = CidrTrie.fromObject(subnets);
+        CACHE.put(copyOf(subnets), trie);
+        return trie;
+    }
+
+    // the argument could be changed later on, e.g. if it is the value of a message field
+    private static Object copyOf(Object subnets) {
+        if (subnets instanceof Map) {
+            final Map<Object, Object> copy = new HashMap<>();
+            ((Map<?, ?>) subnets).forEach((tag, value) -> copy.put(tag, copyOf(value)));
+            return copy;
+        }
+        if (subnets instanceof Set) {
+            return new HashSet<>((Set<?>) subnets);
+        }
+        if (subnets instanceof Collection) {
+            return new ArrayList<>((Collection<?>) subnets);
+        }
+        return subnets;
+    }
+}
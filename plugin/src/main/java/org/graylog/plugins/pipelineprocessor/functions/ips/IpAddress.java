@@ -18,6 +18,7 @@ package org.graylog.plugins.pipelineprocessor.functions.ips;
 
 import com.google.common.net.InetAddresses;
 
+import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Objects;
@@ -28,27 +29,60 @@ import java.util.Objects;
  * The purpose of this class is to guard against accidentally accessing properties which can trigger name resolutions
  * and to provide a known interface to deal with IP addresses.
  * <br>
- * Almost all of the logic is in the actual {@link InetAddress} delegate object.
+ * Almost all of the logic is in the actual {@link InetAddress} delegate object. IPv4 addresses are kept as a primitive
+ * <code>int</code>, the delegate is only created once it is needed.
  */
 public class IpAddress {
 
-    private InetAddress address;
+    private final boolean ipv4;
+    private final int ipv4Address;
+    private volatile InetAddress address;
 
     public IpAddress(InetAddress address) {
         this.address = address;
+        this.ipv4 = address instanceof Inet4Address;
+        this.ipv4Address = ipv4 ? InetAddresses.coerceToInteger(address) : 0;
+    }
+
+    private IpAddress(int ipv4Address) {
+        this.ipv4 = true;
+        this.ipv4Address = ipv4Address;
+    }
+
+    static IpAddress fromIpv4(int ipv4Address) {
+        return new IpAddress(ipv4Address);
+    }
+
+    boolean isIpv4() {
+        return ipv4;
+    }
+
+    int ipv4Address() {
+        return ipv4Address;
     }
 
     public InetAddress inetAddress() {
-        return address;
+        InetAddress inetAddress = address;
+        if (inetAddress == null) {
+            inetAddress = InetAddresses.fromInteger(ipv4Address);
+            address = inetAddress;
+        }
+        return inetAddress;
     }
 
     @Override
     public String toString() {
+        if (ipv4) {
+            return (ipv4Address >>> 24) + "." + (ipv4Address >>> 16 & 0xff) + "." + (ipv4Address >>> 8 & 0xff) + "." + (ipv4Address & 0xff);
+        }
         return InetAddresses.toAddrString(address);
     }
 
     @SuppressWarnings("unused")
     public IpAddress getAnonymized() {
+        if (ipv4) {
+            return fromIpv4(ipv4Address & 0xffffff00);
+        }
         final byte[] address = this.address.getAddress();
         address[address.length-1] = 0x00;
         try {
@@ -64,11 +98,14 @@ public class IpAddress {
         if (this == o) return true;
         if (!(o instanceof IpAddress)) return false;
         IpAddress ipAddress = (IpAddress) o;
+        if (ipv4 || ipAddress.ipv4) {
+            return ipv4 == ipAddress.ipv4 && ipv4Address == ipAddress.ipv4Address;
+        }
         return Objects.equals(address, ipAddress.address);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(address);
+        return ipv4 ? Integer.hashCode(ipv4Address) : Objects.hash(address);
     }
 }
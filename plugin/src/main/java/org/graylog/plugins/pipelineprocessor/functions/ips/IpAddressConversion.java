@@ -16,15 +16,12 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.ips;
 
-import com.google.common.net.InetAddresses;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 
-import java.net.InetAddress;
-import java.util.IllegalFormatException;
 import java.util.Optional;
 
 import static com.google.common.collect.ImmutableList.of;
@@ -32,7 +29,7 @@ import static com.google.common.collect.ImmutableList.of;
 public class IpAddressConversion extends AbstractFunction<IpAddress> {
 
     public static final String NAME = "to_ip";
-    private static final InetAddress ANYV4 = InetAddresses.forString("0.0.0.0");
+    private static final IpAddress ANYV4 = IpAddress.fromIpv4(0);
 
     private final ParameterDescriptor<Object, Object> ipParam;
     private final ParameterDescriptor<String, String> defaultParam;
@@ -46,21 +43,20 @@ public class IpAddressConversion extends AbstractFunction<IpAddress> {
     public IpAddress evaluate(FunctionArgs args, EvaluationContext context) {
         final String ipString = String.valueOf(ipParam.required(args, context));
 
-        try {
-            final InetAddress inetAddress = InetAddresses.forString(ipString);
-            return new IpAddress(inetAddress);
-        } catch (IllegalArgumentException e) {
-            final Optional<String> defaultValue = defaultParam.optional(args, context);
-            if (!defaultValue.isPresent()) {
-                return new IpAddress(ANYV4);
-            }
-            try {
-                return new IpAddress(InetAddresses.forString(defaultValue.get()));
-            } catch (IllegalFormatException e1) {
-                log.warn("Parameter `default` for to_ip() is not a valid IP address: {}", defaultValue.get());
-                throw e1;
-            }
+        final IpAddress ipAddress = IpAddressParser.parse(ipString);
+        if (ipAddress != null) {
+            return ipAddress;
         }
+        final Optional<String> defaultValue = defaultParam.optional(args, context);
+        if (!defaultValue.isPresent()) {
+            return ANYV4;
+        }
+        final IpAddress defaultAddress = IpAddressParser.parse(defaultValue.get());
+        if (defaultAddress == null) {
+            log.warn("Parameter `default` for to_ip() is not a valid IP address: {}", defaultValue.get());
+            throw new IllegalArgumentException("Parameter `default` for to_ip() is not a valid IP address: " + defaultValue.get());
+        }
+        return defaultAddress;
     }
 
     @Override
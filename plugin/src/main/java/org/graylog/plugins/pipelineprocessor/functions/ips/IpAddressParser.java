@@ -0,0 +1,166 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import javax.annotation.Nullable;
+
+/**
+ * Parses IP address literals without throwing exceptions for malformed input.
+ * <br>
+ * Accepts the same syntax as {@link com.google.common.net.InetAddresses#forString(String)}: dotted quad IPv4
+ * addresses without leading zeroes, and IPv6 addresses with optional zero compression and an optional embedded IPv4
+ * address. IPv4 addresses are kept in their primitive form, no {@link InetAddress} is created for them.
+ */
+final class IpAddressParser {
+    private static final int INVALID = -1;
+
+    private IpAddressParser() {
+    }
+
+    /**
+     * @param value the IP address literal
+     * @return the parsed address or <code>null</code> if the value is not a valid IP address literal
+     */
+    @Nullable
+    static IpAddress parse(String value) {
+        if (value.indexOf(':') == -1) {
+            final long ipv4 = parseIpv4(value, 0, value.length());
+            return ipv4 == INVALID ? null : IpAddress.fromIpv4((int) ipv4);
+        }
+        final byte[] ipv6 = parseIpv6(value);
+        if (ipv6 == null) {
+            return null;
+        }
+        try {
+            // IPv4 mapped addresses are turned into Inet4Address instances, just like Guava does
+            return new IpAddress(InetAddress.getByAddress(ipv6));
+        } catch (UnknownHostException e) {
+            // cannot happen, the address has the correct length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // returns the address as unsigned value, or INVALID
+    private static long parseIpv4(String value, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int position = start;
+        while (position <= end) {
+            int octetEnd = position;
+            while (octetEnd < end && value.charAt(octetEnd) != '.') {
+                octetEnd++;
+            }
+            final int length = octetEnd - position;
+            // leading zeroes are ambiguous, they could mean octal
+            if (length == 0 || length > 3 || (length > 1 && value.charAt(position) == '0') || octets == 4) {
+                return INVALID;
+            }
+            int octet = 0;
+            for (int i = position; i < octetEnd; i++) {
+                final char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return INVALID;
+                }
+                octet = octet * 10 + (c - '0');
+            }
+            if (octet > 255) {
+                return INVALID;
+            }
+            address = address << 8 | octet;
+            octets++;
+            position = octetEnd + 1;
+        }
+        return octets == 4 ? address : INVALID;
+    }
+
+    @Nullable
+    private static byte[] parseIpv6(String value) {
+        final int length = value.length();
+        final int[] hextets = new int[8];
+        int count = 0;
+        int compressedAt = -1;
+        int position = 0;
+        if (value.startsWith("::")) {
+            compressedAt = 0;
+            position = 2;
+        } else if (length > 0 && value.charAt(0) == ':') {
+            return null;
+        }
+        while (position < length) {
+            if (count == 8) {
+                return null;
+            }
+            final int start = position;
+            int hextet = 0;
+            while (position < length && position - start < 5) {
+                final int digit = Character.digit(value.charAt(position), 16);
+                if (digit == -1) {
+                    break;
+                }
+                hextet = hextet << 4 | digit;
+                position++;
+            }
+            if (position < length && value.charAt(position) == '.') {
+                // embedded IPv4 address, has to be the last part
+                final long ipv4 = parseIpv4(value, start, length);
+                if (ipv4 == INVALID || count > 6) {
+                    return null;
+                }
+                hextets[count++] = (int) (ipv4 >>> 16);
+                hextets[count++] = (int) (ipv4 & 0xffff);
+                position = length;
+                break;
+            }
+            final int digits = position - start;
+            if (digits == 0 || digits > 4) {
+                return null;
+            }
+            hextets[count++] = hextet;
+            if (position == length) {
+                break;
+            }
+            if (value.charAt(position) != ':') {
+                return null;
+            }
+            position++;
+            if (position < length && value.charAt(position) == ':') {
+                if (compressedAt != -1) {
+                    return null;
+                }
+                compressedAt = count;
+                position++;
+            } else if (position == length) {
+                return null;
+            }
+        }
+        if (compressedAt == -1 ? count != 8 : count > 7) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[16];
+        final int skipped = 8 - count;
+        for (int i = 0; i < count; i++) {
+            final int index = compressedAt != -1 && i >= compressedAt ? i + skipped : i;
+            bytes[2 * index] = (byte) (hextets[i] >>> 8);
+            bytes[2 * index + 1] = (byte) hextets[i];
+        }
+        return bytes;
+    }
+}
@@ -24,6 +24,8 @@ import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 import org.graylog2.plugin.Message;
 
+import java.util.Map;
+
 import static org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor.type;
 
 public class CloneMessage extends AbstractFunction<Message> {
@@ -37,10 +39,17 @@ public class CloneMessage extends AbstractFunction<Message> {
 
     @Override
     public Message evaluate(FunctionArgs args, EvaluationContext context) {
-        final Message currentMessage = messageParam.optional(args, context).orElse(context.currentMessage());
-        final Message clonedMessage = new Message(currentMessage.getMessage(), currentMessage.getSource(), currentMessage.getTimestamp());
-        clonedMessage.addFields(currentMessage.getFields());
-        clonedMessage.addStreams(currentMessage.getStreams());
+        final Message currentMessage = messageParam.optional(args, context, context.currentMessage());
+        final Message clonedMessage = context.readMessage(() -> {
+            final Message clone = new Message(currentMessage.getMessage(), currentMessage.getSource(), currentMessage.getTimestamp());
+            // Message#getFields() returns an immutable copy of all fields, iterate over the live entries instead to
+            // only copy the fields once into the cloned message
+            for (Map.Entry<String, Object> field : currentMessage.getFieldsEntries()) {
+                clone.addField(field.getKey(), field.getValue());
+            }
+            clone.addStreams(currentMessage.getStreams());
+            return clone;
+        });
 
         // register in context so the processor can inject it later on
         context.addCreatedMessage(clonedMessage);
@@ -51,10 +51,14 @@ public class CreateMessage extends AbstractFunction<Message> {
     @Override
     public Message evaluate(FunctionArgs args, EvaluationContext context) {
         final Optional<String> optMessage = messageParam.optional(args, context);
-        final String message = optMessage.isPresent() ? optMessage.get() : context.currentMessage().getMessage();
+        final String message = optMessage.isPresent()
+                ? optMessage.get()
+                : context.readMessage(() -> context.currentMessage().getMessage());
 
         final Optional<String> optSource = sourceParam.optional(args, context);
-        final String source = optSource.isPresent() ? optSource.get() : context.currentMessage().getSource();
+        final String source = optSource.isPresent()
+                ? optSource.get()
+                : context.readMessage(() -> context.currentMessage().getSource());
 
         final Optional<DateTime> optTimestamp = timestampParam.optional(args, context);
         final DateTime timestamp = optTimestamp.isPresent() ? optTimestamp.get() : Tools.nowUTC();
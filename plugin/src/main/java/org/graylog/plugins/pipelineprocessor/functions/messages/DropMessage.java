@@ -38,8 +38,8 @@ public class DropMessage extends AbstractFunction<Void> {
 
     @Override
     public Void evaluate(FunctionArgs args, EvaluationContext context) {
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
-        message.setFilterOut(true);
+        final Message message = messageParam.optional(args, context, context.currentMessage());
+        context.updateMessage(() -> message.setFilterOut(true));
         return null;
     }
 
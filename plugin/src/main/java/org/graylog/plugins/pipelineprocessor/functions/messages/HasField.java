@@ -41,9 +41,9 @@ public class HasField extends AbstractFunction<Boolean> {
     @Override
     public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
         final String field = fieldParam.required(args, context);
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
+        final Message message = messageParam.optional(args, context, context.currentMessage());
 
-        return message.hasField(field);
+        return context.readMessage(() -> message.hasField(field));
     }
 
     @Override
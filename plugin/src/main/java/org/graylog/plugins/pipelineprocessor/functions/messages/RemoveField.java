@@ -41,9 +41,9 @@ public class RemoveField extends AbstractFunction<Void> {
     @Override
     public Void evaluate(FunctionArgs args, EvaluationContext context) {
         final String field = fieldParam.required(args, context);
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
+        final Message message = messageParam.optional(args, context, context.currentMessage());
 
-        message.removeField(field);
+        context.updateMessage(() -> message.removeField(field));
         return null;
     }
 
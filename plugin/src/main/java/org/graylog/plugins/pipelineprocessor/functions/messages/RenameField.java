@@ -49,12 +49,14 @@ public class RenameField extends AbstractFunction<Void> {
         if (oldName != null && oldName.equals(newName)) {
             return null;
         }
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
+        final Message message = messageParam.optional(args, context, context.currentMessage());
 
-        if (message.hasField(oldName)) {
-            message.addField(newName, message.getField(oldName));
-            message.removeField(oldName);
-        }
+        context.updateMessage(() -> {
+            if (message.hasField(oldName)) {
+                message.addField(newName, message.getField(oldName));
+                message.removeField(oldName);
+            }
+        });
 
         return null;
     }
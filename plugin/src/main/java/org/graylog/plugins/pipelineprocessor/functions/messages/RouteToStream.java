@@ -28,6 +28,7 @@ import org.graylog2.plugin.streams.Stream;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.function.Function;
 
 import static com.google.common.collect.ImmutableList.of;
 import static org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor.string;
@@ -38,6 +39,7 @@ public class RouteToStream extends AbstractFunction<Void> {
     public static final String NAME = "route_to_stream";
     private static final String ID_ARG = "id";
     private static final String NAME_ARG = "name";
+    private static final String CONSTANT_STREAMS = "__constant_streams";
     private final StreamCacheService streamCacheService;
     private final ParameterDescriptor<Message, Message> messageParam;
     private final ParameterDescriptor<String, String> nameParam;
@@ -53,36 +55,59 @@ public class RouteToStream extends AbstractFunction<Void> {
     }
 
     @Override
-    public Void evaluate(FunctionArgs args, EvaluationContext context) {
-        String id = idParam.optional(args, context).orElse("");
+    public void preprocessArgs(FunctionArgs args) {
+        super.preprocessArgs(args);
+        // resolve constant stream ids or names once per call site instead of on every invocation
+        final Object id = args.isPresent(ID_ARG) ? args.getPreComputedValue(ID_ARG) : "";
+        if (id instanceof String && !"".equals(id)) {
+            args.setPreComputedValue(CONSTANT_STREAMS, new CachedStreams(snapshot -> byId(snapshot, (String) id)));
+        } else if ("".equals(id)) {
+            final Object name = args.getPreComputedValue(NAME_ARG);
+            if (name instanceof String) {
+                args.setPreComputedValue(CONSTANT_STREAMS, new CachedStreams(snapshot -> byName(snapshot, (String) name)));
+            }
+        }
+    }
 
+    @Override
+    public Void evaluate(FunctionArgs args, EvaluationContext context) {
+        final Object cachedStreams = args.getPreComputedValue(CONSTANT_STREAMS);
         final Collection<Stream> streams;
-        if ("".equals(id)) {
-            final String name = nameParam.optional(args, context).orElse("");
-            if ("".equals(name)) {
-                return null;
-            }
-            streams = streamCacheService.getByName(name);
-            if (streams.isEmpty()) {
-                // TODO signal error somehow
-                return null;
-            }
+        if (cachedStreams instanceof CachedStreams) {
+            streams = ((CachedStreams) cachedStreams).get(streamCacheService.snapshot());
         } else {
-            final Stream stream = streamCacheService.getById(id);
-            if (stream == null) {
-                return null;
+            final String id = idParam.optional(args, context, "");
+            if ("".equals(id)) {
+                streams = byName(streamCacheService.snapshot(), nameParam.optional(args, context, ""));
+            } else {
+                streams = byId(streamCacheService.snapshot(), id);
             }
-            streams = Collections.singleton(stream);
         }
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
-        streams.forEach(stream -> {
+        if (streams.isEmpty()) {
+            // TODO signal error somehow
+            return null;
+        }
+        final Message message = messageParam.optional(args, context, context.currentMessage());
+        context.updateMessage(() -> streams.forEach(stream -> {
             if (!stream.isPaused()) {
                 message.addStream(stream);
             }
-        });
+        }));
         return null;
     }
 
+    private static Collection<Stream> byName(StreamCacheService.Snapshot snapshot, String name) {
+        if ("".equals(name)) {
+            return Collections.emptySet();
+        }
+        return snapshot.getByName(name);
+    }
+
+    private static Collection<Stream> byId(StreamCacheService.Snapshot snapshot, String id) {
+        final Stream stream = snapshot.getById(id);
+        return stream == null ? Collections.emptySet() : Collections.singleton(stream);
+    }
+
     @Override
     public FunctionDescriptor<Void> descriptor() {
         return FunctionDescriptor.<Void>builder()
@@ -95,4 +120,35 @@ public class RouteToStream extends AbstractFunction<Void> {
                 .description("Routes a message to a stream")
                 .build();
     }
+
+    /**
+     * The streams a call site with a constant stream id or name routes to, kept until the stream cache changes.
+     */
+    private static final class CachedStreams {
+        private final Function<StreamCacheService.Snapshot, Collection<Stream>> lookup;
+        private volatile Resolved resolved;
+
+        private CachedStreams(Function<StreamCacheService.Snapshot, Collection<Stream>> lookup) {
+            this.lookup = lookup;
+        }
+
+        Collection<Stream> get(StreamCacheService.Snapshot snapshot) {
+            Resolved current = resolved;
+            if (current == null || current.snapshot != snapshot) {
+                current = new Resolved(snapshot, lookup.apply(snapshot));
+                resolved = current;
+            }
+            return current.streams;
+        }
+    }
+
+    private static final class Resolved {
+        private final StreamCacheService.Snapshot snapshot;
+        private final Collection<Stream> streams;
+
+        private Resolved(StreamCacheService.Snapshot snapshot, Collection<Stream> streams) {
+            this.snapshot = snapshot;
+            this.streams = streams;
+        }
+    }
 }
@@ -55,7 +55,7 @@ public class SetField extends AbstractFunction<Void> {
         final Object value = valueParam.required(args, context);
 
         if (!Strings.isNullOrEmpty(field)) {
-            final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
+            final Message message = messageParam.optional(args, context, context.currentMessage());
             final Optional<String> prefix = prefixParam.optional(args, context);
             final Optional<String> suffix = suffixParam.optional(args, context);
 
@@ -65,7 +65,8 @@ public class SetField extends AbstractFunction<Void> {
             if (suffix.isPresent()) {
                 field = field + suffix.get();
             }
-            message.addField(field, value);
+            final String name = field;
+            context.updateMessage(() -> message.addField(name, value));
         }
         return null;
     }
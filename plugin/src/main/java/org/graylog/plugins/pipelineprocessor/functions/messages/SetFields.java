@@ -50,12 +50,12 @@ public class SetFields extends AbstractFunction<Void> {
     public Void evaluate(FunctionArgs args, EvaluationContext context) {
         //noinspection unchecked
         final Map<String, Object> fields = fieldsParam.required(args, context);
-        final Message message = messageParam.optional(args, context).orElse(context.currentMessage());
+        final Message message = messageParam.optional(args, context, context.currentMessage());
         final Optional<String> prefix = prefixParam.optional(args, context);
         final Optional<String> suffix = suffixParam.optional(args, context);
 
         if (fields != null) {
-            fields.forEach((field, value) -> {
+            context.updateMessage(() -> fields.forEach((field, value) -> {
                 if (prefix.isPresent()) {
                     field = prefix.get() + field;
                 }
@@ -63,7 +63,7 @@ public class SetFields extends AbstractFunction<Void> {
                     field = field + suffix.get();
                 }
                 message.addField(field, value);
-            });
+            }));
         }
         return null;
     }
@@ -17,10 +17,9 @@
 package org.graylog.plugins.pipelineprocessor.functions.messages;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
-import com.google.common.collect.MultimapBuilder;
-import com.google.common.collect.Multimaps;
-import com.google.common.collect.SortedSetMultimap;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -51,11 +50,11 @@ public class StreamCacheService extends AbstractIdleService {
     private final StreamService streamService;
     private final ScheduledExecutorService executorService;
 
-    private final SortedSetMultimap<String, Stream> nameToStream = Multimaps.synchronizedSortedSetMultimap(
-            MultimapBuilder.hashKeys()
-                    .treeSetValues(Comparator.comparing(Stream::getId))
-                    .build());
-    private final Map<String, Stream> idToStream = Maps.newConcurrentMap();
+    /**
+     * Immutable view of all enabled streams, replaced as a whole on every change so that lookups never need to lock.
+     * Updates are serialized by synchronizing on the service.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
 
     @Inject
     public StreamCacheService(EventBus eventBus,
@@ -68,7 +67,11 @@ public class StreamCacheService extends AbstractIdleService {
 
     @Override
     protected void startUp() throws Exception {
-        streamService.loadAllEnabled().forEach(this::updateCache);
+        synchronized (this) {
+            final Map<String, Stream> idToStream = Maps.newHashMap(snapshot.idToStream);
+            streamService.loadAllEnabled().forEach(stream -> updateCache(idToStream, stream));
+            snapshot = new Snapshot(idToStream);
+        }
         eventBus.register(this);
     }
 
@@ -83,44 +86,75 @@ public class StreamCacheService extends AbstractIdleService {
     }
 
     @VisibleForTesting
-    public void updateStreams(Collection<String> ids) {
+    public synchronized void updateStreams(Collection<String> ids) {
+        final Map<String, Stream> idToStream = Maps.newHashMap(snapshot.idToStream);
         for (String id : ids) {
             LOG.debug("Updating stream id/title cache for id {}", id);
             try {
                 final Stream stream = streamService.load(id);
                 if (stream.getDisabled()) {
-                    purgeCache(stream.getId());
+                    purgeCache(idToStream, stream.getId());
                 } else {
-                    updateCache(stream);
+                    updateCache(idToStream, stream);
                 }
             } catch (NotFoundException e) {
                 // the stream was deleted, we only have to purge the existing entries
-                purgeCache(id);
+                purgeCache(idToStream, id);
             }
         }
+        snapshot = new Snapshot(idToStream);
     }
 
-    private void purgeCache(String id) {
+    private void purgeCache(Map<String, Stream> idToStream, String id) {
         final Stream stream = idToStream.remove(id);
         LOG.debug("Purging stream id/title cache for id {}, stream {}", id, stream);
-        if (stream != null) {
-            nameToStream.remove(stream.getTitle(), stream);
-        }
     }
 
-    private void updateCache(Stream stream) {
+    private void updateCache(Map<String, Stream> idToStream, Stream stream) {
         LOG.debug("Updating stream id/title cache for {}/'{}'", stream.getId(), stream.getTitle());
         idToStream.put(stream.getId(), stream);
-        nameToStream.put(stream.getTitle(), stream);
     }
 
-
     public Collection<Stream> getByName(String name) {
-        return nameToStream.get(name);
+        return snapshot.getByName(name);
     }
 
     @Nullable
     public Stream getById(String id) {
-        return idToStream.get(id);
+        return snapshot.getById(id);
+    }
+
+    /**
+     * The current state of the cache. A new instance is published whenever streams change, which allows callers to
+     * memoize lookups for as long as the same snapshot is current.
+     */
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    static final class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(ImmutableMap.of());
+
+        private final ImmutableMap<String, Stream> idToStream;
+        private final ImmutableSetMultimap<String, Stream> nameToStream;
+
+        private Snapshot(Map<String, Stream> idToStream) {
+            this.idToStream = ImmutableMap.copyOf(idToStream);
+            final ImmutableSetMultimap.Builder<String, Stream> nameToStream = ImmutableSetMultimap.<String, Stream>builder()
+                    .orderValuesBy(Comparator.comparing(Stream::getId));
+            idToStream.values().stream()
+                    .filter(stream -> stream.getTitle() != null)
+                    .forEach(stream -> nameToStream.put(stream.getTitle(), stream));
+            this.nameToStream = nameToStream.build();
+        }
+
+        Collection<Stream> getByName(String name) {
+            return nameToStream.get(name);
+        }
+
+        @Nullable
+        Stream getById(String id) {
+            return idToStream.get(id);
+        }
     }
 }
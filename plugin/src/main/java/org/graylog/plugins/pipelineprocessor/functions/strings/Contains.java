@@ -42,7 +42,7 @@ public class Contains extends AbstractFunction<Boolean> {
     public Boolean evaluate(FunctionArgs args, EvaluationContext context) {
         final String value = valueParam.required(args, context);
         final String search = searchParam.required(args, context);
-        final boolean ignoreCase = ignoreCaseParam.optional(args, context).orElse(false);
+        final boolean ignoreCase = ignoreCaseParam.optional(args, context, false);
         if (ignoreCase) {
             return StringUtils.containsIgnoreCase(value, search);
         } else {
@@ -54,7 +54,7 @@ public class GrokMatch extends AbstractFunction<GrokMatch.GrokResult> {
     public GrokResult evaluate(FunctionArgs args, EvaluationContext context) {
         final String value = valueParam.required(args, context);
         final String pattern = patternParam.required(args, context);
-        final boolean onlyNamedCaptures = namedOnly.optional(args, context).orElse(false);
+        final boolean onlyNamedCaptures = namedOnly.optional(args, context, false);
 
         if (value == null || pattern == null) {
             return null;
@@ -73,8 +73,8 @@ public class KeyValue extends AbstractFunction<Map<String, String>> {
         if (Strings.isNullOrEmpty(value)) {
             return null;
         }
-        final CharMatcher kvPairsMatcher = splitParam.optional(args, context).orElse(CharMatcher.whitespace());
-        final CharMatcher kvDelimMatcher = valueSplitParam.optional(args, context).orElse(CharMatcher.anyOf("="));
+        final CharMatcher kvPairsMatcher = splitParam.optional(args, context, CharMatcher.whitespace());
+        final CharMatcher kvDelimMatcher = valueSplitParam.optional(args, context, CharMatcher.anyOf("="));
 
         Splitter outerSplitter = Splitter.on(kvPairsMatcher)
                 .omitEmptyStrings()
@@ -85,11 +85,11 @@ public class KeyValue extends AbstractFunction<Map<String, String>> {
                 .trimResults();
         return new MapSplitter(outerSplitter,
                                entrySplitter,
-                               ignoreEmptyValuesParam.optional(args, context).orElse(true),
-                               trimCharactersParam.optional(args, context).orElse(CharMatcher.none()),
-                               trimValueCharactersParam.optional(args, context).orElse(CharMatcher.none()),
-                               allowDupeKeysParam.optional(args, context).orElse(true),
-                               duplicateHandlingParam.optional(args, context).orElse("take_first"))
+                               ignoreEmptyValuesParam.optional(args, context, true),
+                               trimCharactersParam.optional(args, context, CharMatcher.none()),
+                               trimValueCharactersParam.optional(args, context, CharMatcher.none()),
+                               allowDupeKeysParam.optional(args, context, true),
+                               duplicateHandlingParam.optional(args, context, "take_first"))
                 .split(value);
     }
 
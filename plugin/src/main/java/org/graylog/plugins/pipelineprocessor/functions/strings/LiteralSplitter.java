@@ -0,0 +1,132 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.strings;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Splits strings around a literal separator using {@link String#indexOf(String, int)}, with exactly the same
+ * results as {@link java.util.regex.Pattern#split(CharSequence, int)} for the equivalent regular expression.
+ */
+final class LiteralSplitter {
+    private static final String REGEX_METACHARACTERS = ".$|()[{^?*+\\";
+
+    private final String separator;
+
+    private LiteralSplitter(String separator) {
+        this.separator = separator;
+    }
+
+    /**
+     * @param regex the regular expression
+     * @return a splitter if the regular expression only matches a fixed, non-empty string, <code>null</code> otherwise
+     */
+    @Nullable
+    static LiteralSplitter forRegex(String regex) {
+        final StringBuilder literal = new StringBuilder(regex.length());
+        for (int i = 0; i < regex.length(); i++) {
+            final char c = regex.charAt(i);
+            if (REGEX_METACHARACTERS.indexOf(c) == -1) {
+                literal.append(c);
+            } else if (c == '\\' && i + 1 < regex.length() && !isAsciiLetterOrDigit(regex.charAt(i + 1))) {
+                // escaped metacharacter or punctuation
+                literal.append(regex.charAt(++i));
+            } else {
+                return null;
+            }
+        }
+        return literal.length() == 0 ? null : new LiteralSplitter(literal.toString());
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    String[] split(String value, int limit) {
+        final List<String> parts = new ArrayList<>();
+        int index = 0;
+        int match;
+        while ((match = value.indexOf(separator, index)) != -1) {
+            if (limit == 0 || parts.size() < limit - 1) {
+                parts.add(value.substring(index, match));
+                index = match + separator.length();
+            } else {
+                // the last part is the remainder of the value
+                parts.add(value.substring(index));
+                index = match + separator.length();
+                break;
+            }
+        }
+        if (index == 0) {
+            return new String[]{value};
+        }
+        if (limit == 0 || parts.size() < limit) {
+            parts.add(value.substring(index));
+        }
+        int size = parts.size();
+        if (limit == 0) {
+            while (size > 0 && parts.get(size - 1).isEmpty()) {
+                size--;
+            }
+        }
+        return parts.subList(0, size).toArray(new String[size]);
+    }
+
+    /**
+     * Same as <code>split(value, limit)[n]</code>, without creating the other parts.
+     *
+     * @throws ArrayIndexOutOfBoundsException if there is no n-th part
+     */
+    String part(String value, int limit, int n) {
+        if (n < 0) {
+            throw new ArrayIndexOutOfBoundsException(n);
+        }
+        int start = 0;
+        int part = 0;
+        int match;
+        while ((match = value.indexOf(separator, start)) != -1) {
+            if (limit != 0 && part == limit - 1) {
+                break;
+            }
+            if (part == n) {
+                if (match > start || limit != 0 || !onlySeparators(value, match)) {
+                    return value.substring(start, match);
+                }
+                // trailing empty parts are removed
+                throw new ArrayIndexOutOfBoundsException(n);
+            }
+            start = match + separator.length();
+            part++;
+        }
+        // the remainder of the value, which is the whole value if there was no match at all
+        if (part == n && (start == 0 || limit != 0 || start < value.length())) {
+            return value.substring(start);
+        }
+        throw new ArrayIndexOutOfBoundsException(n);
+    }
+
+    private boolean onlySeparators(String value, int from) {
+        int position = from;
+        while (value.startsWith(separator, position)) {
+            position += separator.length();
+        }
+        return position == value.length();
+    }
+}
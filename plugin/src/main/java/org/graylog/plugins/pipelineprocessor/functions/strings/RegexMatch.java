@@ -57,7 +57,7 @@ public class RegexMatch extends AbstractFunction<RegexMatch.RegexMatchResult> {
         }
         //noinspection unchecked
         final List<String> groupNames =
-                (List<String>) optionalGroupNames.optional(args, context).orElse(Collections.emptyList());
+                (List<String>) optionalGroupNames.optional(args, context, Collections.emptyList());
 
         final Matcher matcher = regex.matcher(value);
         final boolean matches = matcher.find();
@@ -20,17 +20,21 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.primitives.Ints;
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.functions.AbstractFunction;
+import org.graylog.plugins.pipelineprocessor.ast.functions.ElementAccessFunction;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
 
 import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
-public class Split extends AbstractFunction<String[]> {
+public class Split extends AbstractFunction<String[]> implements ElementAccessFunction {
     public static final String NAME = "split";
+    private static final String LITERAL_SPLITTER = "__literal_splitter";
 
     private final ParameterDescriptor<String, Pattern> pattern;
     private final ParameterDescriptor<String, String> value;
@@ -51,16 +55,56 @@ public class Split extends AbstractFunction<String[]> {
                 .build();
     }
 
+    @Override
+    public void preprocessArgs(FunctionArgs args) {
+        super.preprocessArgs(args);
+        final Object precomputed = args.getPreComputedValue(pattern.name());
+        if (precomputed instanceof Pattern) {
+            final LiteralSplitter splitter = LiteralSplitter.forRegex(((Pattern) precomputed).pattern());
+            if (splitter != null) {
+                args.setPreComputedValue(LITERAL_SPLITTER, splitter);
+            }
+        }
+    }
+
     @Override
     public String[] evaluate(FunctionArgs args, EvaluationContext context) {
         final Pattern regex = requireNonNull(pattern.required(args, context), "Argument 'pattern' cannot be 'null'");
         final String value = requireNonNull(this.value.required(args, context), "Argument 'value' cannot be 'null'");
+        final int limit = limit(args, context);
 
-        final int limit = this.limit.optional(args, context).orElse(0);
-        checkArgument(limit >= 0, "Argument 'limit' cannot be negative");
+        final LiteralSplitter splitter = literalSplitter(args);
+        if (splitter != null) {
+            return splitter.split(value, limit);
+        }
         return regex.split(value, limit);
     }
 
+    @Override
+    public Object evaluateElement(FunctionArgs args, EvaluationContext context, int index) {
+        final Pattern regex = requireNonNull(pattern.required(args, context), "Argument 'pattern' cannot be 'null'");
+        final String value = requireNonNull(this.value.required(args, context), "Argument 'value' cannot be 'null'");
+        final int limit = limit(args, context);
+
+        final LiteralSplitter splitter = literalSplitter(args);
+        if (splitter != null) {
+            return splitter.part(value, limit, index);
+        }
+        return regex.split(value, limit)[index];
+    }
+
+    private int limit(FunctionArgs args, EvaluationContext context) {
+        final int limit = this.limit.optional(args, context, 0);
+        checkArgument(limit >= 0, "Argument 'limit' cannot be negative");
+        return limit;
+    }
+
+    @Nullable
+    private LiteralSplitter literalSplitter(FunctionArgs args) {
+        final Object precomputed = args.getPreComputedValue(LITERAL_SPLITTER);
+        return precomputed instanceof LiteralSplitter ? (LiteralSplitter) precomputed : null;
+    }
+
     @Override
     public FunctionDescriptor<String[]> descriptor() {
         return FunctionDescriptor.<String[]>builder()
@@ -46,7 +46,7 @@ public abstract class StringUtilsFunction extends AbstractFunction<String> {
         final String value = valueParam.required(args, context);
         Locale locale = Locale.ENGLISH;
         if (isLocaleAware()) {
-            locale = localeParam.optional(args, context).orElse(Locale.ENGLISH);
+            locale = localeParam.optional(args, context, Locale.ENGLISH);
         }
         return apply(value, locale);
     }
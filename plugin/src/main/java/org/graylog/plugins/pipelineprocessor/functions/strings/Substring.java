@@ -47,7 +47,7 @@ public class Substring extends AbstractFunction<String> {
             return null;
         }
         final int start = Ints.saturatedCast(startValue);
-        final int end = Ints.saturatedCast(endParam.optional(args, context).orElse((long) value.length()));
+        final int end = Ints.saturatedCast(endParam.optional(args, context, (long) value.length()));
 
         return StringUtils.substring(value, start, end);
     }
@@ -0,0 +1,206 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.urls;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Read-only view of the parameters of a raw query string, which decodes parameters only when they are looked up.
+ * <br>
+ * Keys are decoded like {@link java.net.URLDecoder} does, unless the parameter has no value, in which case the raw
+ * parameter is the key. Values of parameters occurring more than once are joined with commas.
+ */
+class QueryParameters extends AbstractMap<String, String> {
+
+    @Nullable
+    private final String query;
+    private Map<String, String> decoded;
+
+    QueryParameters(@Nullable String query) {
+        this.query = query;
+    }
+
+    @Override
+    public String get(Object key) {
+        if (decoded != null) {
+            return decoded.get(key);
+        }
+        if (query == null || !(key instanceof String)) {
+            return null;
+        }
+        final String name = (String) key;
+        final int end = pairsEnd(query);
+        String joined = null;
+        boolean found = false;
+        int start = 0;
+        while (start <= end) {
+            final int pairEnd = pairEnd(query, start, end);
+            if (keyEquals(start, pairEnd, name)) {
+                final String value = value(start, pairEnd);
+                joined = found ? joined + "," + value : value;
+                found = true;
+            }
+            start = pairEnd + 1;
+        }
+        return joined;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (decoded != null) {
+            return decoded.containsKey(key);
+        }
+        if (query == null || !(key instanceof String)) {
+            return false;
+        }
+        final int end = pairsEnd(query);
+        int start = 0;
+        while (start <= end) {
+            final int pairEnd = pairEnd(query, start, end);
+            if (keyEquals(start, pairEnd, (String) key)) {
+                return true;
+            }
+            start = pairEnd + 1;
+        }
+        return false;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        if (decoded == null) {
+            decoded = Collections.unmodifiableMap(decodeAll());
+        }
+        return decoded.entrySet();
+    }
+
+    private Map<String, String> decodeAll() {
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        final int end = pairsEnd(query);
+        int start = 0;
+        while (start <= end) {
+            final int pairEnd = pairEnd(query, start, end);
+            final String key = key(start, pairEnd);
+            final String value = value(start, pairEnd);
+            if (parameters.containsKey(key)) {
+                parameters.put(key, parameters.get(key) + "," + value);
+            } else {
+                parameters.put(key, value);
+            }
+            start = pairEnd + 1;
+        }
+        return parameters;
+    }
+
+    // the end of the last non-empty pair, trailing empty pairs are ignored like String#split does
+    private static int pairsEnd(String query) {
+        int end = query.length();
+        while (end > 0 && query.charAt(end - 1) == '&') {
+            end--;
+        }
+        // an empty query still has a single, empty pair
+        return end == 0 && !query.isEmpty() ? -1 : end;
+    }
+
+    private static int pairEnd(String query, int start, int end) {
+        final int ampersand = query.indexOf('&', start);
+        return ampersand == -1 || ampersand > end ? end : ampersand;
+    }
+
+    private int separator(int start, int end) {
+        final int equals = query.indexOf('=', start);
+        return equals == -1 || equals >= end ? -1 : equals;
+    }
+
+    private boolean keyEquals(int start, int end, String name) {
+        final int separator = separator(start, end);
+        if (separator <= start) {
+            return end - start == name.length() && query.regionMatches(start, name, 0, name.length());
+        }
+        if (!needsDecoding(start, separator)) {
+            return separator - start == name.length() && query.regionMatches(start, name, 0, name.length());
+        }
+        return decode(start, separator).equals(name);
+    }
+
+    private String key(int start, int end) {
+        final int separator = separator(start, end);
+        return separator <= start ? query.substring(start, end) : decode(start, separator);
+    }
+
+    @Nullable
+    private String value(int start, int end) {
+        final int separator = separator(start, end);
+        return separator <= start || separator + 1 >= end ? null : decode(separator + 1, end);
+    }
+
+    private boolean needsDecoding(int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = query.charAt(i);
+            if (c == '%' || c == '+') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // same as URLDecoder#decode(String, "UTF-8"), the URL parser already made sure the escapes are well-formed
+    private String decode(int start, int end) {
+        if (!needsDecoding(start, end)) {
+            return query.substring(start, end);
+        }
+        final StringBuilder sb = new StringBuilder(end - start);
+        byte[] bytes = null;
+        int i = start;
+        while (i < end) {
+            final char c = query.charAt(i);
+            if (c == '+') {
+                sb.append(' ');
+                i++;
+            } else if (c == '%') {
+                if (bytes == null) {
+                    bytes = new byte[(end - i) / 3];
+                }
+                int count = 0;
+                while (i + 2 < end && query.charAt(i) == '%') {
+                    bytes[count++] = (byte) ((Character.digit(query.charAt(i + 1), 16) << 4) | Character.digit(query.charAt(i + 2), 16));
+                    i += 3;
+                }
+                if (count == 0) {
+                    // cannot happen for validated URLs, but make sure to always make progress
+                    sb.append(c);
+                    i++;
+                } else {
+                    sb.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+                }
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+}
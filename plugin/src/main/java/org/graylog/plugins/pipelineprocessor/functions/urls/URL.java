@@ -16,111 +16,223 @@
  */
 package org.graylog.plugins.pipelineprocessor.functions.urls;
 
-import com.google.common.collect.Maps;
-
-import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URLDecoder;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
 
 /**
  * This class simply delegates the safe methods to the java.net.URL.
  *
  * Specifically we want to disallow called java.net.URL#getContent from a rule.
+ * <br>
+ * The common <code>http</code>, <code>https</code>, <code>ftp</code> and <code>file</code> URLs are not turned into a
+ * java.net.URL at all: {@link UrlParser} records the offsets of their components in the original string, the
+ * component strings are only created when they are accessed.
  */
 public class URL {
 
-    private final java.net.URL url;
+    private final String url;
+    @Nullable
+    private final java.net.URL delegate;
+
+    // offsets into url, only used without delegate
+    private final int schemeEnd;
+    private final int authorityStart;
+    private final int userInfoEnd;
+    private final int hostEnd;
+    private final int authorityEnd;
+    private final int queryStart;
+    private final int fragmentStart;
+    private final int port;
+
     private Map<String, String> queryMap;
 
     public URL(java.net.URL url) {
-        this.url = url;
+        this.url = url.toString();
+        this.delegate = url;
+        this.schemeEnd = this.authorityStart = this.userInfoEnd = this.hostEnd = this.authorityEnd = -1;
+        this.queryStart = this.fragmentStart = this.port = -1;
     }
 
     public URL(String urlString) throws MalformedURLException {
-        url = URI.create(urlString).toURL();
+        this(parseOrThrow(urlString));
     }
 
-    public String getQuery() {
-        return url.getQuery();
+    private URL(URL other) {
+        this.url = other.url;
+        this.delegate = other.delegate;
+        this.schemeEnd = other.schemeEnd;
+        this.authorityStart = other.authorityStart;
+        this.userInfoEnd = other.userInfoEnd;
+        this.hostEnd = other.hostEnd;
+        this.authorityEnd = other.authorityEnd;
+        this.queryStart = other.queryStart;
+        this.fragmentStart = other.fragmentStart;
+        this.port = other.port;
     }
 
-    public Map<String, String> getQueryParams() {
-        if (queryMap == null) {
-            queryMap = splitQuery(getQuery());
+    URL(String url, int schemeEnd, int authorityStart, int userInfoEnd, int hostEnd, int authorityEnd, int queryStart, int fragmentStart, int port) {
+        this.url = url;
+        this.delegate = null;
+        this.schemeEnd = schemeEnd;
+        this.authorityStart = authorityStart;
+        this.userInfoEnd = userInfoEnd;
+        this.hostEnd = hostEnd;
+        this.authorityEnd = authorityEnd;
+        this.queryStart = queryStart;
+        this.fragmentStart = fragmentStart;
+        this.port = port;
+    }
+
+    /**
+     * Parses a URL without throwing exceptions for malformed values.
+     *
+     * @param urlString the URL to parse
+     * @return the URL or <code>null</code> if the value is not a valid URL
+     */
+    @Nullable
+    public static URL parse(String urlString) {
+        if (UrlParser.isMalformed(urlString)) {
+            return null;
+        }
+        final URL url = UrlParser.parse(urlString);
+        if (url != null) {
+            return url;
+        }
+        // unusual, but possibly valid, URLs are left to the JDK
+        try {
+            return new URL(URI.create(urlString).toURL());
+        } catch (IllegalArgumentException | MalformedURLException e) {
+            return null;
         }
-        return queryMap;
     }
 
-    private static Map<String, String> splitQuery(String query) {
-        final Map<String, String> nameValues = Maps.newHashMap();
-        final String[] kvPairs = query.split("&");
-        for (String pair : kvPairs) {
-            try {
-                final int idx = pair.indexOf("=");
-                final String key = idx > 0 ? URLDecoder.decode(pair.substring(0, idx), "UTF-8") : pair;
-                final String value = idx > 0 && pair.length() > idx + 1 ? URLDecoder.decode(pair.substring(idx + 1),
-                                                                                            "UTF-8") : null;
-                if (nameValues.containsKey(key)) {
-                    nameValues.put(key, nameValues.get(key) + "," + value); // TODO well, this is also crappy
-                } else {
-                    nameValues.put(key, value);
-                }
-            } catch (UnsupportedEncodingException ignored) {
-                // ignored because UTF-8 is a required encoding
+    private static URL parseOrThrow(String urlString) throws MalformedURLException {
+        if (!UrlParser.isMalformed(urlString)) {
+            final URL url = UrlParser.parse(urlString);
+            if (url != null) {
+                return url;
             }
         }
-        return nameValues;
+        // also produces the exception for malformed URLs
+        return new URL(URI.create(urlString).toURL());
+    }
+
+    public String getQuery() {
+        if (delegate != null) {
+            return delegate.getQuery();
+        }
+        return queryStart == -1 ? null : url.substring(queryStart, fragmentStart == -1 ? url.length() : fragmentStart - 1);
+    }
+
+    public Map<String, String> getQueryParams() {
+        if (queryMap == null) {
+            queryMap = new QueryParameters(getQuery());
+        }
+        return queryMap;
     }
 
     public String getUserInfo() {
-        return url.getUserInfo();
+        if (delegate != null) {
+            return delegate.getUserInfo();
+        }
+        return userInfoEnd == -1 ? null : url.substring(authorityStart, userInfoEnd);
     }
 
     public String getHost() {
-        return url.getHost();
+        if (delegate != null) {
+            return delegate.getHost();
+        }
+        return url.substring(userInfoEnd == -1 ? authorityStart : userInfoEnd + 1, hostEnd);
     }
 
     public String getPath() {
-        return url.getPath();
+        if (delegate != null) {
+            return delegate.getPath();
+        }
+        return url.substring(authorityEnd, pathEnd());
     }
 
     public String getFile() {
-        return url.getFile();
+        if (delegate != null) {
+            return delegate.getFile();
+        }
+        return url.substring(authorityEnd, fragmentStart == -1 ? url.length() : fragmentStart - 1);
     }
 
     public String getProtocol() {
-        return url.getProtocol();
+        if (delegate != null) {
+            return delegate.getProtocol();
+        }
+        return url.substring(0, schemeEnd).toLowerCase(Locale.ENGLISH);
     }
 
     public int getDefaultPort() {
-        return url.getDefaultPort();
+        if (delegate != null) {
+            return delegate.getDefaultPort();
+        }
+        switch (getProtocol()) {
+            case "http":
+                return 80;
+            case "https":
+                return 443;
+            case "ftp":
+                return 21;
+            default:
+                return -1;
+        }
     }
 
     /**
      * alias for #getRef, fragment is more commonly used
      */
     public String getFragment() {
-        return url.getRef();
+        return getRef();
     }
 
     public String getRef() {
-        return url.getRef();
+        if (delegate != null) {
+            return delegate.getRef();
+        }
+        return fragmentStart == -1 ? null : url.substring(fragmentStart);
     }
 
     public String getAuthority() {
-        return url.getAuthority();
+        if (delegate != null) {
+            return delegate.getAuthority();
+        }
+        return url.substring(authorityStart, authorityEnd);
     }
 
     public int getPort() {
-        return url.getPort();
+        if (delegate != null) {
+            return delegate.getPort();
+        }
+        return port;
+    }
+
+    private int pathEnd() {
+        if (queryStart != -1) {
+            return queryStart - 1;
+        }
+        return fragmentStart == -1 ? url.length() : fragmentStart - 1;
+    }
+
+    @Override
+    public String toString() {
+        return url;
     }
 
-    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass")
     @Override
-    public boolean equals(Object obj) {
-        return url.equals(obj);
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof URL)) return false;
+        // comparing the strings, java.net.URL#equals would resolve the host names
+        return Objects.equals(url, ((URL) o).url);
     }
 
     @Override
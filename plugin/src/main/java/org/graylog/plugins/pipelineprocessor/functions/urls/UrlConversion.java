@@ -36,21 +36,21 @@ public class UrlConversion extends AbstractFunction<URL> {
     @Override
     public URL evaluate(FunctionArgs args, EvaluationContext context) {
         final String urlString = String.valueOf(urlParam.required(args, context));
+        final URL url = URL.parse(urlString);
+        if (url != null) {
+            return url;
+        }
+        log.debug("Unable to parse URL for string {}", urlString);
+
+        final Optional<String> defaultUrl = defaultParam.optional(args, context);
+        if (!defaultUrl.isPresent()) {
+            return null;
+        }
         try {
-            return new URL(urlString);
+            return new URL(defaultUrl.get());
         } catch (IllegalArgumentException | MalformedURLException e) {
-            log.debug("Unable to parse URL for string {}", urlString, e);
-
-            final Optional<String> defaultUrl = defaultParam.optional(args, context);
-            if (!defaultUrl.isPresent()) {
-                return null;
-            }
-            try {
-                return new URL(defaultUrl.get());
-            } catch (IllegalArgumentException | MalformedURLException e1) {
-                log.warn("Parameter `default` for to_url() is not a valid URL: {}", defaultUrl.get());
-                throw Throwables.propagate(e1);
-            }
+            log.warn("Parameter `default` for to_url() is not a valid URL: {}", defaultUrl.get());
+            throw Throwables.propagate(e);
         }
     }
 
@@ -0,0 +1,198 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.urls;
+
+import javax.annotation.Nullable;
+
+/**
+ * Single pass parser for the common hierarchical URLs, e.g. <code>https://user@host:8080/path?query#fragment</code>.
+ * <br>
+ * It only handles the subset of URLs for which it is certain to produce the same components as java.net.URL, and
+ * leaves everything else (IPv6 hosts, empty hosts, unusual schemes etc) to the JDK.
+ */
+final class UrlParser {
+    private static final int MAXIMUM_PORT_DIGITS = 9;
+
+    private UrlParser() {
+    }
+
+    /**
+     * Cheap check for values which java.net.URI would reject anyway, so that these don't need to be parsed by the JDK
+     * just to get an exception.
+     *
+     * @param value the URL string
+     * @return <code>true</code> if the value is not a valid absolute URL
+     */
+    static boolean isMalformed(String value) {
+        if (schemeEnd(value) == -1) {
+            // relative URLs can't be turned into java.net.URL
+            return true;
+        }
+        final int length = value.length();
+        boolean seenFragment = false;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= length || Character.digit(value.charAt(i + 1), 16) == -1 || Character.digit(value.charAt(i + 2), 16) == -1) {
+                    return true;
+                }
+                i += 2;
+            } else if (c == '#') {
+                if (seenFragment) {
+                    return true;
+                }
+                seenFragment = true;
+            } else if (isIllegal(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // characters which are not allowed anywhere in a URI
+    private static boolean isIllegal(char c) {
+        switch (c) {
+            case '"':
+            case '<':
+            case '>':
+            case '\\':
+            case '^':
+            case '`':
+            case '{':
+            case '|':
+            case '}':
+                return true;
+            default:
+                return c <= ' ' || Character.isISOControl(c) || Character.isSpaceChar(c);
+        }
+    }
+
+    private static int schemeEnd(String value) {
+        final int length = value.length();
+        if (length == 0 || !isAsciiLetter(value.charAt(0))) {
+            return -1;
+        }
+        for (int i = 1; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == ':') {
+                return i;
+            }
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '+' && c != '-' && c != '.') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the value, which must not be {@link #isMalformed(String) malformed}.
+     *
+     * @param value the URL string
+     * @return the parsed URL or <code>null</code> if the parser cannot handle the value
+     */
+    @Nullable
+    static URL parse(String value) {
+        final int schemeEnd = schemeEnd(value);
+        if (!isSupportedScheme(value, schemeEnd) || !value.startsWith("//", schemeEnd + 1)) {
+            return null;
+        }
+        final int length = value.length();
+        final int authorityStart = schemeEnd + 3;
+        int authorityEnd = authorityStart;
+        int userInfoEnd = -1;
+        int portStart = -1;
+        while (authorityEnd < length) {
+            final char c = value.charAt(authorityEnd);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                if (userInfoEnd != -1) {
+                    return null;
+                }
+                userInfoEnd = authorityEnd;
+                portStart = -1;
+            } else if (c == ':') {
+                portStart = authorityEnd + 1;
+            } else if (c == '[' || c == ']') {
+                return null;
+            }
+            authorityEnd++;
+        }
+        final int hostStart = userInfoEnd == -1 ? authorityStart : userInfoEnd + 1;
+        final int hostEnd = portStart == -1 ? authorityEnd : portStart - 1;
+        if (hostStart == hostEnd || !isSimpleHost(value, hostStart, hostEnd)) {
+            return null;
+        }
+        int port = -1;
+        if (portStart != -1) {
+            if (portStart == authorityEnd || authorityEnd - portStart > MAXIMUM_PORT_DIGITS) {
+                return null;
+            }
+            port = 0;
+            for (int i = portStart; i < authorityEnd; i++) {
+                final char c = value.charAt(i);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                port = port * 10 + (c - '0');
+            }
+        }
+
+        int queryStart = -1;
+        int fragmentStart = -1;
+        for (int i = authorityEnd; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == '[' || c == ']') {
+                return null;
+            }
+            if (c == '?' && queryStart == -1 && fragmentStart == -1) {
+                queryStart = i + 1;
+            } else if (c == '#' && fragmentStart == -1) {
+                fragmentStart = i + 1;
+            }
+        }
+        return new URL(value, schemeEnd, authorityStart, userInfoEnd, hostEnd, authorityEnd, queryStart, fragmentStart, port);
+    }
+
+    private static boolean isSupportedScheme(String value, int schemeEnd) {
+        switch (schemeEnd) {
+            case 3:
+                return value.regionMatches(true, 0, "ftp", 0, 3);
+            case 4:
+                return value.regionMatches(true, 0, "http", 0, 4) || value.regionMatches(true, 0, "file", 0, 4);
+            case 5:
+                return value.regionMatches(true, 0, "https", 0, 5);
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isSimpleHost(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            final char c = value.charAt(i);
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && c != '-' && c != '.' && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+}
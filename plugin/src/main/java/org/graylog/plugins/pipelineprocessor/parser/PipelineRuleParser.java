@@ -16,13 +16,17 @@
  */
 package org.graylog.plugins.pipelineprocessor.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.DefaultErrorStrategy;
@@ -31,8 +35,15 @@ import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
 import org.antlr.v4.runtime.RuleContext;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
 import org.antlr.v4.runtime.tree.ParseTreeProperty;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.mina.util.IdentityHashSet;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
@@ -94,6 +105,7 @@ import org.joda.time.Period;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -101,17 +113,26 @@ import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.inject.Singleton;
 
 import static com.google.common.collect.ImmutableSortedSet.orderedBy;
 import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 
+@Singleton
 public class PipelineRuleParser {
 
     private final FunctionRegistry functionRegistry;
     private final CodeGenerator codeGenerator;
 
+    private static final int PARSE_CACHE_SIZE = 1000;
+    private final Cache<String, ParseResult> parseCache = CacheBuilder.newBuilder()
+            .maximumSize(PARSE_CACHE_SIZE)
+            .build();
+    private volatile Set<Function<?>> cachedFunctions = ImmutableSet.of();
+
     private static AtomicLong uniqueId = new AtomicLong(0);
 
     @Inject
@@ -123,6 +144,10 @@ public class PipelineRuleParser {
     private static final Logger log = LoggerFactory.getLogger(PipelineRuleParser.class);
     public static final ParseTreeWalker WALKER = ParseTreeWalker.DEFAULT;
 
+    // lexer and parser instances are expensive to create, but can be reused once the previous parse is done
+    private static final ThreadLocal<RuleLangLexer> LEXER = ThreadLocal.withInitial(() -> new RuleLangLexer(null));
+    private static final ThreadLocal<RuleLangParser> PARSER = ThreadLocal.withInitial(() -> new RuleLangParser(null));
+
     public Rule parseRule(String rule, boolean silent) throws ParseException {
         return parseRule(rule, silent, null);
     }
@@ -146,62 +171,67 @@ public class PipelineRuleParser {
      * @throws ParseException if a one or more parse errors occur
      */
     public Rule parseRule(String id, String rule, boolean silent, PipelineClassloader ruleClassLoader) throws ParseException {
-        final ParseContext parseContext = new ParseContext(silent);
-        final SyntaxErrorListener errorListener = new SyntaxErrorListener(parseContext);
-
-        final RuleLangLexer lexer = new RuleLangLexer(new ANTLRInputStream(rule));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-
-        final RuleLangParser parser = new RuleLangParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new DefaultErrorStrategy());
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
+        Rule parsedRule = parseCached(rule, silent).withId(id);
+        if (ruleClassLoader != null && ConfigurationStateUpdater.isAllowCodeGeneration()) {
+            try {
+                final Class<? extends GeneratedRule> generatedClass = codeGenerator.generateCompiledRule(parsedRule, ruleClassLoader);
+                if (generatedClass != null) {
+                    parsedRule = parsedRule.toBuilder().generatedRuleClass(generatedClass).build();
+                }
+            } catch (Exception e) {
+                log.warn("Unable to compile rule {} to native code, falling back to interpreting it: {}", parsedRule.name(), e.getMessage());
+            }
+        }
+        return parsedRule;
+    }
 
-        final RuleLangParser.RuleDeclarationContext ruleDeclaration = parser.ruleDeclaration();
+    /**
+     * Returns the type checked rule for the source, which is shared between all callers parsing the same source.
+     * The rule has no id, and parse errors are remembered as well, because the editor keeps sending broken sources.
+     */
+    private Rule parseCached(String rule, boolean silent) throws ParseException {
+        final Collection<Function<?>> functions = functionRegistry.all();
+        final Set<Function<?>> knownFunctions = this.cachedFunctions;
+        if (functions.size() != knownFunctions.size() || !knownFunctions.containsAll(functions)) {
+            // rules resolve their functions while being parsed, so nothing cached for other functions can be used
+            parseCache.invalidateAll();
+            this.cachedFunctions = ImmutableSet.copyOf(functions);
+        }
+        ParseResult result = parseCache.getIfPresent(rule);
+        if (result == null) {
+            result = parseUncached(rule, silent);
+            parseCache.put(rule, result);
+        }
+        if (result.rule == null) {
+            throw new ParseException(result.errors);
+        }
+        return result.rule;
+    }
 
+    private ParseResult parseUncached(String rule, boolean silent) {
+        final ParseContext parseContext = new ParseContext(silent);
+        final RuleLangParser.RuleDeclarationContext ruleDeclaration = parse(rule, parseContext, RuleLangParser::ruleDeclaration);
 
         // parsing stages:
         // 1. build AST nodes, checks for invalid var, function refs
         // 2. type annotator: infer type information from var refs, func refs
-        // 3. checker: static type check w/ coercion nodes
-        // 4. optimizer: TODO
+        //    checker: static type check w/ coercion nodes
+        //    both run in the same walk, the annotator sees each node before the checker does
+        // 3. optimizer: TODO
 
         WALKER.walk(new RuleAstBuilder(parseContext), ruleDeclaration);
-        WALKER.walk(new RuleTypeAnnotator(parseContext), ruleDeclaration);
-        WALKER.walk(new RuleTypeChecker(parseContext), ruleDeclaration);
+        walk(ruleDeclaration, new RuleTypeAnnotator(parseContext), new RuleTypeChecker(parseContext));
 
         if (parseContext.getErrors().isEmpty()) {
-            Rule parsedRule = parseContext.getRules().get(0).withId(id);
-            if (ruleClassLoader != null && ConfigurationStateUpdater.isAllowCodeGeneration()) {
-                try {
-                    final Class<? extends GeneratedRule> generatedClass = codeGenerator.generateCompiledRule(parsedRule, ruleClassLoader);
-                    if (generatedClass != null) {
-                        parsedRule = parsedRule.toBuilder().generatedRuleClass(generatedClass).build();
-                    }
-                } catch (Exception e) {
-                    log.warn("Unable to compile rule {} to native code, falling back to interpreting it: {}", parsedRule.name(), e.getMessage());
-                }
-            }
-            return parsedRule;
+            return new ParseResult(parseContext.getRules().get(0), null);
         }
-        throw new ParseException(parseContext.getErrors());
+        return new ParseResult(null, parseContext.getErrors());
     }
 
+
     public List<Pipeline> parsePipelines(String pipelines) throws ParseException {
         final ParseContext parseContext = new ParseContext(false);
-        final SyntaxErrorListener errorListener = new SyntaxErrorListener(parseContext);
-
-        final RuleLangLexer lexer = new RuleLangLexer(new ANTLRInputStream(pipelines));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-
-        final RuleLangParser parser = new RuleLangParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new DefaultErrorStrategy());
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
-
-        final RuleLangParser.PipelineDeclsContext pipelineDeclsContext = parser.pipelineDecls();
+        final RuleLangParser.PipelineDeclsContext pipelineDeclsContext = parse(pipelines, parseContext, RuleLangParser::pipelineDecls);
 
         WALKER.walk(new PipelineAstBuilder(parseContext), pipelineDeclsContext);
 
@@ -213,18 +243,7 @@ public class PipelineRuleParser {
 
     public Pipeline parsePipeline(String id, String source) {
         final ParseContext parseContext = new ParseContext(false);
-        final SyntaxErrorListener errorListener = new SyntaxErrorListener(parseContext);
-
-        final RuleLangLexer lexer = new RuleLangLexer(new ANTLRInputStream(source));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-
-        final RuleLangParser parser = new RuleLangParser(new CommonTokenStream(lexer));
-        parser.setErrorHandler(new DefaultErrorStrategy());
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
-
-        final RuleLangParser.PipelineContext pipelineContext = parser.pipeline();
+        final RuleLangParser.PipelineContext pipelineContext = parse(source, parseContext, RuleLangParser::pipeline);
 
         WALKER.walk(new PipelineAstBuilder(parseContext), pipelineContext);
 
@@ -235,6 +254,76 @@ public class PipelineRuleParser {
         throw new ParseException(parseContext.getErrors());
     }
 
+    /**
+     * Runs the given entry rule of the grammar on the source, using the lexer and parser of the current thread.
+     *
+     * The input is first parsed in SLL prediction mode, which is considerably cheaper and sufficient for virtually
+     * all rules and pipelines. Only if that fails, either because of a syntax error or because the input actually
+     * requires full context, is it parsed again in LL mode with regular error reporting.
+     */
+    private static <T extends ParserRuleContext> T parse(String source,
+                                                         ParseContext parseContext,
+                                                         java.util.function.Function<RuleLangParser, T> entryRule) {
+        final SyntaxErrorListener errorListener = new SyntaxErrorListener(parseContext);
+
+        final RuleLangLexer lexer = LEXER.get();
+        lexer.setInputStream(new ANTLRInputStream(source));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorListener);
+
+        final RuleLangParser parser = PARSER.get();
+        parser.setTokenStream(new CommonTokenStream(lexer));
+        parser.removeErrorListeners();
+        try {
+            parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+            parser.setErrorHandler(new BailErrorStrategy());
+            try {
+                return entryRule.apply(parser);
+            } catch (ParseCancellationException e) {
+                // the tokens are buffered, so rewinding does not lex again and lexer errors are only reported once
+                parser.reset();
+                parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+                parser.setErrorHandler(new DefaultErrorStrategy());
+                parser.addErrorListener(errorListener);
+                return entryRule.apply(parser);
+            }
+        } finally {
+            // don't keep the last source and its tokens reachable from the thread
+            parser.setTokenStream(null);
+            lexer.setInputStream(null);
+        }
+    }
+
+    /**
+     * Walks the tree once, calling the listeners in the given order on each node.
+     * This means that a listener can rely on all previous listeners having exited the current node.
+     */
+    private static void walk(ParseTree tree, ParseTreeListener... listeners) {
+        if (tree instanceof ErrorNode) {
+            for (ParseTreeListener listener : listeners) {
+                listener.visitErrorNode((ErrorNode) tree);
+            }
+            return;
+        } else if (tree instanceof TerminalNode) {
+            for (ParseTreeListener listener : listeners) {
+                listener.visitTerminal((TerminalNode) tree);
+            }
+            return;
+        }
+        final ParserRuleContext ctx = (ParserRuleContext) ((RuleNode) tree).getRuleContext();
+        for (ParseTreeListener listener : listeners) {
+            listener.enterEveryRule(ctx);
+            ctx.enterRule(listener);
+        }
+        for (int i = 0; i < tree.getChildCount(); i++) {
+            walk(tree.getChild(i), listeners);
+        }
+        for (ParseTreeListener listener : listeners) {
+            ctx.exitRule(listener);
+            listener.exitEveryRule(ctx);
+        }
+    }
+
     public static String unquote(String string, char quoteChar) {
         if (string.length() >= 2 &&
                 string.charAt(0) == quoteChar && string.charAt(string.length() - 1) == quoteChar) {
@@ -725,11 +814,21 @@ public class PipelineRuleParser {
                 expr.setType(Void.class);
             }
         }
+
+        @Override
+        public void exitComparison(RuleLangParser.ComparisonContext ctx) {
+            final ComparisonExpression expr = (ComparisonExpression) parseContext.expressions().get(ctx);
+            final Class<?> leftType = expr.left().getType();
+
+            // operands of the same numeric type are compared without boxing, mismatches are detected later
+            if (leftType.equals(expr.right().getType())) {
+                expr.setOperandType(leftType);
+            }
+        }
     }
 
     private class RuleTypeChecker extends RuleLangBaseListener {
         private final ParseContext parseContext;
-        StringBuffer sb = new StringBuffer();
 
         public RuleTypeChecker(ParseContext parseContext) {
             this.parseContext = parseContext;
@@ -737,7 +836,12 @@ public class PipelineRuleParser {
 
         @Override
         public void exitRuleDeclaration(RuleLangParser.RuleDeclarationContext ctx) {
-            log.trace("Type tree {}", sb.toString());
+            // types are only final once the annotator has exited a node, so the tree is printed in a separate walk
+            if (log.isTraceEnabled()) {
+                final TypeTreePrinter typeTreePrinter = new TypeTreePrinter(parseContext);
+                WALKER.walk(typeTreePrinter, ctx);
+                log.trace("Type tree {}", typeTreePrinter.sb.toString());
+            }
         }
 
         @Override
@@ -819,26 +923,6 @@ public class PipelineRuleParser {
             }
         }
 
-        @Override
-        public void enterEveryRule(ParserRuleContext ctx) {
-            final Expression expression = parseContext.expressions().get(ctx);
-            if (expression != null && !parseContext.isInnerNode(ctx)) {
-                sb.append(" ( ");
-                sb.append(expression.getClass().getSimpleName());
-                sb.append(":").append(ctx.getClass().getSimpleName()).append(" ");
-                sb.append(" <").append(expression.getType().getSimpleName()).append("> ");
-                sb.append(ctx.getText());
-            }
-        }
-
-        @Override
-        public void exitEveryRule(ParserRuleContext ctx) {
-            final Expression expression = parseContext.expressions().get(ctx);
-            if (expression != null && !parseContext.isInnerNode(ctx)) {
-                sb.append(" ) ");
-            }
-        }
-
         @Override
         public void exitIndexedAccess(RuleLangParser.IndexedAccessContext ctx) {
             final IndexedAccessExpression idxExpr = (IndexedAccessExpression) parseContext.expressions().get(
@@ -871,6 +955,47 @@ public class PipelineRuleParser {
         }
     }
 
+    private static class TypeTreePrinter extends RuleLangBaseListener {
+        private final ParseContext parseContext;
+        StringBuilder sb = new StringBuilder();
+
+        public TypeTreePrinter(ParseContext parseContext) {
+            this.parseContext = parseContext;
+        }
+
+        @Override
+        public void enterEveryRule(ParserRuleContext ctx) {
+            final Expression expression = parseContext.expressions().get(ctx);
+            if (expression != null && !parseContext.isInnerNode(ctx)) {
+                sb.append(" ( ");
+                sb.append(expression.getClass().getSimpleName());
+                sb.append(":").append(ctx.getClass().getSimpleName()).append(" ");
+                sb.append(" <").append(expression.getType().getSimpleName()).append("> ");
+                sb.append(ctx.getText());
+            }
+        }
+
+        @Override
+        public void exitEveryRule(ParserRuleContext ctx) {
+            final Expression expression = parseContext.expressions().get(ctx);
+            if (expression != null && !parseContext.isInnerNode(ctx)) {
+                sb.append(" ) ");
+            }
+        }
+    }
+
+    private static class ParseResult {
+        @Nullable
+        private final Rule rule;
+        @Nullable
+        private final Set<ParseError> errors;
+
+        private ParseResult(@Nullable Rule rule, @Nullable Set<ParseError> errors) {
+            this.rule = rule;
+            this.errors = errors;
+        }
+    }
+
     /**
      * Contains meta data about the parse tree, such as AST nodes, link to the function registry etc.
      *
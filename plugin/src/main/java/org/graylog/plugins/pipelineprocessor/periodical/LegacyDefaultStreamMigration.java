@@ -1,9 +1,12 @@
 package org.graylog.plugins.pipelineprocessor.periodical;
 
+import com.google.common.eventbus.EventBus;
 import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
 import org.graylog.plugins.pipelineprocessor.events.LegacyDefaultStreamMigrated;
+import org.graylog.plugins.pipelineprocessor.events.PipelineConnectionsChangedEvent;
 import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.graylog2.database.NotFoundException;
+import org.graylog2.events.ClusterEventBus;
 import org.graylog2.plugin.cluster.ClusterConfigService;
 import org.graylog2.plugin.periodical.Periodical;
 import org.graylog2.plugin.streams.Stream;
@@ -11,18 +14,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.util.Collections;
 
 public class LegacyDefaultStreamMigration extends Periodical {
     private static final Logger LOG = LoggerFactory.getLogger(LegacyDefaultStreamMigration.class);
     private final ClusterConfigService clusterConfigService;
     private final PipelineStreamConnectionsService connectionsService;
+    private final EventBus clusterBus;
 
     private static final String LEGACY_STREAM_ID = "default";
 
     @Inject
-    public LegacyDefaultStreamMigration(ClusterConfigService clusterConfigService, PipelineStreamConnectionsService connectionsService) {
+    public LegacyDefaultStreamMigration(ClusterConfigService clusterConfigService,
+                                        PipelineStreamConnectionsService connectionsService,
+                                        ClusterEventBus clusterBus) {
         this.clusterConfigService = clusterConfigService;
         this.connectionsService = connectionsService;
+        this.clusterBus = clusterBus;
     }
 
     @Override
@@ -72,8 +80,10 @@ public class LegacyDefaultStreamMigration extends Periodical {
     public void doRun() {
         try {
             final PipelineConnections defaultConnections = connectionsService.load(LEGACY_STREAM_ID);
-            connectionsService.save(defaultConnections.toBuilder().streamId(Stream.DEFAULT_STREAM_ID).build());
+            final PipelineConnections migrated = connectionsService.save(defaultConnections.toBuilder().streamId(Stream.DEFAULT_STREAM_ID).build());
             connectionsService.delete(LEGACY_STREAM_ID);
+            clusterBus.post(PipelineConnectionsChangedEvent.create(migrated.streamId(), migrated.pipelineIds()));
+            clusterBus.post(PipelineConnectionsChangedEvent.create(LEGACY_STREAM_ID, Collections.emptySet()));
             clusterConfigService.write(LegacyDefaultStreamMigrated.create(true));
             LOG.info("Pipeline connections to legacy default streams migrated successfully.");
         } catch (NotFoundException e) {
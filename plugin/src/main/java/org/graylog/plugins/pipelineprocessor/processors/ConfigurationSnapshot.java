@@ -0,0 +1,285 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
+import org.graylog.plugins.pipelineprocessor.db.PipelineService;
+import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleService;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+/**
+ * The rules, pipelines and stream connections last loaded from the database.
+ *
+ * The first refresh loads everything, afterwards only the documents named in change events are loaded again. Changed
+ * ids which no longer exist are removed from the snapshot, so deletions need no special handling. This keeps the cost
+ * of reloading proportional to the size of the change instead of the number of rules and pipelines.
+ *
+ * Writes which did not result in a change event are picked up by {@link #resync()}. It only loads the rules and
+ * pipelines modified since the newest one in the snapshot, and finds deletions by comparing the ids, so a resync of an
+ * unchanged configuration reads no rule or pipeline documents at all.
+ */
+class ConfigurationSnapshot {
+    private static final Logger log = LoggerFactory.getLogger(ConfigurationSnapshot.class);
+
+    // modification times are taken from the clock of the node which wrote the document, allow for some skew
+    private static final Duration MODIFICATION_CLOCK_SKEW = Duration.standardMinutes(5);
+
+    private final RuleService ruleService;
+    private final PipelineService pipelineService;
+    private final PipelineStreamConnectionsService connectionsService;
+
+    private final Map<String, RuleDao> rules = Maps.newHashMap();
+    private final Map<String, PipelineDao> pipelines = Maps.newHashMap();
+    private final Map<String, PipelineConnections> connections = Maps.newHashMap();
+
+    private final Set<String> changedRuleIds = Sets.newHashSet();
+    private final Set<String> changedPipelineIds = Sets.newHashSet();
+    private final Set<String> changedStreamIds = Sets.newHashSet();
+    private boolean loaded = false;
+
+    ConfigurationSnapshot(RuleService ruleService,
+                          PipelineService pipelineService,
+                          PipelineStreamConnectionsService connectionsService) {
+        this.ruleService = ruleService;
+        this.pipelineService = pipelineService;
+        this.connectionsService = connectionsService;
+    }
+
+    synchronized void rulesChanged(Collection<String> ruleIds) {
+        changedRuleIds.addAll(ruleIds);
+    }
+
+    synchronized void pipelinesChanged(Collection<String> pipelineIds) {
+        changedPipelineIds.addAll(pipelineIds);
+    }
+
+    synchronized void connectionsChanged(String streamId) {
+        changedStreamIds.add(streamId);
+    }
+
+    /**
+     * Queues the documents which differ from the snapshot, as if change events had been received.
+     *
+     * Rules and pipelines are probed by their modification time and an ids-only query, stream connections have no
+     * modification time and are small, so they are always loaded completely.
+     *
+     * @return true if the next refresh has anything to load
+     */
+    synchronized boolean resync() {
+        if (!loaded) {
+            return true;
+        }
+        try {
+            final Set<String> ruleIds = ruleService.loadAllIds();
+            final Collection<RuleDao> modifiedRules = ruleService.loadModifiedSince(
+                    modifiedSince(rules.values(), RuleDao::modifiedAt));
+            final Set<String> pipelineIds = pipelineService.loadAllIds();
+            final Collection<PipelineDao> modifiedPipelines = pipelineService.loadModifiedSince(
+                    modifiedSince(pipelines.values(), PipelineDao::modifiedAt));
+            final Set<PipelineConnections> loadedConnections = connectionsService.loadAll();
+            queueDifferences(rules, ruleIds, modifiedRules, RuleDao::id, changedRuleIds);
+            queueDifferences(pipelines, pipelineIds, modifiedPipelines, PipelineDao::id, changedPipelineIds);
+            queueDifferences(connections,
+                    loadedConnections.stream().map(PipelineConnections::streamId).collect(Collectors.toSet()),
+                    loadedConnections,
+                    PipelineConnections::streamId,
+                    changedStreamIds);
+        } catch (RuntimeException e) {
+            log.error("Unable to load pipeline configuration for resynchronization", e);
+            return false;
+        }
+        if (!changedRuleIds.isEmpty() || !changedPipelineIds.isEmpty() || !changedStreamIds.isEmpty()) {
+            log.debug("Resynchronization found changed rules {}, pipelines {} and stream connections {}",
+                    changedRuleIds, changedPipelineIds, changedStreamIds);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads all documents on the first call and the changed ones on subsequent calls.
+     *
+     * If loading fails the snapshot is left as it was and the changed ids are kept, so that the next refresh tries
+     * again instead of dropping them.
+     *
+     * @return the ids which have been loaded again, including those which no longer exist
+     */
+    synchronized Changes refresh() {
+        final Changes changes;
+        try {
+            if (!loaded) {
+                final Collection<RuleDao> loadedRules = ruleService.loadAll();
+                final Collection<PipelineDao> loadedPipelines = pipelineService.loadAll();
+                final Collection<PipelineConnections> loadedConnections = connectionsService.loadAll();
+                replace(rules, loadedRules, RuleDao::id);
+                replace(pipelines, loadedPipelines, PipelineDao::id);
+                replace(connections, loadedConnections, PipelineConnections::streamId);
+                loaded = true;
+                changes = Changes.create(true, rules.keySet(), pipelines.keySet(), connections.keySet());
+            } else {
+                log.debug("Refreshing changed rules {}, pipelines {} and stream connections {}",
+                        changedRuleIds, changedPipelineIds, changedStreamIds);
+                final Collection<RuleDao> loadedRules = changedRuleIds.isEmpty()
+                        ? Collections.emptySet() : ruleService.loadByIds(changedRuleIds);
+                final Collection<PipelineDao> loadedPipelines = changedPipelineIds.isEmpty()
+                        ? Collections.emptySet() : pipelineService.loadByIds(changedPipelineIds);
+                final Collection<PipelineConnections> loadedConnections = changedStreamIds.isEmpty()
+                        ? Collections.emptySet() : connectionsService.loadByStreamIds(changedStreamIds);
+                update(rules, changedRuleIds, loadedRules, RuleDao::id);
+                update(pipelines, changedPipelineIds, loadedPipelines, PipelineDao::id);
+                update(connections, changedStreamIds, loadedConnections, PipelineConnections::streamId);
+                changes = Changes.create(false, changedRuleIds, changedPipelineIds, changedStreamIds);
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to load pipeline configuration, keeping the previously loaded one", e);
+            return Changes.create(false, Collections.emptySet(), Collections.emptySet(), Collections.emptySet());
+        }
+        changedRuleIds.clear();
+        changedPipelineIds.clear();
+        changedStreamIds.clear();
+        return changes;
+    }
+
+    /**
+     * Hashes the processing relevant content of the snapshot, i.e. the ids and sources of the rules and pipelines and
+     * the stream connections. Nodes which loaded the same configuration compute the same hash, regardless of the order
+     * or the number of reloads it took them.
+     *
+     * @return the hash of the loaded configuration
+     */
+    synchronized long contentHash() {
+        final Hasher hasher = Hashing.murmur3_128().newHasher();
+        new TreeMap<>(rules).forEach((id, rule) -> putStrings(hasher, "rule", id, rule.source()));
+        new TreeMap<>(pipelines).forEach((id, pipeline) -> putStrings(hasher, "pipeline", id, pipeline.source()));
+        new TreeMap<>(connections).forEach((streamId, connection) -> {
+            putStrings(hasher, "connection", streamId);
+            new TreeSet<>(connection.pipelineIds()).forEach(pipelineId -> putStrings(hasher, pipelineId));
+        });
+        return hasher.hash().asLong();
+    }
+
+    // terminates each string, so that different splits of the same characters have different hashes
+    private static void putStrings(Hasher hasher, String... strings) {
+        for (String string : strings) {
+            hasher.putString(Strings.nullToEmpty(string), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+    }
+
+    synchronized Collection<RuleDao> rules() {
+        return Collections.unmodifiableCollection(rules.values());
+    }
+
+    synchronized Collection<PipelineDao> pipelines() {
+        return Collections.unmodifiableCollection(pipelines.values());
+    }
+
+    synchronized Collection<PipelineConnections> connections() {
+        return Collections.unmodifiableCollection(connections.values());
+    }
+
+    @Nullable
+    synchronized RuleDao rule(String id) {
+        return rules.get(id);
+    }
+
+    @Nullable
+    synchronized PipelineDao pipeline(String id) {
+        return pipelines.get(id);
+    }
+
+    private static <T> void replace(Map<String, T> snapshot, Collection<T> loaded, Function<T, String> key) {
+        snapshot.clear();
+        loaded.forEach(value -> snapshot.put(key.apply(value), value));
+    }
+
+    private static <T> void update(Map<String, T> snapshot, Set<String> changedKeys, Collection<T> loaded, Function<T, String> key) {
+        changedKeys.forEach(snapshot::remove);
+        loaded.forEach(value -> snapshot.put(key.apply(value), value));
+    }
+
+    // the newest modification time in the snapshot, documents without one can only be found by their id
+    private static <T> DateTime modifiedSince(Collection<T> values, Function<T, DateTime> modifiedAt) {
+        final DateTime newest = values.stream()
+                .map(modifiedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(new DateTime(0L, DateTimeZone.UTC));
+        return newest.minus(MODIFICATION_CLOCK_SKEW);
+    }
+
+    private static <T> void queueDifferences(Map<String, T> snapshot,
+                                             Set<String> currentKeys,
+                                             Collection<T> modified,
+                                             Function<T, String> key,
+                                             Set<String> changedKeys) {
+        changedKeys.addAll(Sets.difference(snapshot.keySet(), currentKeys));
+        changedKeys.addAll(Sets.difference(currentKeys, snapshot.keySet()));
+        modified.stream()
+                .filter(value -> !value.equals(snapshot.get(key.apply(value))))
+                .forEach(value -> changedKeys.add(key.apply(value)));
+    }
+
+    @AutoValue
+    abstract static class Changes {
+        /**
+         * @return true if everything has been loaded, which happens on the first refresh
+         */
+        abstract boolean full();
+
+        abstract ImmutableSet<String> ruleIds();
+
+        abstract ImmutableSet<String> pipelineIds();
+
+        abstract ImmutableSet<String> streamIds();
+
+        static Changes create(boolean full, Set<String> ruleIds, Set<String> pipelineIds, Set<String> streamIds) {
+            return new AutoValue_ConfigurationSnapshot_Changes(full,
+                    ImmutableSet.copyOf(ruleIds),
+                    ImmutableSet.copyOf(pipelineIds),
+                    ImmutableSet.copyOf(streamIds));
+        }
+    }
+}
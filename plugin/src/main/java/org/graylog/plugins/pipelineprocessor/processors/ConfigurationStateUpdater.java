@@ -1,20 +1,22 @@
 package org.graylog.plugins.pipelineprocessor.processors;
 
+import com.github.joschi.jadconfig.util.Duration;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 
-import com.codahale.metrics.MetricRegistry;
-
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog.plugins.pipelineprocessor.ast.Rule;
 import org.graylog.plugins.pipelineprocessor.codegen.PipelineClassloader;
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
 import org.graylog.plugins.pipelineprocessor.db.PipelineService;
 import org.graylog.plugins.pipelineprocessor.db.PipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
 import org.graylog.plugins.pipelineprocessor.db.RuleService;
 import org.graylog.plugins.pipelineprocessor.events.PipelineConnectionsChangedEvent;
 import org.graylog.plugins.pipelineprocessor.events.PipelinesChangedEvent;
@@ -26,9 +28,11 @@ import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -40,17 +44,13 @@ import javax.inject.Named;
 import javax.inject.Singleton;
 import javax.tools.ToolProvider;
 
-import static com.codahale.metrics.MetricRegistry.name;
-
 @Singleton
 public class ConfigurationStateUpdater {
     private static final Logger log = LoggerFactory.getLogger(ConfigurationStateUpdater.class);
 
-    private final RuleService ruleService;
-    private final PipelineService pipelineService;
-    private final PipelineStreamConnectionsService pipelineStreamConnectionsService;
+    private final ConfigurationSnapshot snapshot;
     private final PipelineRuleParser pipelineRuleParser;
-    private final MetricRegistry metricRegistry;
+    private final PipelineMetrics pipelineMetrics;
     private final FunctionRegistry functionRegistry;
     private final ScheduledExecutorService scheduler;
     private final EventBus serverEventBus;
@@ -59,6 +59,13 @@ public class ConfigurationStateUpdater {
      * non-null if the update has successfully loaded a state
      */
     private final AtomicReference<PipelineInterpreter.State> latestState = new AtomicReference<>();
+    // the parsed rules by id and the resolved pipelines by id of the latest state, only used while reloading
+    private final Map<String, Rule> parsedRules = Maps.newHashMap();
+    private final Map<String, Pipeline> resolvedPipelines = Maps.newHashMap();
+    private volatile RuleDependencyGraph dependencyGraph = RuleDependencyGraph.empty();
+    // the content hash of the configuration the latest state was built from, and the number of states built so far
+    private volatile long configurationVersion;
+    private volatile long reloadCount;
     private static boolean allowCodeGeneration = false;
 
     @Inject
@@ -66,17 +73,16 @@ public class ConfigurationStateUpdater {
                                      PipelineService pipelineService,
                                      PipelineStreamConnectionsService pipelineStreamConnectionsService,
                                      PipelineRuleParser pipelineRuleParser,
-                                     MetricRegistry metricRegistry,
+                                     PipelineMetrics pipelineMetrics,
                                      FunctionRegistry functionRegistry,
                                      @Named("daemonScheduler") ScheduledExecutorService scheduler,
                                      EventBus serverEventBus,
                                      PipelineInterpreter.State.Factory stateFactory,
-                                     @Named("generate_native_code") boolean allowCodeGeneration) {
-        this.ruleService = ruleService;
-        this.pipelineService = pipelineService;
-        this.pipelineStreamConnectionsService = pipelineStreamConnectionsService;
+                                     @Named("generate_native_code") boolean allowCodeGeneration,
+                                     @Named("pipeline_configuration_resync_interval") Duration resyncInterval) {
+        this.snapshot = new ConfigurationSnapshot(ruleService, pipelineService, pipelineStreamConnectionsService);
         this.pipelineRuleParser = pipelineRuleParser;
-        this.metricRegistry = metricRegistry;
+        this.pipelineMetrics = pipelineMetrics;
         this.functionRegistry = functionRegistry;
         this.scheduler = scheduler;
         this.serverEventBus = serverEventBus;
@@ -88,6 +94,10 @@ public class ConfigurationStateUpdater {
         serverEventBus.register(this);
 
         reloadAndSave();
+
+        // picks up writes which did not post a change event
+        final long resyncMillis = resyncInterval.toMilliseconds();
+        scheduler.scheduleAtFixedRate(this::resync, resyncMillis, resyncMillis, TimeUnit.MILLISECONDS);
     }
 
     private static void setAllowCodeGeneration(Boolean allowCodeGeneration) {
@@ -110,21 +120,53 @@ public class ConfigurationStateUpdater {
         // this classloader will hold all generated rule classes
         PipelineClassloader commonClassLoader = allowCodeGeneration ? new PipelineClassloader() : null;
 
-        // read all rules and parse them
-        Map<String, Rule> ruleNameMap = Maps.newHashMap();
-        ruleService.loadAll().forEach(ruleDao -> {
+        // only fetches what changed since the last reload
+        final ConfigurationSnapshot.Changes changes = snapshot.refresh();
+        // generated rules belong to the new classloader, so nothing can be kept
+        final boolean full = changes.full() || allowCodeGeneration;
+        if (full) {
+            parsedRules.clear();
+            resolvedPipelines.clear();
+        }
+
+        // parse the changed rules, remembering their previous and current names to find the pipelines referring to them
+        final Set<String> changedRuleNames = Sets.newHashSet();
+        final Collection<String> changedRuleIds = full
+                ? snapshot.rules().stream().map(RuleDao::id).collect(Collectors.toList())
+                : changes.ruleIds();
+        changedRuleIds.forEach(ruleId -> {
+            final Rule previous = parsedRules.remove(ruleId);
+            if (previous != null) {
+                changedRuleNames.add(previous.name());
+            }
+            final RuleDao ruleDao = snapshot.rule(ruleId);
+            if (ruleDao == null) {
+                return;
+            }
             Rule rule;
             try {
                 rule = pipelineRuleParser.parseRule(ruleDao.id(), ruleDao.source(), false, commonClassLoader);
             } catch (ParseException e) {
                 rule = Rule.alwaysFalse("Failed to parse rule: " + ruleDao.id());
             }
-            ruleNameMap.put(rule.name(), rule);
+            parsedRules.put(ruleId, rule);
+            changedRuleNames.add(rule.name());
         });
+        final Map<String, Rule> ruleNameMap = Maps.newHashMap();
+        parsedRules.values().forEach(rule -> ruleNameMap.put(rule.name(), rule));
 
-        // read all pipelines and parse them
-        ImmutableMap.Builder<String, Pipeline> pipelineIdMap = ImmutableMap.builder();
-        pipelineService.loadAll().forEach(pipelineDao -> {
+        // parse and resolve the changed pipelines and those referring to changed rules, all others are kept as they are
+        final Set<String> changedPipelineIds = Sets.newHashSet(changes.pipelineIds());
+        changedPipelineIds.addAll(dependencyGraph.pipelinesReferencing(changedRuleNames));
+        if (full) {
+            snapshot.pipelines().forEach(pipelineDao -> changedPipelineIds.add(pipelineDao.id()));
+        }
+        changedPipelineIds.forEach(pipelineId -> {
+            resolvedPipelines.remove(pipelineId);
+            final PipelineDao pipelineDao = snapshot.pipeline(pipelineId);
+            if (pipelineDao == null) {
+                return;
+            }
             Pipeline pipeline;
             try {
                 pipeline = pipelineRuleParser.parsePipeline(pipelineDao.id(), pipelineDao.source());
@@ -132,22 +174,30 @@ public class ConfigurationStateUpdater {
                 pipeline = Pipeline.empty("Failed to parse pipeline" + pipelineDao.id());
             }
             //noinspection ConstantConditions
-            pipelineIdMap.put(pipelineDao.id(), resolvePipeline(pipeline, ruleNameMap));
+            resolvedPipelines.put(pipelineId, resolvePipeline(pipeline, ruleNameMap));
         });
+        log.debug("Resolved {} of {} pipelines", changedPipelineIds.size(), resolvedPipelines.size());
 
-        final ImmutableMap<String, Pipeline> currentPipelines = pipelineIdMap.build();
+        final ImmutableMap<String, Pipeline> currentPipelines = ImmutableMap.copyOf(resolvedPipelines);
 
         // read all stream connections of those pipelines to allow processing messages through them
         final HashMultimap<String, Pipeline> connections = HashMultimap.create();
-        for (PipelineConnections streamConnection : pipelineStreamConnectionsService.loadAll()) {
+        for (PipelineConnections streamConnection : snapshot.connections()) {
             streamConnection.pipelineIds().stream()
                     .map(currentPipelines::get)
                     .filter(Objects::nonNull)
                     .forEach(pipeline -> connections.put(streamConnection.streamId(), pipeline));
         }
         ImmutableSetMultimap<String, Pipeline> streamPipelineConnections = ImmutableSetMultimap.copyOf(connections);
+        dependencyGraph = RuleDependencyGraph.build(currentPipelines, streamPipelineConnections);
 
         final PipelineInterpreter.State newState = stateFactory.newState(currentPipelines, streamPipelineConnections, commonClassLoader);
+        // build the per stream caches before the processors can see the new state
+        final int configurations = newState.warmUp();
+        configurationVersion = snapshot.contentHash();
+        reloadCount++;
+        log.debug("Warmed up {} stage configurations for pipeline configuration version {}",
+                configurations, Long.toHexString(configurationVersion));
         latestState.set(newState);
         return newState;
     }
@@ -162,6 +212,28 @@ public class ConfigurationStateUpdater {
         return latestState.get();
     }
 
+    /**
+     * @return a hash of the rules, pipelines and stream connections of the latest state, which is the same on all
+     * nodes that loaded the same configuration
+     */
+    public long getConfigurationVersion() {
+        return configurationVersion;
+    }
+
+    /**
+     * @return the number of states built on this node
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * @return the pipeline stages and streams depending on each rule, as of the latest state
+     */
+    public RuleDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
     @Nonnull
     private Pipeline resolvePipeline(Pipeline pipeline, Map<String, Rule> ruleNameMap) {
         log.debug("Resolving pipeline {}", pipeline.name());
@@ -178,25 +250,26 @@ public class ConfigurationStateUpdater {
                         rule = rule.invokableCopy(functionRegistry);
                         log.debug("Resolved rule `{}` to {}", ref, rule);
                         // include back reference to stage
-                        rule.registerMetrics(metricRegistry, pipeline.id(), String.valueOf(stage.stage()));
+                        rule.registerMetrics(pipelineMetrics, pipeline.id(), String.valueOf(stage.stage()));
                         return rule;
                     })
                     .collect(Collectors.toList());
             stage.setRules(resolvedRules);
             stage.setPipeline(pipeline);
-            stage.registerMetrics(metricRegistry, pipeline.id());
+            stage.registerMetrics(pipelineMetrics, pipeline.id());
         });
 
-        pipeline.registerMetrics(metricRegistry);
+        pipeline.registerMetrics(pipelineMetrics);
         return pipeline;
     }
 
-    // TODO avoid reloading everything on every change, certain changes can get away with doing less work
     @Subscribe
     public void handleRuleChanges(RulesChangedEvent event) {
+        snapshot.rulesChanged(event.deletedRuleIds());
+        snapshot.rulesChanged(event.updatedRuleIds());
         event.deletedRuleIds().forEach(id -> {
             log.debug("Invalidated rule {}", id);
-            metricRegistry.removeMatching((name, metric) -> name.startsWith(name(Rule.class, id)));
+            pipelineMetrics.removeRule(id);
         });
         event.updatedRuleIds().forEach(id -> log.debug("Refreshing rule {}", id));
         scheduler.schedule(() -> serverEventBus.post(reloadAndSave()), 0, TimeUnit.SECONDS);
@@ -204,9 +277,11 @@ public class ConfigurationStateUpdater {
 
     @Subscribe
     public void handlePipelineChanges(PipelinesChangedEvent event) {
+        snapshot.pipelinesChanged(event.deletedPipelineIds());
+        snapshot.pipelinesChanged(event.updatedPipelineIds());
         event.deletedPipelineIds().forEach(id -> {
             log.debug("Invalidated pipeline {}", id);
-            metricRegistry.removeMatching((name, metric) -> name.startsWith(name(Pipeline.class, id)));
+            pipelineMetrics.removePipeline(id);
         });
         event.updatedPipelineIds().forEach(id -> log.debug("Refreshing pipeline {}", id));
         scheduler.schedule(() -> serverEventBus.post(reloadAndSave()), 0, TimeUnit.SECONDS);
@@ -215,9 +290,21 @@ public class ConfigurationStateUpdater {
     @Subscribe
     public void handlePipelineConnectionChanges(PipelineConnectionsChangedEvent event) {
         log.debug("Pipeline stream connection changed: {}", event);
+        snapshot.connectionsChanged(event.streamId());
         scheduler.schedule(() -> serverEventBus.post(reloadAndSave()), 0, TimeUnit.SECONDS);
     }
 
+    private void resync() {
+        try {
+            if (snapshot.resync()) {
+                serverEventBus.post(reloadAndSave());
+            }
+        } catch (RuntimeException e) {
+            // keep the periodic resync alive
+            log.error("Unable to resynchronize pipeline configuration", e);
+        }
+    }
+
     @VisibleForTesting
     PipelineInterpreter.State reload() {
         return reloadAndSave();
@@ -28,9 +28,11 @@ import com.google.common.collect.Sets;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.github.joschi.jadconfig.util.Duration;
 
 import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
@@ -50,7 +52,6 @@ import org.graylog2.shared.buffers.processors.ProcessBufferProcessor;
 import org.graylog2.shared.journal.Journal;
 import org.graylog2.shared.metrics.MetricUtils;
 import org.graylog2.shared.utilities.ExceptionUtils;
-import org.jooq.lambda.tuple.Tuple2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,7 +59,11 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -66,7 +71,6 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import static com.codahale.metrics.MetricRegistry.name;
-import static org.jooq.lambda.tuple.Tuple.tuple;
 
 public class PipelineInterpreter implements MessageProcessor {
     private static final Logger log = LoggerFactory.getLogger(PipelineInterpreter.class);
@@ -77,16 +81,46 @@ public class PipelineInterpreter implements MessageProcessor {
     private final Meter filteredOutMessages;
     private final Timer executionTime;
     private final ConfigurationStateUpdater stateUpdater;
+    private final boolean parallelBatchProcessing;
+    private final int parallelBatchThreshold;
+    private final boolean parallelStageExecution;
+    private final RuleCircuitBreaker circuitBreaker;
+    private final long budgetNanos;
+    private final int budgetIterations;
+    private final Meter timeBudgetExceeded;
+    private final Meter iterationBudgetExceeded;
+    private final Meter skippedRules;
+    private final Meter concurrentSlices;
 
     @Inject
     public PipelineInterpreter(Journal journal,
                                MetricRegistry metricRegistry,
-                               ConfigurationStateUpdater stateUpdater) {
+                               ConfigurationStateUpdater stateUpdater,
+                               @Named("parallel_batch_processing") boolean parallelBatchProcessing,
+                               @Named("parallel_batch_threshold") int parallelBatchThreshold,
+                               @Named("parallel_stage_execution") boolean parallelStageExecution,
+                               RuleCircuitBreaker circuitBreaker,
+                               @Named("processing_budget_time") Duration budgetTime,
+                               @Named("processing_budget_iterations") int budgetIterations) {
 
         this.journal = journal;
         this.filteredOutMessages = metricRegistry.meter(name(ProcessBufferProcessor.class, "filteredOutMessages"));
         this.executionTime = metricRegistry.timer(name(PipelineInterpreter.class, "executionTime"));
         this.stateUpdater = stateUpdater;
+        this.parallelBatchProcessing = parallelBatchProcessing;
+        this.parallelBatchThreshold = parallelBatchThreshold;
+        this.parallelStageExecution = parallelStageExecution;
+        this.circuitBreaker = circuitBreaker;
+        this.budgetNanos = budgetTime.toNanoseconds();
+        this.budgetIterations = budgetIterations;
+        this.timeBudgetExceeded = metricRegistry.meter(name(PipelineInterpreter.class, "timeBudgetExceeded"));
+        this.iterationBudgetExceeded = metricRegistry.meter(name(PipelineInterpreter.class, "iterationBudgetExceeded"));
+        this.skippedRules = metricRegistry.meter(name(PipelineInterpreter.class, "skippedRules"));
+        this.concurrentSlices = metricRegistry.meter(name(PipelineInterpreter.class, "concurrentSlices"));
+        MetricUtils.safelyRegister(metricRegistry, name(PipelineInterpreter.class, "state-version"),
+                (Gauge<Long>) stateUpdater::getConfigurationVersion);
+        MetricUtils.safelyRegister(metricRegistry, name(PipelineInterpreter.class, "state-reloads"),
+                (Gauge<Long>) stateUpdater::getReloadCount);
     }
 
     /**
@@ -97,7 +131,7 @@ public class PipelineInterpreter implements MessageProcessor {
     public Messages process(Messages messages) {
         try (Timer.Context ignored = executionTime.time()) {
             final State latestState = stateUpdater.getLatestState();
-            return process(messages, new NoopInterpreterListener(), latestState);
+            return process(messages, new NoopInterpreterListener(), latestState, parallelBatchProcessing);
         }
     }
 
@@ -105,8 +139,11 @@ public class PipelineInterpreter implements MessageProcessor {
      * Evaluates all pipelines that apply to the given messages, based on the current stream routing
      * of the messages.
      *
-     * The processing loops on each single message (passed in or created by pipelines) until the set
-     * of streams does not change anymore. No cycle detection is performed.
+     * Each message (passed in or created by pipelines) is processed until the set of its streams does
+     * not change anymore. Each round only runs the pipelines of the streams added in the previous round,
+     * and every message-stream combination is processed at most once. In addition each message has a
+     * budget of processing time and rounds. Messages exceeding it are tagged with a processing error and
+     * passed on without running the remaining pipelines.
      *
      * @param messages            the messages to process through the pipelines
      * @param interpreterListener a listener which gets called for each processing stage (e.g. to
@@ -116,50 +153,39 @@ public class PipelineInterpreter implements MessageProcessor {
      * @return the processed messages
      */
     public Messages process(Messages messages, InterpreterListener interpreterListener, State state) {
+        return process(messages, interpreterListener, state, false);
+    }
+
+    /**
+     * Same as {@link #process(Messages, InterpreterListener, State)}, but optionally spreads large batches of
+     * messages over the common fork-join pool.
+     *
+     * Each message is still processed by a single thread, and the order of the returned messages is the same as
+     * for serial processing. The interpreter listener must be thread-safe if parallel processing is enabled.
+     */
+    private Messages process(Messages messages, InterpreterListener interpreterListener, State state, boolean parallel) {
         interpreterListener.startProcessing();
-        // message id + stream id
-        final Set<Tuple2<String, String>> processingBlacklist = Sets.newHashSet();
 
         final List<Message> fullyProcessed = Lists.newArrayList();
         List<Message> toProcess = Lists.newArrayList(messages);
 
+        // messages created by pipelines are processed after the batch they have been created in
         while (!toProcess.isEmpty()) {
-            final MessageCollection currentSet = new MessageCollection(toProcess);
-            // we'll add them back below
-            toProcess.clear();
-
-            for (Message message : currentSet) {
-                final String msgId = message.getId();
-
-                // this makes a copy of the list, which is mutated later in updateStreamBlacklist
-                // it serves as a worklist, to keep track of which <msg, stream> tuples need to be re-run again
-                final Set<String> initialStreamIds = message.getStreams().stream().map(Stream::getId).collect(Collectors.toSet());
-
-                final ImmutableSet<Pipeline> pipelinesToRun = selectPipelines(interpreterListener,
-                        processingBlacklist,
-                        message,
-                        initialStreamIds,
-                        state.getStreamPipelineConnections());
-
-                toProcess.addAll(processForResolvedPipelines(message, msgId, pipelinesToRun, interpreterListener, state));
-
-                // add each processed message-stream combination to the blacklist set and figure out if the processing
-                // has added a stream to the message, in which case we need to cycle and determine whether to process
-                // its pipeline connections, too
-                boolean addedStreams = updateStreamBlacklist(processingBlacklist,
-                        message,
-                        initialStreamIds);
-                potentiallyDropFilteredMessage(message);
-
-                // go to 1 and iterate over all messages again until no more streams are being assigned
-                if (!addedStreams || message.getFilterOut()) {
-                    log.debug("[{}] no new streams matches or dropped message, not running again", msgId);
-                    fullyProcessed.add(message);
-                } else {
-                    // process again, we've added a stream
-                    log.debug("[{}] new streams assigned, running again for those streams", msgId);
-                    toProcess.add(message);
-                }
+            final List<Message> currentSet = toProcess;
+
+            final IntStream indexes = parallel && currentSet.size() >= parallelBatchThreshold
+                    ? IntStream.range(0, currentSet.size()).parallel()
+                    : IntStream.range(0, currentSet.size());
+            // collecting an ordered stream keeps the created messages in batch order
+            final List<List<Message>> createdMessages = indexes
+                    .mapToObj(i -> processMessage(currentSet.get(i), interpreterListener, state))
+                    .collect(Collectors.toList());
+
+            // collect the results in the original message order, regardless of how they were processed
+            fullyProcessed.addAll(currentSet);
+            toProcess = Lists.newArrayList();
+            for (List<Message> created : createdMessages) {
+                toProcess.addAll(created);
             }
         }
 
@@ -168,6 +194,75 @@ public class PipelineInterpreter implements MessageProcessor {
         return new MessageCollection(fullyProcessed);
     }
 
+    // runs the message through the pipelines of its streams, and again through the pipelines of the streams
+    // those pipelines routed it to, until no more streams with pipeline connections are added
+    private List<Message> processMessage(Message message, InterpreterListener interpreterListener, State state) {
+        final String msgId = message.getId();
+        final MessageBudget budget = newBudget(true);
+        final List<Message> createdMessages = new ArrayList<>();
+        // stream ids this message has already been processed for
+        final Set<String> processedStreamIds = Sets.newHashSet();
+
+        while (true) {
+            budget.iterations++;
+
+            // this makes a copy of the list, which is mutated later in updateProcessedStreams
+            // it serves as a worklist, to keep track of which streams need to be processed
+            final Set<String> initialStreamIds = message.getStreams().stream().map(Stream::getId).collect(Collectors.toSet());
+
+            final ImmutableSet<Pipeline> pipelinesToRun = selectPipelines(interpreterListener,
+                    processedStreamIds,
+                    message,
+                    initialStreamIds,
+                    state.getStreamPipelineConnections());
+
+            createdMessages.addAll(processForResolvedPipelines(message, msgId, pipelinesToRun, interpreterListener, state, budget));
+
+            // add each processed stream to the processed set and figure out if the processing has added a stream with
+            // pipeline connections to the message, in which case we need to run those pipelines, too
+            final boolean addedStreams = updateProcessedStreams(processedStreamIds,
+                    message,
+                    initialStreamIds,
+                    state.getStreamPipelineConnections());
+            potentiallyDropFilteredMessage(message);
+
+            if (!addedStreams || message.getFilterOut() || budget.exhausted) {
+                log.debug("[{}] no new streams matches, dropped message or exceeded budget, not running again", msgId);
+                return createdMessages;
+            }
+            if (budget.iterations >= budgetIterations) {
+                log.debug("[{}] exceeded the budget of {} iterations, not running again", msgId, budgetIterations);
+                iterationBudgetExceeded.mark();
+                appendProcessingError(message, "Exceeded the processing budget of " + budgetIterations
+                        + " iterations, skipping pipelines of newly assigned streams");
+                return createdMessages;
+            }
+            // process again, we've added a stream
+            log.debug("[{}] new streams assigned, running again for those streams", msgId);
+        }
+    }
+
+    private MessageBudget newBudget(boolean blameRules) {
+        return new MessageBudget(System.nanoTime() + budgetNanos, blameRules);
+    }
+
+    /**
+     * The processing time and loop iterations a single message has used so far. Only the stages of a concurrently
+     * executed slice share it between threads, and they only ever set the exhausted flag.
+     */
+    private static class MessageBudget {
+        private final long deadline;
+        // simulated runs must not disable rules for the messages actually being processed
+        private final boolean blameRules;
+        private int iterations;
+        private volatile boolean exhausted;
+
+        private MessageBudget(long deadline, boolean blameRules) {
+            this.deadline = deadline;
+            this.blameRules = blameRules;
+        }
+    }
+
     private void potentiallyDropFilteredMessage(Message message) {
         if (message.getFilterOut()) {
             log.debug("[{}] marked message to be discarded. Dropping message.", message.getId());
@@ -177,18 +272,20 @@ public class PipelineInterpreter implements MessageProcessor {
     }
 
     // given the initial streams the message was on before the processing and its current state, update the set of
-    // <msgid, stream> that should not be run again (which prevents re-running pipelines over and over again)
-    private boolean updateStreamBlacklist(Set<Tuple2<String, String>> processingBlacklist,
-                                          Message message,
-                                          Set<String> initialStreamIds) {
+    // streams that should not be run again (which prevents re-running pipelines over and over again)
+    private boolean updateProcessedStreams(Set<String> processedStreamIds,
+                                           Message message,
+                                           Set<String> initialStreamIds,
+                                           ImmutableSetMultimap<String, Pipeline> streamConnection) {
         boolean addedStreams = false;
         for (Stream stream : message.getStreams()) {
             if (!initialStreamIds.remove(stream.getId())) {
-                addedStreams = true;
+                // streams without pipelines do not need another round
+                addedStreams |= streamConnection.containsKey(stream.getId());
             } else {
-                // only add pre-existing streams to blacklist, this has the effect of only adding already processed streams,
-                // not newly added ones.
-                processingBlacklist.add(tuple(message.getId(), stream.getId()));
+                // only add pre-existing streams to the processed set, this has the effect of only adding already
+                // processed streams, not newly added ones.
+                processedStreamIds.add(stream.getId());
             }
         }
         return addedStreams;
@@ -197,7 +294,7 @@ public class PipelineInterpreter implements MessageProcessor {
     // determine which pipelines should be executed give the stream-pipeline connections and the current message
     // the initialStreamIds are not mutated, but are begin passed for efficiency, as they are being used later in #process()
     private ImmutableSet<Pipeline> selectPipelines(InterpreterListener interpreterListener,
-                                                   Set<Tuple2<String, String>> processingBlacklist,
+                                                   Set<String> processedStreamIds,
                                                    Message message,
                                                    Set<String> initialStreamIds,
                                                    ImmutableSetMultimap<String, Pipeline> streamConnection) {
@@ -205,7 +302,7 @@ public class PipelineInterpreter implements MessageProcessor {
 
         // if a message-stream combination has already been processed (is in the set), skip that execution
         final Set<String> streamsIds = initialStreamIds.stream()
-                .filter(streamId -> !processingBlacklist.contains(tuple(msgId, streamId)))
+                .filter(streamId -> !processedStreamIds.contains(streamId))
                 .filter(streamConnection::containsKey)
                 .collect(Collectors.toSet());
         final ImmutableSet<Pipeline> pipelinesToRun = ImmutableSet.copyOf(streamsIds.stream()
@@ -223,7 +320,8 @@ public class PipelineInterpreter implements MessageProcessor {
      * look at the database or any other external resource besides what is being passed as
      * parameters.
      *
-     * This can be used to simulate pipelines without having to store them in the database.
+     * This can be used to simulate pipelines without having to store them in the database. Rules exceeding the
+     * processing budget here are not reported to the {@link RuleCircuitBreaker}.
      *
      * @param message             the message to process
      * @param pipelineIds         the ids of the pipelines to resolve and run the message through
@@ -241,39 +339,80 @@ public class PipelineInterpreter implements MessageProcessor {
                 .filter(pipeline -> pipeline != null)
                 .collect(Collectors.toSet()));
 
-        return processForResolvedPipelines(message, message.getId(), pipelinesToRun, interpreterListener, state);
+        return processForResolvedPipelines(message, message.getId(), pipelinesToRun, interpreterListener, state, newBudget(false));
     }
 
     private List<Message> processForResolvedPipelines(Message message,
                                                       String msgId,
                                                       Set<Pipeline> pipelines,
                                                       InterpreterListener interpreterListener,
-                                                      State state) {
+                                                      State state,
+                                                      MessageBudget budget) {
         final List<Message> result = new ArrayList<>();
         // record execution of pipeline in metrics
         pipelines.forEach(Pipeline::markExecution);
 
-        final StageIterator stages = state.getStageIterator(pipelines);
-        final Set<Pipeline> pipelinesToSkip = Sets.newHashSet();
+        final StageIterator.Configuration plan = state.getStagePlan(pipelines);
+        final Stage[][] stageSlices = plan.slices();
+        // listeners are not required to be thread-safe, so tracing and simulation always run serially
+        final boolean parallel = parallelStageExecution && interpreterListener instanceof NoopInterpreterListener;
+        final Set<Pipeline> pipelinesToSkip = parallel ? Sets.newConcurrentHashSet() : Sets.newHashSet();
 
         // iterate through all stages for all matching pipelines, per "stage slice" instead of per pipeline.
         // pipeline execution ordering is not guaranteed
-        while (stages.hasNext()) {
-            final List<Stage> stageSet = stages.next();
-            for (final Stage stage : stageSet)
-                evaluateStage(stage, message, msgId, result, pipelinesToSkip, interpreterListener);
+        for (int i = 0; i < stageSlices.length && !budget.exhausted; i++) {
+            if (parallel && plan.fieldAccess().isIndependent(i)) {
+                evaluateSliceConcurrently(stageSlices[i], message, msgId, result, pipelinesToSkip, interpreterListener,
+                        budget);
+                continue;
+            }
+            for (final Stage stage : stageSlices[i]) {
+                if (budget.exhausted) {
+                    break;
+                }
+                evaluateStage(stage, message, msgId, result, pipelinesToSkip, interpreterListener, budget, null);
+            }
         }
 
         // 7. return the processed messages
         return result;
     }
 
+    // runs the stages of a slice without conflicting field accesses on the common fork-join pool, the messages they
+    // create are collected in the order of the slice, like they would be when running serially.
+    // the stages never access the same fields, but the fields of a message are not thread-safe: the stages only lock
+    // the message while actually reading or changing it, see EvaluationContext#guardMessages
+    private void evaluateSliceConcurrently(Stage[] slice,
+                                           Message message,
+                                           String msgId,
+                                           List<Message> result,
+                                           Set<Pipeline> pipelinesToSkip,
+                                           InterpreterListener interpreterListener,
+                                           MessageBudget budget) {
+        concurrentSlices.mark();
+        final ReadWriteLock messageLock = new ReentrantReadWriteLock();
+        final List<List<Message>> createdMessages = IntStream.range(0, slice.length).parallel()
+                .mapToObj(i -> {
+                    final List<Message> stageResult = new ArrayList<>();
+                    if (!budget.exhausted) {
+                        evaluateStage(slice[i], message, msgId, stageResult, pipelinesToSkip, interpreterListener, budget, messageLock);
+                    }
+                    return stageResult;
+                })
+                .collect(Collectors.toList());
+        for (List<Message> created : createdMessages) {
+            result.addAll(created);
+        }
+    }
+
     private void evaluateStage(Stage stage,
                                Message message,
                                String msgId,
                                List<Message> result,
                                Set<Pipeline> pipelinesToSkip,
-                               InterpreterListener interpreterListener) {
+                               InterpreterListener interpreterListener,
+                               MessageBudget budget,
+                               @Nullable ReadWriteLock messageLock) {
         final Pipeline pipeline = stage.getPipeline();
         if (pipelinesToSkip.contains(pipeline)) {
             log.debug("[{}] previous stage result prevents further processing of pipeline `{}`",
@@ -290,19 +429,34 @@ public class PipelineInterpreter implements MessageProcessor {
 
         // TODO the message should be decorated to allow layering changes and isolate stages
         final EvaluationContext context = new EvaluationContext(message);
+        context.guardMessages(messageLock);
 
         // 3. iterate over all the stages in these pipelines and execute them in order
         final ArrayList<Rule> rulesToRun = Lists.newArrayListWithCapacity(stage.getRules().size());
         boolean anyRulesMatched = false;
         for (Rule rule : stage.getRules()) {
+            if (circuitBreaker.isOpen(rule)) {
+                log.debug("[{}] rule `{}` is temporarily disabled, skipping it", msgId, rule.name());
+                skippedRules.mark();
+                continue;
+            }
             anyRulesMatched |= evaluateRuleCondition(rule, message, msgId, pipeline, context, rulesToRun, interpreterListener);
+            if (exceededBudget(rule, message, msgId, budget, context)) {
+                break;
+            }
         }
 
-        for (Rule rule : rulesToRun)
-            if (!executeRuleActions(rule, message, msgId, pipeline, context, interpreterListener)) {
-                // if any of the rules raise an error, skip the rest of the rules
-                break;
+        if (!budget.exhausted) {
+            for (Rule rule : rulesToRun) {
+                if (!executeRuleActions(rule, message, msgId, pipeline, context, interpreterListener)) {
+                    // if any of the rules raise an error, skip the rest of the rules
+                    break;
+                }
+                if (exceededBudget(rule, message, msgId, budget, context)) {
+                    break;
+                }
             }
+        }
         // stage needed to match all rule conditions to enable the next stage,
         // record that it is ok to proceed with this pipeline
         // OR
@@ -346,7 +500,7 @@ public class PipelineInterpreter implements MessageProcessor {
                 return true;
             } catch (Exception ignored) {
                 final EvaluationContext.EvalError lastError = Iterables.getLast(context.evaluationErrors());
-                appendProcessingError(rule, message, lastError.toString());
+                appendProcessingError(rule, message, lastError.toString(), context);
                 log.debug("Encountered evaluation error, skipping rest of the rule: {}", lastError);
                 rule.markFailure();
                 return false;
@@ -373,7 +527,7 @@ public class PipelineInterpreter implements MessageProcessor {
         if (context.hasEvaluationErrors()) {
             // if the last statement resulted in an error, do not continue to execute this rules
             final EvaluationContext.EvalError lastError = Iterables.getLast(context.evaluationErrors());
-            appendProcessingError(rule, message, lastError.toString());
+            appendProcessingError(rule, message, lastError.toString(), context);
             interpreterListener.failExecuteRule(rule, pipeline);
             log.debug("Encountered evaluation error, skipping rest of the rule: {}",
                     lastError);
@@ -391,13 +545,15 @@ public class PipelineInterpreter implements MessageProcessor {
                                           ArrayList<Rule> rulesToRun, InterpreterListener interpreterListener) {
         interpreterListener.evaluateRule(rule, pipeline);
         final GeneratedRule generatedRule = rule.generatedRule();
-        boolean matched = generatedRule != null ? generatedRule.when(context) : rule.when().evaluateBool(context);
+        // conditions requiring absent fields cannot match, there is no need to evaluate them
+        final boolean matched = hasRequiredFields(rule, message, context)
+                && (generatedRule != null ? generatedRule.when(context) : rule.when().evaluateBool(context));
         if (matched) {
             rule.markMatch();
 
             if (context.hasEvaluationErrors()) {
                 final EvaluationContext.EvalError lastError = Iterables.getLast(context.evaluationErrors());
-                appendProcessingError(rule, message, lastError.toString());
+                appendProcessingError(rule, message, lastError.toString(), context);
                 interpreterListener.failEvaluateRule(rule, pipeline);
                 log.debug("Encountered evaluation error during condition, skipping rule actions: {}",
                         lastError);
@@ -415,8 +571,35 @@ public class PipelineInterpreter implements MessageProcessor {
         return false;
     }
 
-    private void appendProcessingError(Rule rule, Message message, String errorString) {
-        final String msg = "For rule '" + rule.name() + "': " + errorString;
+    private static boolean hasRequiredFields(Rule rule, Message message, EvaluationContext context) {
+        final Set<String> requiredFields = rule.fieldAccess().requiredFields();
+        if (requiredFields.isEmpty()) {
+            return true;
+        }
+        return context.readMessage(() -> requiredFields.stream().allMatch(message::hasField));
+    }
+
+    // blames the given rule if the message ran out of processing time while evaluating it
+    private boolean exceededBudget(Rule rule, Message message, String msgId, MessageBudget budget, EvaluationContext context) {
+        if (System.nanoTime() - budget.deadline < 0) {
+            return false;
+        }
+        log.debug("[{}] exceeded the processing time budget in rule `{}`, skipping the remaining pipelines", msgId, rule.name());
+        budget.exhausted = true;
+        if (budget.blameRules) {
+            timeBudgetExceeded.mark();
+            circuitBreaker.recordViolation(rule);
+        }
+        appendProcessingError(rule, message, "Exceeded the processing time budget of "
+                + TimeUnit.NANOSECONDS.toMillis(budgetNanos) + "ms, skipping the remaining pipelines", context);
+        return true;
+    }
+
+    private void appendProcessingError(Rule rule, Message message, String errorString, EvaluationContext context) {
+        context.updateMessage(() -> appendProcessingError(message, "For rule '" + rule.name() + "': " + errorString));
+    }
+
+    private void appendProcessingError(Message message, String msg) {
         if (message.hasField(GL2_PROCESSING_ERROR)) {
             message.addField(GL2_PROCESSING_ERROR, message.getFieldAs(String.class, GL2_PROCESSING_ERROR) + "," + msg);
         } else {
@@ -468,8 +651,10 @@ public class PipelineInterpreter implements MessageProcessor {
                     });
 
             // we have to remove the metrics, because otherwise we leak references to the cache (and the register call with throw)
-            metricRegistry.removeMatching((name, metric) -> name.startsWith(name(PipelineInterpreter.class,"stage-cache")));
-            MetricUtils.safelyRegisterAll(metricRegistry, new CacheStatsSet(name(PipelineInterpreter.class, "stage-cache"), cache));
+            // the stats set knows the names of its metrics, so there is no need to scan the entire registry
+            final CacheStatsSet cacheStats = new CacheStatsSet(name(PipelineInterpreter.class, "stage-cache"), cache);
+            cacheStats.getMetrics().keySet().forEach(metricRegistry::remove);
+            MetricUtils.safelyRegisterAll(metricRegistry, cacheStats);
         }
 
         public ImmutableMap<String, Pipeline> getCurrentPipelines() {
@@ -480,20 +665,39 @@ public class PipelineInterpreter implements MessageProcessor {
             return streamPipelineConnections;
         }
 
-        public StageIterator getStageIterator(Set<Pipeline> pipelines) {
+        /**
+         * Prepares the stage iterator configurations for the pipelines connected to each stream, so that the first
+         * messages processed with this state do not have to build them.
+         *
+         * @return the number of configurations that were built
+         */
+        public int warmUp() {
+            if (!cachedIterators) {
+                return 0;
+            }
+            final Set<Set<Pipeline>> pipelineSets = streamPipelineConnections.asMap().values().stream()
+                    .map(ImmutableSet::copyOf)
+                    .collect(Collectors.toSet());
+            pipelineSets.forEach(cache::getUnchecked);
+            return pipelineSets.size();
+        }
+
+        /**
+         * @return the precomputed stage slices for the given pipelines
+         */
+        public StageIterator.Configuration getStagePlan(Set<Pipeline> pipelines) {
             try {
                 if (cachedIterators) {
-                    return new StageIterator(cache.get(pipelines));
+                    return cache.get(pipelines);
                 } else {
-                    return new StageIterator(pipelines);
+                    return new StageIterator.Configuration(pipelines);
                 }
             } catch (ExecutionException e) {
-                LOG.error("Unable to get StageIterator from cache, this should not happen.", ExceptionUtils.getRootCause(e));
-                return new StageIterator(pipelines);
+                LOG.error("Unable to get stage plan from cache, this should not happen.", ExceptionUtils.getRootCause(e));
+                return new StageIterator.Configuration(pipelines);
             }
         }
 
-
         public interface Factory {
             State newState(ImmutableMap<String, Pipeline> currentPipelines,
                            ImmutableSetMultimap<String, Pipeline> streamPipelineConnections,
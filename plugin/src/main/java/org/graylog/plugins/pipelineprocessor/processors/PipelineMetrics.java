@@ -0,0 +1,367 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.ValidationException;
+import com.github.joschi.jadconfig.Validator;
+
+import org.graylog.plugins.pipelineprocessor.ast.ExecutionMetrics;
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Maps.newConcurrentMap;
+
+/**
+ * Creates the execution meters of pipelines, stages and rules.
+ *
+ * In the default {@link Mode#METERS meters} mode every execution marks its meters directly. Because marking a
+ * {@link Meter} reads the clock, the {@link Mode#COUNTERS counters} mode only increments striped counters while
+ * processing messages, which are periodically folded into the meters.
+ *
+ * The {@link Granularity#GLOBAL global} granularity skips the metrics of individual stages, including the per-stage
+ * metrics of rules.
+ */
+@Singleton
+public class PipelineMetrics implements ExecutionMetrics {
+    private static final Marker NOOP = () -> {};
+    private static final String[] PIPELINE_TYPES = {"executed"};
+    private static final String[] RULE_TYPES = {"executed", "failed", "matched", "not-matched"};
+
+    public enum Mode {
+        METERS, COUNTERS
+    }
+
+    public enum Granularity {
+        GLOBAL, STAGE
+    }
+
+    /**
+     * Validates the <code>pipeline_metrics_mode</code> setting.
+     */
+    public static class ModeValidator extends EnumValidator<Mode> {
+        public ModeValidator() {
+            super(Mode.class);
+        }
+    }
+
+    /**
+     * Validates the <code>pipeline_metrics_granularity</code> setting.
+     */
+    public static class GranularityValidator extends EnumValidator<Granularity> {
+        public GranularityValidator() {
+            super(Granularity.class);
+        }
+    }
+
+    // accepts the constant names of an enum regardless of their case
+    abstract static class EnumValidator<E extends Enum<E>> implements Validator<String> {
+        private final Class<E> type;
+
+        EnumValidator(Class<E> type) {
+            this.type = type;
+        }
+
+        @Override
+        public void validate(String name, String value) throws ValidationException {
+            final Set<String> allowed = Arrays.stream(type.getEnumConstants())
+                    .map(constant -> constant.name().toLowerCase(Locale.ENGLISH))
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            if (value == null || !allowed.contains(value.toLowerCase(Locale.ENGLISH))) {
+                throw new ValidationException("Parameter " + name + " must be one of " + allowed + " (found " + value + ")");
+            }
+        }
+    }
+
+    private final MetricRegistry metricRegistry;
+    private final Mode mode;
+    private final Granularity granularity;
+    private final ConcurrentMap<Key, Markers> markers = newConcurrentMap();
+    private final ConcurrentMap<String, CountingMarker> counters = newConcurrentMap();
+
+    @Inject
+    public PipelineMetrics(MetricRegistry metricRegistry,
+                           @Named("pipeline_metrics_mode") String mode,
+                           @Named("pipeline_metrics_granularity") String granularity,
+                           @Named("daemonScheduler") ScheduledExecutorService scheduler) {
+        this(metricRegistry,
+                Mode.valueOf(mode.toUpperCase(Locale.ENGLISH)),
+                Granularity.valueOf(granularity.toUpperCase(Locale.ENGLISH)),
+                scheduler);
+    }
+
+    public PipelineMetrics(MetricRegistry metricRegistry,
+                           Mode mode,
+                           Granularity granularity,
+                           @Nullable ScheduledExecutorService scheduler) {
+        this.metricRegistry = metricRegistry;
+        this.mode = mode;
+        this.granularity = granularity;
+        if (mode == Mode.COUNTERS) {
+            checkArgument(scheduler != null, "Counting pipeline metrics need a scheduler");
+            scheduler.scheduleAtFixedRate(this::fold, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Meters with per-stage granularity, for tests and tools that do not read the configuration.
+     */
+    public static PipelineMetrics meters(MetricRegistry metricRegistry) {
+        return new PipelineMetrics(metricRegistry, Mode.METERS, Granularity.STAGE, null);
+    }
+
+    public boolean hasStageGranularity() {
+        return granularity == Granularity.STAGE;
+    }
+
+    /**
+     * The markers are cached by the ids they belong to, so reloading unchanged pipelines and rules reuses them
+     * without looking up or even naming the meters again.
+     *
+     * @param pipelineId the id of the pipeline
+     * @return the markers of the pipeline
+     */
+    @Override
+    public Markers pipelineMarkers(String pipelineId) {
+        return markers(Key.create(null, pipelineId, null), PIPELINE_TYPES);
+    }
+
+    /**
+     * @param pipelineId the id of the pipeline
+     * @param stage      the number of the stage
+     * @return the markers of the stage, which do nothing unless the granularity is per stage
+     */
+    @Override
+    public Markers stageMarkers(String pipelineId, String stage) {
+        if (!hasStageGranularity()) {
+            return MeterMarkers.NOOP;
+        }
+        return markers(Key.create(null, pipelineId, stage), PIPELINE_TYPES);
+    }
+
+    /**
+     * @param ruleId the id of the rule
+     * @return the markers of the rule across all pipelines
+     */
+    @Override
+    public Markers ruleMarkers(String ruleId) {
+        return markers(Key.create(ruleId, null, null), RULE_TYPES);
+    }
+
+    /**
+     * @param ruleId     the id of the rule
+     * @param pipelineId the id of the pipeline using the rule
+     * @param stage      the number of the stage using the rule
+     * @return the markers of the rule in the given stage, which do nothing unless the granularity is per stage
+     */
+    @Override
+    public Markers ruleMarkers(String ruleId, String pipelineId, String stage) {
+        if (!hasStageGranularity()) {
+            return MeterMarkers.NOOP;
+        }
+        return markers(Key.create(ruleId, pipelineId, stage), RULE_TYPES);
+    }
+
+    /**
+     * Removes all metrics of the given rule, including those of the stages using it.
+     *
+     * @param ruleId the id of the deleted rule
+     */
+    public void removeRule(String ruleId) {
+        remove(key -> ruleId.equals(key.ruleId()));
+    }
+
+    /**
+     * Removes all metrics of the given pipeline, including those of its stages and of the rules in them.
+     *
+     * @param pipelineId the id of the deleted pipeline
+     */
+    public void removePipeline(String pipelineId) {
+        remove(key -> pipelineId.equals(key.pipelineId()));
+    }
+
+    private Markers markers(Key key, String[] types) {
+        final Markers existing = markers.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        return markers.computeIfAbsent(key, k -> {
+            final ImmutableMap.Builder<String, Marker> builder = ImmutableMap.builder();
+            for (String type : types) {
+                builder.put(type, marker(k.metricName(type)));
+            }
+            return new MeterMarkers(builder.build());
+        });
+    }
+
+    private Marker marker(String name) {
+        final Meter meter = metricRegistry.meter(name);
+        if (mode == Mode.METERS) {
+            return new MeterMarker(name, meter);
+        }
+        return counters.computeIfAbsent(name, key -> new CountingMarker(name, meter));
+    }
+
+    // only walks the markers owned by the pipelines, never the whole registry
+    private void remove(Predicate<Key> predicate) {
+        final Iterator<Map.Entry<Key, Markers>> iterator = markers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<Key, Markers> entry = iterator.next();
+            if (predicate.test(entry.getKey())) {
+                iterator.remove();
+                for (String name : entry.getValue().metricNames()) {
+                    counters.remove(name);
+                    metricRegistry.remove(name);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    void fold() {
+        counters.values().forEach(CountingMarker::fold);
+    }
+
+    // the markers of one pipeline, stage or rule, backed by meters
+    private static class MeterMarkers implements Markers {
+        static final Markers NOOP = new MeterMarkers(ImmutableMap.of());
+
+        private final ImmutableMap<String, Marker> markers;
+        private final ImmutableSet<String> metricNames;
+
+        private MeterMarkers(ImmutableMap<String, Marker> markers) {
+            this.markers = markers;
+            this.metricNames = ImmutableSet.copyOf(markers.values().stream()
+                    .map(marker -> ((NamedMarker) marker).name())
+                    .iterator());
+        }
+
+        @Override
+        public Marker get(String type) {
+            return markers.getOrDefault(type, PipelineMetrics.NOOP);
+        }
+
+        @Override
+        public Set<String> metricNames() {
+            return metricNames;
+        }
+    }
+
+    @AutoValue
+    abstract static class Key {
+        @Nullable
+        abstract String ruleId();
+
+        @Nullable
+        abstract String pipelineId();
+
+        @Nullable
+        abstract String stage();
+
+        static Key create(@Nullable String ruleId, @Nullable String pipelineId, @Nullable String stage) {
+            return new AutoValue_PipelineMetrics_Key(ruleId, pipelineId, stage);
+        }
+
+        // keeps the metric names of earlier versions
+        String metricName(String type) {
+            if (ruleId() == null) {
+                return stage() == null
+                        ? name(Pipeline.class, pipelineId(), type)
+                        : name(Pipeline.class, pipelineId(), "stage", stage(), type);
+            }
+            return name(Rule.class, ruleId(), pipelineId(), stage(), type);
+        }
+    }
+
+    private interface NamedMarker extends Marker {
+        String name();
+    }
+
+    private static class MeterMarker implements NamedMarker {
+        private final String name;
+        private final Meter meter;
+
+        private MeterMarker(String name, Meter meter) {
+            this.name = name;
+            this.meter = meter;
+        }
+
+        @Override
+        public void mark() {
+            meter.mark();
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+
+    private static class CountingMarker implements NamedMarker {
+        private final String name;
+        private final Meter meter;
+        private final LongAdder count = new LongAdder();
+
+        private CountingMarker(String name, Meter meter) {
+            this.name = name;
+            this.meter = meter;
+        }
+
+        @Override
+        public void mark() {
+            count.increment();
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        private void fold() {
+            final long delta = count.sumThenReset();
+            if (delta > 0) {
+                meter.mark(delta);
+            }
+        }
+    }
+}
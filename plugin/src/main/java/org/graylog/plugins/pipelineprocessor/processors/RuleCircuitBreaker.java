@@ -0,0 +1,143 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.graylog2.shared.metrics.MetricUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.collect.Maps.newConcurrentMap;
+
+/**
+ * Temporarily disables rules which repeatedly make messages exceed their processing budget.
+ *
+ * Once a rule has been blamed for exceeding the budget {@code rule_circuit_breaker_threshold} times within
+ * {@code rule_circuit_breaker_window}, it is skipped by the interpreter, as if its condition did not match, for
+ * {@code rule_circuit_breaker_cooldown}. Rules are tracked by their id, so the state survives reloading the pipeline
+ * configuration.
+ */
+@Singleton
+public class RuleCircuitBreaker {
+    private static final Logger LOG = LoggerFactory.getLogger(RuleCircuitBreaker.class);
+
+    private final int threshold;
+    private final long windowNanos;
+    private final long cooldownNanos;
+    private final Ticker ticker;
+    private final Meter trippedRules;
+    private final ConcurrentMap<String, RuleState> ruleStates = newConcurrentMap();
+
+    @Inject
+    public RuleCircuitBreaker(MetricRegistry metricRegistry,
+                              @Named("rule_circuit_breaker_threshold") int threshold,
+                              @Named("rule_circuit_breaker_window") Duration window,
+                              @Named("rule_circuit_breaker_cooldown") Duration cooldown) {
+        this(metricRegistry, threshold, window, cooldown, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    RuleCircuitBreaker(MetricRegistry metricRegistry, int threshold, Duration window, Duration cooldown, Ticker ticker) {
+        this.threshold = threshold;
+        this.windowNanos = window.toNanoseconds();
+        this.cooldownNanos = cooldown.toNanoseconds();
+        this.ticker = ticker;
+        this.trippedRules = metricRegistry.meter(name(RuleCircuitBreaker.class, "trippedRules"));
+        MetricUtils.safelyRegister(metricRegistry, name(RuleCircuitBreaker.class, "disabledRules"),
+                (Gauge<Long>) () -> ruleStates.values().stream().filter(this::isDisabled).count());
+    }
+
+    /**
+     * @param rule the rule about to be evaluated
+     * @return true if the rule is currently disabled and must be skipped
+     */
+    public boolean isOpen(Rule rule) {
+        if (ruleStates.isEmpty() || rule.id() == null) {
+            return false;
+        }
+        final RuleState state = ruleStates.get(rule.id());
+        return state != null && isDisabled(state);
+    }
+
+    /**
+     * Records that the given rule was running when a message ran out of processing budget.
+     *
+     * @param rule the rule to blame
+     */
+    public void recordViolation(Rule rule) {
+        if (rule.id() == null) {
+            return;
+        }
+        final long now = ticker.read();
+        final RuleState state = ruleStates.computeIfAbsent(rule.id(), id -> new RuleState(now, threshold));
+        if (state.recordViolation(now, windowNanos)) {
+            state.disabledUntil = now + cooldownNanos;
+            trippedRules.mark();
+            LOG.warn("Rule `{}` ({}) repeatedly exceeded the message processing budget, disabling it for {} seconds",
+                    rule.name(), rule.id(), cooldownNanos / 1_000_000_000L);
+        }
+    }
+
+    private boolean isDisabled(RuleState state) {
+        return ticker.read() - state.disabledUntil < 0;
+    }
+
+    private static class RuleState {
+        // the times of the most recent violations, as a ring buffer of threshold entries
+        private final long[] violations;
+        private int count;
+        private int next;
+        private volatile long disabledUntil;
+
+        private RuleState(long now, int threshold) {
+            this.violations = new long[threshold];
+            this.disabledUntil = now;
+        }
+
+        /**
+         * @return true if this violation is the threshold-th one within the window, which starts a new count
+         */
+        private synchronized boolean recordViolation(long now, long windowNanos) {
+            violations[next] = now;
+            next = (next + 1) % violations.length;
+            if (count < violations.length) {
+                count++;
+            }
+            // after wrapping around, the next slot holds the oldest of the last threshold violations
+            if (count == violations.length && now - violations[next] < windowNanos) {
+                count = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+}
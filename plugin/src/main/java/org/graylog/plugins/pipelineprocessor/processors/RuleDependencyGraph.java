@@ -0,0 +1,106 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Maps;
+
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
+import org.graylog.plugins.pipelineprocessor.ast.Stage;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Static view of which pipeline stages refer to a rule and which streams are connected to those pipelines.
+ *
+ * Rules are referenced by name, and references to rules which don't exist are included as well, because creating such
+ * a rule changes the pipelines referring to it. This is used to only resolve the pipelines affected by a rule change
+ * again and to show the impact of changing a rule before saving it.
+ */
+public class RuleDependencyGraph {
+    private static final RuleDependencyGraph EMPTY = new RuleDependencyGraph(ImmutableMap.of(), ImmutableSetMultimap.of());
+
+    private final ImmutableMap<String, ImmutableSetMultimap<String, Integer>> stagesByRuleName;
+    private final ImmutableSetMultimap<String, String> streamsByPipelineId;
+
+    private RuleDependencyGraph(ImmutableMap<String, ImmutableSetMultimap<String, Integer>> stagesByRuleName,
+                                ImmutableSetMultimap<String, String> streamsByPipelineId) {
+        this.stagesByRuleName = stagesByRuleName;
+        this.streamsByPipelineId = streamsByPipelineId;
+    }
+
+    public static RuleDependencyGraph empty() {
+        return EMPTY;
+    }
+
+    public static RuleDependencyGraph build(Map<String, Pipeline> pipelines,
+                                            ImmutableSetMultimap<String, Pipeline> streamPipelineConnections) {
+        final Map<String, ImmutableSetMultimap.Builder<String, Integer>> stages = Maps.newHashMap();
+        pipelines.forEach((pipelineId, pipeline) -> {
+            for (Stage stage : pipeline.stages()) {
+                for (String ruleName : stage.ruleReferences()) {
+                    stages.computeIfAbsent(ruleName, name -> ImmutableSetMultimap.builder()).put(pipelineId, stage.stage());
+                }
+            }
+        });
+        final ImmutableMap.Builder<String, ImmutableSetMultimap<String, Integer>> stagesByRuleName = ImmutableMap.builder();
+        stages.forEach((ruleName, builder) -> stagesByRuleName.put(ruleName, builder.build()));
+
+        final ImmutableSetMultimap.Builder<String, String> streamsByPipelineId = ImmutableSetMultimap.builder();
+        streamPipelineConnections.forEach((streamId, pipeline) -> streamsByPipelineId.put(pipeline.id(), streamId));
+        return new RuleDependencyGraph(stagesByRuleName.build(), streamsByPipelineId.build());
+    }
+
+    /**
+     * @return the names of all rules referenced by a pipeline
+     */
+    public ImmutableSet<String> ruleNames() {
+        return stagesByRuleName.keySet();
+    }
+
+    /**
+     * @param ruleName the name of the rule
+     * @return the stage numbers referring to the rule, keyed by pipeline id
+     */
+    public ImmutableSetMultimap<String, Integer> stagesReferencing(String ruleName) {
+        final ImmutableSetMultimap<String, Integer> stages = stagesByRuleName.get(ruleName);
+        return stages == null ? ImmutableSetMultimap.of() : stages;
+    }
+
+    /**
+     * @param ruleNames the names of the rules
+     * @return the ids of the pipelines referring to any of the rules
+     */
+    public ImmutableSet<String> pipelinesReferencing(Collection<String> ruleNames) {
+        final ImmutableSet.Builder<String> pipelineIds = ImmutableSet.builder();
+        ruleNames.forEach(ruleName -> pipelineIds.addAll(stagesReferencing(ruleName).keySet()));
+        return pipelineIds.build();
+    }
+
+    /**
+     * @param ruleName the name of the rule
+     * @return the ids of the streams connected to a pipeline referring to the rule
+     */
+    public ImmutableSet<String> streamsReferencing(String ruleName) {
+        final ImmutableSet.Builder<String> streamIds = ImmutableSet.builder();
+        stagesReferencing(ruleName).keySet().forEach(pipelineId -> streamIds.addAll(streamsByPipelineId.get(pipelineId)));
+        return streamIds.build();
+    }
+}
@@ -16,93 +16,119 @@
  */
 package org.graylog.plugins.pipelineprocessor.processors;
 
-import com.google.common.collect.AbstractIterator;
-import com.google.common.collect.ArrayListMultimap;
-
+import org.graylog.plugins.pipelineprocessor.ast.MessageFieldAccess;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog.plugins.pipelineprocessor.ast.Stage;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.SortedSet;
+import java.util.TreeMap;
 
-public class StageIterator extends AbstractIterator<List<Stage>> {
+/**
+ * Iterates over the "stage slices" of a {@link Configuration}, i.e. all stages sharing the same stage number, in
+ * ascending order.
+ */
+public class StageIterator implements Iterator<List<Stage>> {
 
     private final Configuration config;
 
-    // the currentStage is always one before the next one to be returned
-    private int currentStage;
-
+    // index of the next slice to be returned
+    private int position;
 
     public StageIterator(Configuration config) {
         this.config = config;
-        currentStage = config.initialStage();
     }
 
     public StageIterator(Set<Pipeline> pipelines) {
-        this.config = new Configuration(pipelines);
-        currentStage = config.initialStage();
+        this(new Configuration(pipelines));
     }
 
     @Override
-    protected List<Stage> computeNext() {
-        if (currentStage == config.lastStage()) {
-            return endOfData();
+    public boolean hasNext() {
+        return position < config.slices.length;
+    }
+
+    @Override
+    public List<Stage> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
         }
-        do {
-            currentStage++;
-            if (currentStage > config.lastStage()) {
-                return endOfData();
-            }
-        } while (!config.hasStages(currentStage));
-        return config.getStages(currentStage);
+        return Arrays.asList(config.slices[position++]);
     }
 
     public static class Configuration {
-        // first and last stage for the given pipelines
-        private final int[] extent = new int[]{Integer.MAX_VALUE, Integer.MIN_VALUE};
-
-        private final ArrayListMultimap<Integer, Stage> stageMultimap = ArrayListMultimap.create();
+        // only non-empty stage numbers, in ascending order
+        private final Stage[][] slices;
 
-        private final int initialStage;
+        private volatile FieldAccessPlan fieldAccess;
 
         public Configuration(Set<Pipeline> pipelines) {
-            if (pipelines.isEmpty()) {
-                initialStage = extent[0] = extent[1] = 0;
-                return;
-            }
-            pipelines.forEach(pipeline -> {
-                // skip pipelines without any stages, they don't contribute any rules to run
-                final SortedSet<Stage> stages = pipeline.stages();
-                if (stages.isEmpty()) {
-                    return;
-                }
-                extent[0] = Math.min(extent[0], stages.first().stage());
-                extent[1] = Math.max(extent[1], stages.last().stage());
-                stages.forEach(stage -> stageMultimap.put(stage.stage(), stage));
-            });
+            final TreeMap<Integer, List<Stage>> stagesByNumber = new TreeMap<>();
+            // pipelines without any stages don't contribute any rules to run
+            pipelines.forEach(pipeline -> pipeline.stages().forEach(
+                    stage -> stagesByNumber.computeIfAbsent(stage.stage(), n -> new ArrayList<>()).add(stage)));
+            slices = stagesByNumber.values().stream()
+                    .map(stages -> stages.toArray(new Stage[stages.size()]))
+                    .toArray(Stage[][]::new);
+        }
 
-            if (extent[0] == Integer.MIN_VALUE) {
-                throw new IllegalArgumentException("First stage cannot be at " + Integer.MIN_VALUE);
+        /**
+         * @return the field accesses of the stages, only computed when needed for parallel execution
+         */
+        public FieldAccessPlan fieldAccess() {
+            FieldAccessPlan plan = fieldAccess;
+            if (plan == null) {
+                // racing threads compute equal plans, keeping either one is fine
+                plan = fieldAccess = new FieldAccessPlan(slices);
             }
-            // the stage before the first stage.
-            initialStage = extent[0] - 1;
+            return plan;
         }
 
-        public int initialStage() {
-            return initialStage;
+        /**
+         * @return the stage slices in execution order, callers must not modify the arrays
+         */
+        public Stage[][] slices() {
+            return slices;
         }
 
-        public int lastStage() {
-            return extent[1];
+        public int size() {
+            return slices.length;
         }
+    }
 
-        public boolean hasStages(int stage) {
-            return stageMultimap.containsKey(stage);
+    /**
+     * Records which stage slices consist of stages that do not access the same message fields, and can therefore run
+     * concurrently without changing the result, see {@link MessageFieldAccess}.
+     */
+    public static class FieldAccessPlan {
+        private final boolean[] independent;
+
+        private FieldAccessPlan(Stage[][] slices) {
+            independent = new boolean[slices.length];
+            for (int i = 0; i < slices.length; i++) {
+                final Stage[] slice = slices[i];
+                independent[i] = slice.length > 1
+                        && pairwiseIndependent(Arrays.stream(slice).map(Stage::fieldAccess).toArray(MessageFieldAccess[]::new));
+            }
+        }
+
+        private static boolean pairwiseIndependent(MessageFieldAccess[] accesses) {
+            for (int a = 0; a < accesses.length; a++) {
+                for (int b = a + 1; b < accesses.length; b++) {
+                    if (accesses[a].conflictsWith(accesses[b])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
         }
 
-        public List<Stage> getStages(int stage) {
-            return stageMultimap.get(stage);
+        public boolean isIndependent(int slice) {
+            return independent[slice];
         }
     }
 }
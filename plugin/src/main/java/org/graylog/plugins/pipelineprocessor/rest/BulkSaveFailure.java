@@ -0,0 +1,107 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes why a bulk save was rejected or stopped part-way, and which documents have been saved nonetheless.
+ */
+@AutoValue
+@JsonAutoDetect
+public abstract class BulkSaveFailure {
+    @JsonProperty
+    public abstract Set<String> savedIds();
+
+    @JsonProperty
+    public abstract List<Error> errors();
+
+    @JsonCreator
+    public static BulkSaveFailure create(@JsonProperty("saved_ids") Set<String> savedIds,
+                                         @JsonProperty("errors") List<Error> errors) {
+        return new AutoValue_BulkSaveFailure(savedIds, errors);
+    }
+
+    /**
+     * Finds the titles which would violate the unique title index, before anything is written.
+     *
+     * A title belonging to another saved document is a conflict even if that document is renamed in the same request,
+     * because the documents are written one after the other.
+     *
+     * @param ids         the ids of the documents to save, null for new documents
+     * @param titles      the titles of the documents to save
+     * @param takenTitles the ids of the saved documents by title
+     * @return null if there are no conflicts
+     */
+    @Nullable
+    public static BulkSaveFailure titleConflicts(List<String> ids, List<String> titles, Map<String, String> takenTitles) {
+        final List<Error> errors = Lists.newArrayList();
+        final Set<String> seen = Sets.newHashSet();
+        for (int i = 0; i < titles.size(); i++) {
+            final String title = titles.get(i);
+            final String owner = takenTitles.get(title);
+            if (!seen.add(title)) {
+                errors.add(Error.create(i, title, "Duplicate title in request"));
+            } else if (owner != null && !owner.equals(ids.get(i))) {
+                errors.add(Error.create(i, title, "Title is already used by " + owner));
+            }
+        }
+        return errors.isEmpty() ? null : create(Collections.emptySet(), errors);
+    }
+
+    public static BulkSaveFailure fromException(BulkSaveException e, List<String> titles) {
+        final List<Error> errors = e.errors().entrySet().stream()
+                .map(error -> Error.create(error.getKey(), titles.get(error.getKey()), error.getValue()))
+                .collect(Collectors.toList());
+        return create(Sets.newHashSet(e.savedIds()), errors);
+    }
+
+    @AutoValue
+    @JsonAutoDetect
+    public abstract static class Error {
+        @JsonProperty
+        public abstract int index();
+
+        @JsonProperty
+        public abstract String title();
+
+        @JsonProperty
+        public abstract String message();
+
+        @JsonCreator
+        public static Error create(@JsonProperty("index") int index,
+                                   @JsonProperty("title") String title,
+                                   @JsonProperty("message") String message) {
+            return new AutoValue_BulkSaveFailure_Error(index, title, message);
+        }
+    }
+}
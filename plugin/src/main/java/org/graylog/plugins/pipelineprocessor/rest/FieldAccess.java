@@ -0,0 +1,62 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+import org.graylog.plugins.pipelineprocessor.ast.MessageFieldAccess;
+
+import java.util.Set;
+
+@AutoValue
+@JsonAutoDetect
+public abstract class FieldAccess {
+    @JsonProperty
+    public abstract Set<String> reads();
+
+    @JsonProperty
+    public abstract Set<String> writes();
+
+    @JsonProperty
+    public abstract Set<String> writePrefixes();
+
+    @JsonProperty
+    public abstract boolean readsAllFields();
+
+    @JsonProperty
+    public abstract boolean writesAllFields();
+
+    @JsonCreator
+    public static FieldAccess create(@JsonProperty("reads") Set<String> reads,
+                                     @JsonProperty("writes") Set<String> writes,
+                                     @JsonProperty("write_prefixes") Set<String> writePrefixes,
+                                     @JsonProperty("reads_all_fields") boolean readsAllFields,
+                                     @JsonProperty("writes_all_fields") boolean writesAllFields) {
+        return new AutoValue_FieldAccess(reads, writes, writePrefixes, readsAllFields, writesAllFields);
+    }
+
+    public static FieldAccess fromAccess(MessageFieldAccess access) {
+        return create(access.reads(),
+                access.writes(),
+                access.writePrefixes(),
+                access.readsAllFields(),
+                access.writesAllFields());
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
+import org.graylog.plugins.pipelineprocessor.ast.Stage;
+import org.graylog.plugins.pipelineprocessor.ast.MessageFieldAccess;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+@AutoValue
+@JsonAutoDetect
+public abstract class PipelineFieldAccess {
+    @JsonProperty
+    public abstract String pipelineId();
+
+    @JsonProperty
+    public abstract String pipelineName();
+
+    @JsonProperty
+    public abstract FieldAccess fields();
+
+    @JsonProperty
+    public abstract Map<Integer, FieldAccess> stages();
+
+    @JsonProperty
+    public abstract List<DeadWrite> deadWrites();
+
+    @JsonCreator
+    public static PipelineFieldAccess create(@JsonProperty("pipeline_id") String pipelineId,
+                                             @JsonProperty("pipeline_name") String pipelineName,
+                                             @JsonProperty("fields") FieldAccess fields,
+                                             @JsonProperty("stages") Map<Integer, FieldAccess> stages,
+                                             @JsonProperty("dead_writes") List<DeadWrite> deadWrites) {
+        return new AutoValue_PipelineFieldAccess(pipelineId, pipelineName, fields, stages, deadWrites);
+    }
+
+    public static PipelineFieldAccess fromPipeline(Pipeline pipeline) {
+        final Map<Integer, FieldAccess> stages = new TreeMap<>();
+        for (Stage stage : pipeline.stages()) {
+            stages.put(stage.stage(), FieldAccess.fromAccess(stage.fieldAccess()));
+        }
+        return create(pipeline.id(),
+                pipeline.name(),
+                FieldAccess.fromAccess(pipeline.fieldAccess()),
+                stages,
+                MessageFieldAccess.deadWrites(pipeline).stream().map(DeadWrite::fromDeadWrite).collect(Collectors.toList()));
+    }
+
+    @AutoValue
+    @JsonAutoDetect
+    public abstract static class DeadWrite {
+        @JsonProperty
+        public abstract String field();
+
+        @JsonProperty
+        public abstract int stage();
+
+        @JsonProperty
+        public abstract String ruleName();
+
+        @JsonProperty
+        public abstract int overwritingStage();
+
+        @JsonProperty
+        public abstract String overwritingRuleName();
+
+        @JsonCreator
+        public static DeadWrite create(@JsonProperty("field") String field,
+                                       @JsonProperty("stage") int stage,
+                                       @JsonProperty("rule_name") String ruleName,
+                                       @JsonProperty("overwriting_stage") int overwritingStage,
+                                       @JsonProperty("overwriting_rule_name") String overwritingRuleName) {
+            return new AutoValue_PipelineFieldAccess_DeadWrite(field, stage, ruleName, overwritingStage, overwritingRuleName);
+        }
+
+        public static DeadWrite fromDeadWrite(MessageFieldAccess.DeadWrite deadWrite) {
+            return create(deadWrite.field(),
+                    deadWrite.stage(),
+                    deadWrite.ruleName(),
+                    deadWrite.overwritingStage(),
+                    deadWrite.overwritingRuleName());
+        }
+    }
+}
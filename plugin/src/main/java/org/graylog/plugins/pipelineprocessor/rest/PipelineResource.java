@@ -17,6 +17,7 @@
 package org.graylog.plugins.pipelineprocessor.rest;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -25,11 +26,13 @@ import org.apache.shiro.authz.annotation.RequiresAuthentication;
 import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog.plugins.pipelineprocessor.audit.PipelineProcessorAuditEventTypes;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
 import org.graylog.plugins.pipelineprocessor.db.PipelineService;
 import org.graylog.plugins.pipelineprocessor.events.PipelinesChangedEvent;
 import org.graylog.plugins.pipelineprocessor.parser.ParseException;
 import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.processors.ConfigurationStateUpdater;
 import org.graylog2.audit.jersey.AuditEvent;
 import org.graylog2.audit.jersey.NoAuditEvent;
 import org.graylog2.database.NotFoundException;
@@ -43,6 +46,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -55,6 +59,11 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Api(value = "Pipelines/Pipelines", description = "Pipelines for the pipeline message processor")
 @Path("/system/pipelines/pipeline")
@@ -68,14 +77,17 @@ public class PipelineResource extends RestResource implements PluginRestResource
     private final PipelineService pipelineService;
     private final PipelineRuleParser pipelineRuleParser;
     private final EventBus clusterBus;
+    private final ConfigurationStateUpdater pipelineStateUpdater;
 
     @Inject
     public PipelineResource(PipelineService pipelineService,
                         PipelineRuleParser pipelineRuleParser,
-                        ClusterEventBus clusterBus) {
+                        ClusterEventBus clusterBus,
+                        ConfigurationStateUpdater pipelineStateUpdater) {
         this.pipelineService = pipelineService;
         this.pipelineRuleParser = pipelineRuleParser;
         this.clusterBus = clusterBus;
+        this.pipelineStateUpdater = pipelineStateUpdater;
     }
 
     @ApiOperation(value = "Create a processing pipeline from source", notes = "")
@@ -145,6 +157,19 @@ public class PipelineResource extends RestResource implements PluginRestResource
         return PipelineSource.fromDao(pipelineRuleParser, dao);
     }
 
+    @ApiOperation(value = "Get the message fields a processing pipeline reads and writes",
+            notes = "Includes writes that are always overwritten by a later stage, as of the configuration last loaded on this node")
+    @Path("/{id}/fields")
+    @GET
+    public PipelineFieldAccess getFieldAccess(@ApiParam(name = "id") @PathParam("id") String id) throws NotFoundException {
+        checkPermission(PipelineRestPermissions.PIPELINE_READ, id);
+        final Pipeline pipeline = pipelineStateUpdater.getLatestState().getCurrentPipelines().get(id);
+        if (pipeline == null) {
+            throw new NotFoundException("No pipeline with id " + id + " is currently loaded");
+        }
+        return PipelineFieldAccess.fromPipeline(pipeline);
+    }
+
     @ApiOperation(value = "Modify a processing pipeline", notes = "It can take up to a second until the change is applied")
     @Path("/{id}")
     @PUT
@@ -172,6 +197,100 @@ public class PipelineResource extends RestResource implements PluginRestResource
         return PipelineSource.fromDao(pipelineRuleParser, savedPipeline);
     }
 
+    @ApiOperation(value = "Create or modify processing pipelines in bulk",
+            notes = "Pipelines with an id are modified, all others are created. Nothing is saved unless all pipelines " +
+                    "are valid and their titles are unused, and the change is applied with a single reload.")
+    @Path("/bulk")
+    @POST
+    @AuditEvent(type = PipelineProcessorAuditEventTypes.PIPELINE_BULK_UPDATE)
+    public Collection<PipelineSource> bulkSave(@ApiParam(name = "pipelines", required = true) @NotNull List<PipelineSource> pipelineSources) throws NotFoundException {
+        final Set<String> updatedIds = Sets.newHashSet();
+        for (PipelineSource pipelineSource : pipelineSources) {
+            if (pipelineSource.id() == null) {
+                checkPermission(PipelineRestPermissions.PIPELINE_CREATE);
+            } else {
+                checkPermission(PipelineRestPermissions.PIPELINE_EDIT, pipelineSource.id());
+                updatedIds.add(pipelineSource.id());
+            }
+        }
+        final Map<String, PipelineDao> existing = pipelineService.loadByIds(updatedIds).stream()
+                .collect(Collectors.toMap(PipelineDao::id, dao -> dao));
+        for (String id : updatedIds) {
+            if (!existing.containsKey(id)) {
+                throw new NotFoundException("No pipeline with id " + id);
+            }
+        }
+
+        // the sources are independent of each other, so they can be validated at the same time
+        final List<PipelineSource> parsed = pipelineSources.parallelStream()
+                .map(pipelineSource -> {
+                    try {
+                        final Pipeline pipeline = pipelineRuleParser.parsePipeline(pipelineSource.id(), pipelineSource.source());
+                        return pipelineSource.toBuilder().title(pipeline.name()).build();
+                    } catch (ParseException e) {
+                        return pipelineSource.toBuilder().errors(e.getErrors()).build();
+                    }
+                })
+                .collect(Collectors.toList());
+        if (parsed.stream().anyMatch(pipelineSource -> pipelineSource.errors() != null)) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST).entity(parsed).build());
+        }
+        // the unique title index would otherwise stop the bulk write part-way
+        final List<String> titles = parsed.stream().map(PipelineSource::title).collect(Collectors.toList());
+        final Map<String, String> takenTitles = pipelineService.loadNamed(titles).stream()
+                .collect(Collectors.toMap(PipelineDao::title, PipelineDao::id));
+        final BulkSaveFailure conflicts = BulkSaveFailure.titleConflicts(
+                parsed.stream().map(PipelineSource::id).collect(Collectors.toList()), titles, takenTitles);
+        if (conflicts != null) {
+            throw new ClientErrorException(Response.status(Response.Status.CONFLICT).entity(conflicts).build());
+        }
+
+        final List<PipelineDao> toSave = parsed.stream()
+                .map(pipelineSource -> {
+                    final PipelineDao.Builder builder = pipelineSource.id() == null
+                            ? PipelineDao.builder().createdAt(DateTime.now())
+                            : existing.get(pipelineSource.id()).toBuilder();
+                    return builder
+                            .title(pipelineSource.title())
+                            .description(pipelineSource.description())
+                            .source(pipelineSource.source())
+                            .modifiedAt(DateTime.now())
+                            .build();
+                })
+                .collect(Collectors.toList());
+        final Collection<PipelineDao> saved;
+        try {
+            saved = pipelineService.saveAll(toSave);
+        } catch (BulkSaveException e) {
+            // announce what has been written, so that all nodes load it
+            if (!e.savedIds().isEmpty()) {
+                clusterBus.post(PipelinesChangedEvent.create(Collections.emptySet(), Sets.newHashSet(e.savedIds())));
+            }
+            log.warn("Saved only {} of {} pipelines in bulk: {}", e.savedIds().size(), toSave.size(), e.errors());
+            throw new ClientErrorException(Response.status(Response.Status.CONFLICT)
+                    .entity(BulkSaveFailure.fromException(e, titles))
+                    .build());
+        }
+
+        final Set<String> savedIds = saved.stream().map(PipelineDao::id).collect(Collectors.toSet());
+        clusterBus.post(PipelinesChangedEvent.create(Collections.emptySet(), savedIds));
+        log.debug("Saved {} pipelines in bulk", saved.size());
+
+        return saved.stream()
+                .map(dao -> PipelineSource.fromDao(pipelineRuleParser, dao))
+                .collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Delete processing pipelines in bulk", notes = "The change is applied with a single reload.")
+    @Path("/bulk/delete")
+    @POST
+    @AuditEvent(type = PipelineProcessorAuditEventTypes.PIPELINE_BULK_DELETE)
+    public void bulkDelete(@ApiParam(name = "pipelines", required = true) @NotNull BulkDeleteRequest request) {
+        request.ids().forEach(id -> checkPermission(PipelineRestPermissions.PIPELINE_DELETE, id));
+        pipelineService.deleteAll(request.ids());
+        clusterBus.post(PipelinesChangedEvent.create(request.ids(), Collections.emptySet()));
+    }
+
     @ApiOperation(value = "Delete a processing pipeline", notes = "It can take up to a second until the change is applied")
     @Path("/{id}")
     @DELETE
@@ -0,0 +1,63 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimaps;
+
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.processors.RuleDependencyGraph;
+
+import java.util.Map;
+import java.util.Set;
+
+@AutoValue
+@JsonAutoDetect
+public abstract class RuleDependents {
+    @JsonProperty
+    public abstract String ruleId();
+
+    @JsonProperty
+    public abstract String ruleName();
+
+    @JsonProperty
+    public abstract Map<String, Set<Integer>> pipelineStages();
+
+    @JsonProperty
+    public abstract Set<String> streamIds();
+
+    @JsonCreator
+    public static RuleDependents create(@JsonProperty("rule_id") String ruleId,
+                                        @JsonProperty("rule_name") String ruleName,
+                                        @JsonProperty("pipeline_stages") Map<String, Set<Integer>> pipelineStages,
+                                        @JsonProperty("stream_ids") Set<String> streamIds) {
+        return new AutoValue_RuleDependents(ruleId, ruleName, pipelineStages, streamIds);
+    }
+
+    public static RuleDependents fromGraph(RuleDependencyGraph graph, RuleDao ruleDao) {
+        // the title of a saved rule is always the name from its source
+        final String ruleName = ruleDao.title();
+        return create(ruleDao.id(),
+                ruleName,
+                ImmutableMap.copyOf(Multimaps.asMap(graph.stagesReferencing(ruleName))),
+                graph.streamsReferencing(ruleName));
+    }
+}
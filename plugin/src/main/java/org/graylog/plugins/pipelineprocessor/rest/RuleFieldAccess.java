@@ -0,0 +1,64 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.rest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.auto.value.AutoValue;
+
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.graylog.plugins.pipelineprocessor.ast.MessageFieldAccess;
+
+import java.util.Set;
+
+@AutoValue
+@JsonAutoDetect
+public abstract class RuleFieldAccess {
+    @JsonProperty
+    public abstract String ruleId();
+
+    @JsonProperty
+    public abstract String ruleName();
+
+    @JsonProperty
+    public abstract FieldAccess condition();
+
+    @JsonProperty
+    public abstract FieldAccess actions();
+
+    @JsonProperty
+    public abstract Set<String> requiredFields();
+
+    @JsonCreator
+    public static RuleFieldAccess create(@JsonProperty("rule_id") String ruleId,
+                                         @JsonProperty("rule_name") String ruleName,
+                                         @JsonProperty("condition") FieldAccess condition,
+                                         @JsonProperty("actions") FieldAccess actions,
+                                         @JsonProperty("required_fields") Set<String> requiredFields) {
+        return new AutoValue_RuleFieldAccess(ruleId, ruleName, condition, actions, requiredFields);
+    }
+
+    public static RuleFieldAccess fromRule(Rule rule) {
+        final MessageFieldAccess.RuleAccess access = rule.fieldAccess();
+        return create(rule.id(),
+                rule.name(),
+                FieldAccess.fromAccess(access.condition()),
+                FieldAccess.fromAccess(access.actions()),
+                access.requiredFields());
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.graylog.plugins.pipelineprocessor.rest;
 
+import com.google.common.collect.Sets;
 import com.google.common.eventbus.EventBus;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -25,12 +26,15 @@ import org.apache.shiro.authz.annotation.RequiresPermissions;
 import org.graylog.plugins.pipelineprocessor.ast.Rule;
 import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
 import org.graylog.plugins.pipelineprocessor.audit.PipelineProcessorAuditEventTypes;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.RuleDao;
 import org.graylog.plugins.pipelineprocessor.db.RuleService;
 import org.graylog.plugins.pipelineprocessor.events.RulesChangedEvent;
 import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
 import org.graylog.plugins.pipelineprocessor.parser.ParseException;
 import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.processors.ConfigurationStateUpdater;
+import org.graylog.plugins.pipelineprocessor.processors.RuleDependencyGraph;
 import org.graylog2.audit.jersey.AuditEvent;
 import org.graylog2.audit.jersey.NoAuditEvent;
 import org.graylog2.database.NotFoundException;
@@ -44,6 +48,7 @@ import org.slf4j.LoggerFactory;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.BadRequestException;
+import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -55,6 +60,10 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Api(value = "Pipelines/Rules", description = "Rules for the pipeline message processor")
@@ -70,16 +79,19 @@ public class RuleResource extends RestResource implements PluginRestResource {
     private final PipelineRuleParser pipelineRuleParser;
     private final EventBus clusterBus;
     private final FunctionRegistry functionRegistry;
+    private final ConfigurationStateUpdater pipelineStateUpdater;
 
     @Inject
     public RuleResource(RuleService ruleService,
                         PipelineRuleParser pipelineRuleParser,
                         ClusterEventBus clusterBus,
-                        FunctionRegistry functionRegistry) {
+                        FunctionRegistry functionRegistry,
+                        ConfigurationStateUpdater pipelineStateUpdater) {
         this.ruleService = ruleService;
         this.pipelineRuleParser = pipelineRuleParser;
         this.clusterBus = clusterBus;
         this.functionRegistry = functionRegistry;
+        this.pipelineStateUpdater = pipelineStateUpdater;
     }
 
 
@@ -160,6 +172,42 @@ public class RuleResource extends RestResource implements PluginRestResource {
                 .collect(Collectors.toList());
     }
 
+    @ApiOperation(value = "Get the pipeline stages and streams depending on all processing rules",
+            notes = "Reflects the configuration last loaded on this node")
+    @Path("/dependents")
+    @GET
+    @RequiresPermissions(PipelineRestPermissions.PIPELINE_RULE_READ)
+    public Collection<RuleDependents> getAllDependents() {
+        final RuleDependencyGraph graph = pipelineStateUpdater.getDependencyGraph();
+        return ruleService.loadAll().stream()
+                .filter(ruleDao -> isPermitted(PipelineRestPermissions.PIPELINE_RULE_READ, ruleDao.id()))
+                .map(ruleDao -> RuleDependents.fromGraph(graph, ruleDao))
+                .collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Get the pipeline stages and streams depending on a processing rule",
+            notes = "Shows which pipelines and streams are affected by changing the rule, as of the configuration last loaded on this node")
+    @Path("/{id}/dependents")
+    @GET
+    public RuleDependents getDependents(@ApiParam(name = "id") @PathParam("id") String id) throws NotFoundException {
+        checkPermission(PipelineRestPermissions.PIPELINE_RULE_READ, id);
+        return RuleDependents.fromGraph(pipelineStateUpdater.getDependencyGraph(), ruleService.load(id));
+    }
+
+    @ApiOperation(value = "Get the message fields a processing rule reads and writes",
+            notes = "Fields are derived from the rule source; dynamic field names show up as reading or writing all fields")
+    @Path("/{id}/fields")
+    @GET
+    public RuleFieldAccess getFieldAccess(@ApiParam(name = "id") @PathParam("id") String id) throws NotFoundException {
+        checkPermission(PipelineRestPermissions.PIPELINE_RULE_READ, id);
+        final RuleDao ruleDao = ruleService.load(id);
+        try {
+            return RuleFieldAccess.fromRule(pipelineRuleParser.parseRule(ruleDao.id(), ruleDao.source(), true));
+        } catch (ParseException e) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST).entity(e.getErrors()).build());
+        }
+    }
+
     @ApiOperation(value = "Modify a processing rule", notes = "It can take up to a second until the change is applied")
     @Path("/{id}")
     @PUT
@@ -189,6 +237,100 @@ public class RuleResource extends RestResource implements PluginRestResource {
         return RuleSource.fromDao(pipelineRuleParser, savedRule);
     }
 
+    @ApiOperation(value = "Create or modify processing rules in bulk",
+            notes = "Rules with an id are modified, all others are created. Nothing is saved unless all rules are valid " +
+                    "and their titles are unused, and the change is applied with a single reload.")
+    @Path("/bulk")
+    @POST
+    @AuditEvent(type = PipelineProcessorAuditEventTypes.RULE_BULK_UPDATE)
+    public Collection<RuleSource> bulkSave(@ApiParam(name = "rules", required = true) @NotNull List<RuleSource> ruleSources) throws NotFoundException {
+        final Set<String> updatedIds = Sets.newHashSet();
+        for (RuleSource ruleSource : ruleSources) {
+            if (ruleSource.id() == null) {
+                checkPermission(PipelineRestPermissions.PIPELINE_RULE_CREATE);
+            } else {
+                checkPermission(PipelineRestPermissions.PIPELINE_RULE_EDIT, ruleSource.id());
+                updatedIds.add(ruleSource.id());
+            }
+        }
+        final Map<String, RuleDao> existing = ruleService.loadByIds(updatedIds).stream()
+                .collect(Collectors.toMap(RuleDao::id, ruleDao -> ruleDao));
+        for (String id : updatedIds) {
+            if (!existing.containsKey(id)) {
+                throw new NotFoundException("No rule with id " + id);
+            }
+        }
+
+        // the sources are independent of each other, so they can be validated at the same time
+        final List<RuleSource> parsed = ruleSources.parallelStream()
+                .map(ruleSource -> {
+                    try {
+                        final Rule rule = pipelineRuleParser.parseRule(ruleSource.id(), ruleSource.source(), false);
+                        return ruleSource.toBuilder().title(rule.name()).build();
+                    } catch (ParseException e) {
+                        return ruleSource.toBuilder().errors(e.getErrors()).build();
+                    }
+                })
+                .collect(Collectors.toList());
+        if (parsed.stream().anyMatch(ruleSource -> ruleSource.errors() != null)) {
+            throw new BadRequestException(Response.status(Response.Status.BAD_REQUEST).entity(parsed).build());
+        }
+        // the unique title index would otherwise stop the bulk write part-way
+        final List<String> titles = parsed.stream().map(RuleSource::title).collect(Collectors.toList());
+        final Map<String, String> takenTitles = ruleService.loadNamed(titles).stream()
+                .collect(Collectors.toMap(RuleDao::title, RuleDao::id));
+        final BulkSaveFailure conflicts = BulkSaveFailure.titleConflicts(
+                parsed.stream().map(RuleSource::id).collect(Collectors.toList()), titles, takenTitles);
+        if (conflicts != null) {
+            throw new ClientErrorException(Response.status(Response.Status.CONFLICT).entity(conflicts).build());
+        }
+
+        final List<RuleDao> toSave = parsed.stream()
+                .map(ruleSource -> {
+                    final RuleDao.Builder builder = ruleSource.id() == null
+                            ? RuleDao.builder().createdAt(DateTime.now())
+                            : existing.get(ruleSource.id()).toBuilder();
+                    return builder
+                            .title(ruleSource.title())
+                            .description(ruleSource.description())
+                            .source(ruleSource.source())
+                            .modifiedAt(DateTime.now())
+                            .build();
+                })
+                .collect(Collectors.toList());
+        final Collection<RuleDao> saved;
+        try {
+            saved = ruleService.saveAll(toSave);
+        } catch (BulkSaveException e) {
+            // announce what has been written, so that all nodes load it
+            if (!e.savedIds().isEmpty()) {
+                clusterBus.post(RulesChangedEvent.create(Collections.emptySet(), Sets.newHashSet(e.savedIds())));
+            }
+            log.warn("Saved only {} of {} rules in bulk: {}", e.savedIds().size(), toSave.size(), e.errors());
+            throw new ClientErrorException(Response.status(Response.Status.CONFLICT)
+                    .entity(BulkSaveFailure.fromException(e, titles))
+                    .build());
+        }
+
+        final Set<String> savedIds = saved.stream().map(RuleDao::id).collect(Collectors.toSet());
+        clusterBus.post(RulesChangedEvent.create(Collections.emptySet(), savedIds));
+        log.debug("Saved {} rules in bulk", saved.size());
+
+        return saved.stream()
+                .map(ruleDao -> RuleSource.fromDao(pipelineRuleParser, ruleDao))
+                .collect(Collectors.toList());
+    }
+
+    @ApiOperation(value = "Delete processing rules in bulk", notes = "The change is applied with a single reload.")
+    @Path("/bulk/delete")
+    @POST
+    @AuditEvent(type = PipelineProcessorAuditEventTypes.RULE_BULK_DELETE)
+    public void bulkDelete(@ApiParam(name = "rules", required = true) @NotNull BulkDeleteRequest request) {
+        request.ids().forEach(id -> checkPermission(PipelineRestPermissions.PIPELINE_RULE_DELETE, id));
+        ruleService.deleteAll(request.ids());
+        clusterBus.post(RulesChangedEvent.create(request.ids(), Collections.emptySet()));
+    }
+
     @ApiOperation(value = "Delete a processing rule", notes = "It can take up to a second until the change is applied")
     @Path("/{id}")
     @DELETE
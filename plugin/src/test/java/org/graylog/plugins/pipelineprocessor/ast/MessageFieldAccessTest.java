@@ -0,0 +1,157 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.ast;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.codegen.CodeGenerator;
+import org.graylog.plugins.pipelineprocessor.codegen.compiler.JavaCompiler;
+import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.RemoveField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetFields;
+import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
+import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MessageFieldAccessTest {
+
+    private PipelineRuleParser parser;
+
+    @Before
+    public void setup() {
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put(HasField.NAME, new HasField());
+        functions.put(SetField.NAME, new SetField());
+        functions.put(SetFields.NAME, new SetFields());
+        functions.put(RemoveField.NAME, new RemoveField());
+        functions.put(StringConversion.NAME, new StringConversion());
+        parser = new PipelineRuleParser(new FunctionRegistry(functions), new CodeGenerator(JavaCompiler::new));
+    }
+
+    @Test
+    public void constantFieldNames() {
+        final MessageFieldAccess.RuleAccess access = MessageFieldAccess.of(rule(
+                "when has_field(\"x\")\n" +
+                "then\n" +
+                "  set_field(field: \"y\", value: to_string($message.z), prefix: \"p_\");\n" +
+                "  remove_field(\"w\");\n"));
+
+        assertThat(access.condition().reads()).containsOnly("x");
+        assertThat(access.condition().isWriting()).isFalse();
+        assertThat(access.statement(0).reads()).containsOnly("z");
+        assertThat(access.statement(0).writes()).containsOnly("p_y");
+        assertThat(access.statement(1).reads()).isEmpty();
+        assertThat(access.statement(1).writes()).containsOnly("w");
+        assertThat(access.all().readsAllFields()).isFalse();
+        assertThat(access.all().writesAllFields()).isFalse();
+    }
+
+    @Test
+    public void conflicts() {
+        final MessageFieldAccess writesY = MessageFieldAccess.of(rule("when true then set_field(\"y\", 1);\n")).all();
+        final MessageFieldAccess readsY = MessageFieldAccess.of(rule("when has_field(\"y\") then\n")).all();
+        final MessageFieldAccess writesZ = MessageFieldAccess.of(rule("when has_field(\"x\") then set_field(\"z\", 1);\n")).all();
+        final MessageFieldAccess computed = MessageFieldAccess.of(rule("when true then set_field(to_string($message.name), 1);\n")).all();
+
+        assertThat(writesY.conflictsWith(readsY)).isTrue();
+        assertThat(readsY.conflictsWith(writesY)).isTrue();
+        assertThat(writesY.conflictsWith(writesZ)).isFalse();
+        assertThat(readsY.conflictsWith(readsY)).isFalse();
+
+        assertThat(computed.writesAllFields()).isTrue();
+        assertThat(computed.conflictsWith(readsY)).isTrue();
+        assertThat(computed.conflictsWith(MessageFieldAccess.none())).isFalse();
+    }
+
+    @Test
+    public void prefixWrites() {
+        final MessageFieldAccess writesA = MessageFieldAccess.of(rule("when true then set_fields({x: 1}, \"a_\");\n")).all();
+        final MessageFieldAccess writesAb = MessageFieldAccess.of(rule("when true then set_fields({x: 1}, \"a_b\");\n")).all();
+        final MessageFieldAccess writesB = MessageFieldAccess.of(rule("when true then set_field(to_string($message.name), 1, \"b_\");\n")).all();
+        final MessageFieldAccess readsAx = MessageFieldAccess.of(rule("when has_field(\"a_x\") then\n")).all();
+        final MessageFieldAccess unprefixed = MessageFieldAccess.of(rule("when true then set_fields({x: 1});\n")).all();
+
+        assertThat(writesA.writePrefixes()).containsOnly("a_");
+        assertThat(writesA.writesAllFields()).isFalse();
+        assertThat(writesB.writePrefixes()).containsOnly("b_");
+        assertThat(writesB.reads()).containsOnly("name");
+        assertThat(unprefixed.writesAllFields()).isTrue();
+
+        assertThat(writesA.conflictsWith(writesB)).isFalse();
+        assertThat(writesA.conflictsWith(writesAb)).isTrue();
+        assertThat(writesAb.conflictsWith(writesA)).isTrue();
+        assertThat(writesA.conflictsWith(readsAx)).isTrue();
+        assertThat(readsAx.conflictsWith(writesA)).isTrue();
+        assertThat(writesB.conflictsWith(readsAx)).isFalse();
+    }
+
+    @Test
+    public void requiredFields() {
+        assertThat(MessageFieldAccess.of(rule(
+                "when has_field(\"x\") && $message.y == \"a\" && to_string($message.z) == \"b\"\nthen\n"))
+                .requiredFields()).containsOnly("x", "y");
+        assertThat(MessageFieldAccess.of(rule("when has_field(\"x\") || has_field(\"y\")\nthen\n"))
+                .requiredFields()).isEmpty();
+        assertThat(MessageFieldAccess.of(rule("when not has_field(\"x\")\nthen\n"))
+                .requiredFields()).isEmpty();
+    }
+
+    @Test
+    public void deadWrites() {
+        final Rule first = rule("first", "when true then set_field(\"x\", 1); set_field(\"y\", 1);\n");
+        final Rule reader = rule("reader", "when has_field(\"y\") then set_field(\"y\", 2);\n");
+        final Rule last = rule("last", "when true then set_field(\"x\", 3); remove_field(\"y\");\n");
+        final Pipeline pipeline = parser.parsePipeline("p",
+                "pipeline \"test\"\n" +
+                "stage 0 match all\n  rule \"first\";\n" +
+                "stage 1 match all\n  rule \"reader\";\n" +
+                "stage 2 match all\n  rule \"last\";\n" +
+                "end");
+        final List<List<Rule>> rules = ImmutableList.of(ImmutableList.of(first), ImmutableList.of(reader), ImmutableList.of(last));
+        int i = 0;
+        for (Stage stage : pipeline.stages()) {
+            stage.setRules(rules.get(i++));
+        }
+
+        final List<MessageFieldAccess.DeadWrite> deadWrites = MessageFieldAccess.deadWrites(pipeline);
+        assertThat(deadWrites).hasSize(2);
+        assertThat(deadWrites.get(0).field()).isEqualTo("x");
+        assertThat(deadWrites.get(0).ruleName()).isEqualTo("first");
+        assertThat(deadWrites.get(0).overwritingStage()).isEqualTo(2);
+        assertThat(deadWrites.get(1).field()).isEqualTo("y");
+        assertThat(deadWrites.get(1).ruleName()).isEqualTo("reader");
+        assertThat(deadWrites.get(1).overwritingRuleName()).isEqualTo("last");
+    }
+
+    private Rule rule(String body) {
+        return rule("test", body);
+    }
+
+    private Rule rule(String name, String body) {
+        return parser.parseRule("rule \"" + name + "\"\n" + body + "end", false);
+    }
+}
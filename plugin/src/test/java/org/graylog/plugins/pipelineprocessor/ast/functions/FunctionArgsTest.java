@@ -0,0 +1,102 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.ast.functions;
+
+import com.google.common.collect.ImmutableMap;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.LongExpression;
+import org.graylog.plugins.pipelineprocessor.ast.expressions.StringExpression;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FunctionArgsTest {
+    private static final Token START = new CommonToken(-1);
+
+    private static final ParameterDescriptor<String, String> SHARED = ParameterDescriptor.string("shared").optional().build();
+
+    @Test
+    public void resolvesParametersToSlots() {
+        final ParameterDescriptor<Long, Long> number = ParameterDescriptor.integer("number").build();
+        final Function<Void> function = function(number, SHARED);
+        final FunctionArgs args = new FunctionArgs(function, ImmutableMap.of("shared", new StringExpression(START, "value")));
+
+        assertThat(args.slot(number)).isEqualTo(0);
+        assertThat(args.slot(SHARED)).isEqualTo(1);
+        assertThat(args.expression(0)).isNull();
+        assertThat(args.expression(1)).isSameAs(args.expression("shared"));
+
+        args.setPreComputedValue("shared", "precomputed");
+        args.setPreComputedValue("__synthetic", 23L);
+        assertThat(args.getPreComputedValue(1)).isEqualTo("precomputed");
+        assertThat(args.getPreComputedValue("shared")).isEqualTo("precomputed");
+        assertThat(args.getPreComputedValue("__synthetic")).isEqualTo(23L);
+        assertThat(SHARED.required(args, EvaluationContext.emptyContext())).isEqualTo("precomputed");
+        assertThat(number.optional(args, EvaluationContext.emptyContext(), 42L)).isEqualTo(42L);
+    }
+
+    @Test
+    public void declaredParametersKnowTheirSlot() {
+        final ParameterDescriptor<Long, Long> number = ParameterDescriptor.integer("number").build();
+        final ParameterDescriptor<String, String> text = ParameterDescriptor.string("text").build();
+        final FunctionArgs args = new FunctionArgs(function(number, text), ImmutableMap.of());
+
+        // the instances held by the function resolve directly, without searching the declared parameters
+        assertThat(number.slot()).isEqualTo(0);
+        assertThat(text.slot()).isEqualTo(1);
+        assertThat(args.param("text")).isSameAs(text);
+        assertThat(args.slot(text)).isEqualTo(text.slot());
+    }
+
+    @Test
+    public void findsParametersDeclaredAtDifferentSlots() {
+        final ParameterDescriptor<Long, Long> number = ParameterDescriptor.integer("number").build();
+        function(number, SHARED);
+        final Function<Void> reordered = function(SHARED, number);
+        final FunctionArgs args = new FunctionArgs(reordered, ImmutableMap.of(
+                "shared", new StringExpression(START, "value"),
+                "number", new LongExpression(START, 1L)));
+
+        assertThat(args.slot(SHARED)).isEqualTo(0);
+        assertThat(args.slot(number)).isEqualTo(1);
+        assertThat(SHARED.required(args, EvaluationContext.emptyContext())).isEqualTo("value");
+        assertThat(number.required(args, EvaluationContext.emptyContext())).isEqualTo(1L);
+        assertThat(args.slot(ParameterDescriptor.string("unknown").build())).isEqualTo(-1);
+    }
+
+    private static Function<Void> function(ParameterDescriptor... params) {
+        final FunctionDescriptor<Void> descriptor = FunctionDescriptor.<Void>builder()
+                .name("test")
+                .returnType(Void.class)
+                .params(params)
+                .build();
+        return new AbstractFunction<Void>() {
+            @Override
+            public Void evaluate(FunctionArgs args, EvaluationContext context) {
+                return null;
+            }
+
+            @Override
+            public FunctionDescriptor<Void> descriptor() {
+                return descriptor;
+            }
+        };
+    }
+}
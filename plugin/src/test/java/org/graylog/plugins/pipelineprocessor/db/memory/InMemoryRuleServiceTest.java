@@ -17,12 +17,15 @@
 package org.graylog.plugins.pipelineprocessor.db.memory;
 
 import com.google.common.collect.ImmutableList;
+import org.graylog.plugins.pipelineprocessor.db.BulkSaveException;
 import org.graylog.plugins.pipelineprocessor.db.RuleDao;
 import org.graylog2.database.NotFoundException;
 import org.joda.time.DateTime;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collection;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
@@ -116,4 +119,38 @@ public class InMemoryRuleServiceTest {
 
         assertThat(service.loadNamed(ImmutableList.of("test3", "test2"))).containsExactlyInAnyOrder(rule2, rule3);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveAndDeleteMultiple() {
+        final RuleDao existing = service.save(RuleDao.create(null, "test1", "description", "rule \"test1\" when true then end", null, null));
+
+        final RuleDao update = existing.toBuilder().description("changed").build();
+        final RuleDao created = RuleDao.create(null, "test2", "description", "rule \"test2\" when true then end", null, null);
+        final Collection<RuleDao> saved = service.saveAll(ImmutableList.of(update, created));
+
+        assertThat(saved).hasSize(2);
+        assertThat(saved).first().isEqualTo(update);
+        assertThat(saved).extracting(RuleDao::id).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(service.loadAll()).containsOnlyElementsOf(saved);
+
+        service.deleteAll(ImmutableList.of(existing.id(), "unknown"));
+        assertThat(service.loadAll()).extracting(RuleDao::title).containsExactly("test2");
+    }
+
+    @Test
+    public void saveMultipleStopsAtDuplicateTitle() {
+        final RuleDao existing = service.save(RuleDao.create(null, "test1", "description", "rule \"test1\" when true then end", null, null));
+
+        final RuleDao created = RuleDao.create(null, "test2", "description", "rule \"test2\" when true then end", null, null);
+        final RuleDao duplicate = RuleDao.create(null, "test1", "description", "rule \"test1\" when false then end", null, null);
+        try {
+            service.saveAll(ImmutableList.of(created, duplicate));
+            fail("Saving a duplicate title should fail");
+        } catch (BulkSaveException e) {
+            assertThat(e.savedIds()).hasSize(1);
+            assertThat(e.errors()).containsOnlyKeys(1);
+        }
+        assertThat(service.loadAll()).extracting(RuleDao::title).containsOnly("test1", "test2");
+        assertThat(service.loadNamed(ImmutableList.of("test1"))).containsExactly(existing);
+    }
+}
@@ -49,13 +49,19 @@ import org.graylog.plugins.pipelineprocessor.functions.dates.periods.Weeks;
 import org.graylog.plugins.pipelineprocessor.functions.dates.periods.Years;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32C;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32CLong;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.CRC32Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.MD5;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_128;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_128Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_32;
+import org.graylog.plugins.pipelineprocessor.functions.hashing.Murmur3_32Long;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA1;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA256;
 import org.graylog.plugins.pipelineprocessor.functions.hashing.SHA512;
+import org.graylog.plugins.pipelineprocessor.functions.ips.CidrLookup;
 import org.graylog.plugins.pipelineprocessor.functions.ips.CidrMatch;
+import org.graylog.plugins.pipelineprocessor.functions.ips.CidrMatchAny;
 import org.graylog.plugins.pipelineprocessor.functions.ips.IpAddress;
 import org.graylog.plugins.pipelineprocessor.functions.ips.IpAddressConversion;
 import org.graylog.plugins.pipelineprocessor.functions.json.JsonParse;
@@ -213,16 +219,22 @@ public class FunctionsSnippetsTest extends BaseParserTest {
         functions.put(PeriodParseFunction.NAME, new PeriodParseFunction());
 
         functions.put(CRC32.NAME, new CRC32());
+        functions.put(CRC32Long.NAME, new CRC32Long());
         functions.put(CRC32C.NAME, new CRC32C());
+        functions.put(CRC32CLong.NAME, new CRC32CLong());
         functions.put(MD5.NAME, new MD5());
         functions.put(Murmur3_32.NAME, new Murmur3_32());
+        functions.put(Murmur3_32Long.NAME, new Murmur3_32Long());
         functions.put(Murmur3_128.NAME, new Murmur3_128());
+        functions.put(Murmur3_128Long.NAME, new Murmur3_128Long());
         functions.put(SHA1.NAME, new SHA1());
         functions.put(SHA256.NAME, new SHA256());
         functions.put(SHA512.NAME, new SHA512());
 
         functions.put(IpAddressConversion.NAME, new IpAddressConversion());
         functions.put(CidrMatch.NAME, new CidrMatch());
+        functions.put(CidrMatchAny.NAME, new CidrMatchAny());
+        functions.put(CidrLookup.NAME, new CidrLookup());
 
         functions.put(IsNull.NAME, new IsNull());
         functions.put(IsNotNull.NAME, new IsNotNull());
@@ -388,6 +400,14 @@ public class FunctionsSnippetsTest extends BaseParserTest {
         assertThat((String[]) message.getField("limit_2"))
                 .isNotEmpty()
                 .containsExactly("foo", "bar|baz");
+        assertThat((String[]) message.getField("trailing"))
+                .containsExactly("foo", "", "bar");
+        assertThat((String[]) message.getField("regex"))
+                .containsExactly("foo", "bar", "baz");
+        assertThat(message.getField("nth_literal")).isEqualTo("bar");
+        assertThat(message.getField("nth_limit")).isEqualTo("bar,baz");
+        assertThat(message.getField("nth_regex")).isEqualTo("baz");
+        assertThat(message.getField("nth_dynamic")).isEqualTo("baz");
     }
 
     @Test
@@ -401,6 +421,12 @@ public class FunctionsSnippetsTest extends BaseParserTest {
         assertThat(message).isNotNull();
         assertThat(message.getField("ip_anon")).isEqualTo("192.168.1.0");
         assertThat(message.getField("ipv6_anon")).isEqualTo("2001:db8::");
+        assertThat(message.getField("zone_office")).isEqualTo("office");
+        assertThat(message.getField("zone_gateway")).isEqualTo("gateway");
+        assertThat(message.getField("zone_internal")).isEqualTo("internal");
+        assertThat(message.getField("zone_dmz")).isEqualTo("dmz");
+        assertThat(message.getField("zone_default")).isEqualTo("external");
+        assertThat(message.hasField("zone_missing")).isFalse();
     }
 
     @Test
@@ -0,0 +1,75 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.hashing;
+
+import com.google.common.hash.Hashing;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HashingFunctionsTest {
+
+    private static List<String> values() {
+        final List<String> values = new ArrayList<>();
+        values.add("");
+        values.add("graylog");
+        values.add("\u00e4\u00f6\u00fc \u00df \u20ac \uD83D\uDE00");
+        // unpaired surrogates are encoded as '?'
+        values.add("broken \uD83D surrogate \uDE00");
+        final Random random = new Random(42);
+        for (int length = 1; length < 100; length++) {
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sb.append((char) (random.nextBoolean() ? 32 + random.nextInt(95) : random.nextInt(0xffff)));
+            }
+            values.add(sb.toString());
+        }
+        values.add(new String(new char[100_000]).replace('\0', 'x'));
+        return values;
+    }
+
+    @Test
+    public void hexDigestsMatchReferenceImplementations() {
+        for (String value : values()) {
+            assertThat(new CRC32().getDigest(value)).isEqualTo(Hashing.crc32().hashString(value, StandardCharsets.UTF_8).toString());
+            assertThat(new CRC32C().getDigest(value)).isEqualTo(Hashing.crc32c().hashString(value, StandardCharsets.UTF_8).toString());
+            assertThat(new Murmur3_32().getDigest(value)).isEqualTo(Hashing.murmur3_32().hashString(value, StandardCharsets.UTF_8).toString());
+            assertThat(new Murmur3_128().getDigest(value)).isEqualTo(Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).toString());
+            assertThat(new MD5().getDigest(value)).isEqualTo(DigestUtils.md5Hex(value));
+            assertThat(new SHA1().getDigest(value)).isEqualTo(DigestUtils.sha1Hex(value));
+            assertThat(new SHA256().getDigest(value)).isEqualTo(DigestUtils.sha256Hex(value));
+            assertThat(new SHA512().getDigest(value)).isEqualTo(DigestUtils.sha512Hex(value));
+        }
+    }
+
+    @Test
+    public void longHashesMatchReferenceImplementations() {
+        for (String value : values()) {
+            final HashingBuffer utf8 = HashingBuffer.utf8(value);
+            assertThat(new CRC32Long().getHash(utf8)).isEqualTo(Hashing.crc32().hashString(value, StandardCharsets.UTF_8).padToLong());
+            assertThat(new CRC32CLong().getHash(utf8)).isEqualTo(Hashing.crc32c().hashString(value, StandardCharsets.UTF_8).padToLong());
+            assertThat(new Murmur3_32Long().getHash(utf8)).isEqualTo(Hashing.murmur3_32().hashString(value, StandardCharsets.UTF_8).padToLong());
+            assertThat(new Murmur3_128Long().getHash(utf8)).isEqualTo(Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asLong());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CidrTrieCacheTest {
+
+    @Test
+    public void reusesTrieForEqualSubnets() {
+        final CidrTrie trie = CidrTrieCache.forSubnets(ImmutableMap.of("internal", ImmutableList.of("10.0.0.0/8", "172.16.0.0/12")));
+
+        assertThat(CidrTrieCache.forSubnets(ImmutableMap.of("internal", Lists.newArrayList("10.0.0.0/8", "172.16.0.0/12"))))
+                .isSameAs(trie);
+        assertThat(CidrTrieCache.forSubnets(ImmutableMap.of("internal", ImmutableList.of("10.0.0.0/8"))))
+                .isNotSameAs(trie);
+    }
+
+    @Test
+    public void isNotAffectedByChangedArguments() {
+        final List<String> subnets = Lists.newArrayList("192.168.0.0/16");
+        final CidrTrie trie = CidrTrieCache.forSubnets(subnets);
+
+        subnets.set(0, "10.0.0.0/8");
+        final CidrTrie changed = CidrTrieCache.forSubnets(subnets);
+        assertThat(changed).isNotSameAs(trie);
+        assertThat(changed.contains(IpAddressParser.parse("10.1.2.3"))).isTrue();
+        assertThat(CidrTrieCache.forSubnets(ImmutableList.of("192.168.0.0/16"))).isSameAs(trie);
+    }
+
+    @Test
+    public void rejectsMalformedSubnets() {
+        assertThatThrownBy(() -> CidrTrieCache.forSubnets(ImmutableList.of("10.0.0.0/33")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void missingSubnetsHaveNoTrie() {
+        assertThat(CidrTrieCache.forSubnets(null)).isNull();
+    }
+}
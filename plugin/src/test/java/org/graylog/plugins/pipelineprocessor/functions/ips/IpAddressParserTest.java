@@ -0,0 +1,68 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.ips;
+
+import com.google.common.net.InetAddresses;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IpAddressParserTest {
+
+    private static final String[] VALID = {
+            "0.0.0.0", "127.0.0.1", "192.168.1.50", "255.255.255.255",
+            "::", "::1", "1::", "2001:db8::1", "2001:0db8:0000:0000:0000:0000:0000:0001", "fe80::1:2:3:4",
+            "1:2:3:4:5:6:7:8", "1:2:3:4:5:6:7::", "::2:3:4:5:6:7:8", "::ffff:192.168.1.50", "::192.168.1.50",
+            "1:2:3:4:5:6:1.2.3.4", "FFFF::ABCD"
+    };
+
+    private static final String[] INVALID = {
+            "", "null", "1.2.3", "1.2.3.4.5", "1.2.3.", ".1.2.3", "256.1.1.1", "01.2.3.4", "1.2.3.-4", "1..2.3",
+            ":", ":::", "1:", ":1", "1::2::3", "12345::", "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::", "::g",
+            "1:2:3:4:5:6:7:1.2.3.4", "::1.2.3", "::1.2.3.04", "fe80::1%eth0", "[::1]", " 1.2.3.4", "+1::"
+    };
+
+    @Test
+    public void parsesLikeGuava() {
+        for (String value : VALID) {
+            assertThat(InetAddresses.isInetAddress(value)).as(value).isTrue();
+            final IpAddress ipAddress = IpAddressParser.parse(value);
+            assertThat(ipAddress).as(value).isNotNull();
+            assertThat(ipAddress.inetAddress()).as(value).isEqualTo(InetAddresses.forString(value));
+            assertThat(ipAddress).as(value).isEqualTo(new IpAddress(InetAddresses.forString(value)));
+            assertThat(ipAddress.toString()).as(value).isEqualTo(InetAddresses.toAddrString(InetAddresses.forString(value)));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedAddresses() {
+        for (String value : INVALID) {
+            assertThat(InetAddresses.isInetAddress(value)).as(value).isFalse();
+            assertThat(IpAddressParser.parse(value)).as(value).isNull();
+        }
+    }
+
+    @Test
+    public void keepsIpv4AsPrimitive() {
+        final IpAddress ipAddress = IpAddressParser.parse("192.168.1.50");
+        assertThat(ipAddress).isNotNull();
+        assertThat(ipAddress.isIpv4()).isTrue();
+        assertThat(ipAddress.ipv4Address()).isEqualTo(InetAddresses.coerceToInteger(InetAddresses.forString("192.168.1.50")));
+        assertThat(ipAddress.getAnonymized().toString()).isEqualTo("192.168.1.0");
+        assertThat(IpAddressParser.parse("::ffff:192.168.1.50")).isEqualTo(ipAddress);
+    }
+}
@@ -2,6 +2,9 @@ package org.graylog.plugins.pipelineprocessor.functions.messages;
 
 import com.google.common.eventbus.EventBus;
 
+import com.google.common.collect.ImmutableList;
+
+import org.graylog2.database.NotFoundException;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.streams.StreamService;
 import org.junit.Test;
@@ -11,6 +14,7 @@ import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class StreamCacheServiceTest {
     @Test
@@ -22,4 +26,34 @@ public class StreamCacheServiceTest {
         assertThat(streams).isNotNull().isEmpty();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void updatesAndPurgesStreams() throws Exception {
+        final StreamService streamService = mock(StreamService.class);
+        final StreamCacheService streamCacheService = new StreamCacheService(new EventBus(), streamService, Executors.newSingleThreadScheduledExecutor());
+        final Stream first = stream("2", "routed");
+        final Stream second = stream("1", "routed");
+        when(streamService.load("1")).thenReturn(second);
+        when(streamService.load("2")).thenReturn(first);
+
+        final StreamCacheService.Snapshot before = streamCacheService.snapshot();
+        streamCacheService.updateStreams(ImmutableList.of("2", "1"));
+
+        assertThat(streamCacheService.snapshot()).isNotSameAs(before);
+        assertThat(streamCacheService.getByName("routed")).containsExactly(second, first);
+        assertThat(streamCacheService.getById("2")).isSameAs(first);
+
+        when(streamService.load("2")).thenThrow(new NotFoundException());
+        streamCacheService.updateStreams(ImmutableList.of("2"));
+
+        assertThat(streamCacheService.getByName("routed")).containsExactly(second);
+        assertThat(streamCacheService.getById("2")).isNull();
+    }
+
+    private static Stream stream(String id, String title) {
+        final Stream stream = mock(Stream.class);
+        when(stream.getId()).thenReturn(id);
+        when(stream.getTitle()).thenReturn(title);
+        when(stream.getDisabled()).thenReturn(false);
+        return stream;
+    }
+}
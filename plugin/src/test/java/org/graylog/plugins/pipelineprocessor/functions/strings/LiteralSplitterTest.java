@@ -0,0 +1,74 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.functions.strings;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class LiteralSplitterTest {
+
+    private static final String[] SEPARATORS = {",", ", ", "\\|", "\\.", "::", "aa", "\\\\", "-", "\t"};
+
+    private static final String[] VALUES = {
+            "", ",", ",,", "a", "a,b", ",a", "a,", "a,,b,,", ",,a,,", "a, b, ,", "a|b||c|", "a.b..", "a::b:::c::",
+            "aaa", "aaaa", "baab", "a\\b\\\\", "-a--b-", "a\tb\t\t", "no separator"
+    };
+
+    @Test
+    public void detectsLiteralSeparators() {
+        assertThat(LiteralSplitter.forRegex(",")).isNotNull();
+        assertThat(LiteralSplitter.forRegex("\\|")).isNotNull();
+        assertThat(LiteralSplitter.forRegex("::")).isNotNull();
+        assertThat(LiteralSplitter.forRegex("")).isNull();
+        assertThat(LiteralSplitter.forRegex(".")).isNull();
+        assertThat(LiteralSplitter.forRegex("\\s")).isNull();
+        assertThat(LiteralSplitter.forRegex("[,;]")).isNull();
+        assertThat(LiteralSplitter.forRegex("a+")).isNull();
+        assertThat(LiteralSplitter.forRegex("\\")).isNull();
+    }
+
+    @Test
+    public void matchesPatternSplit() {
+        for (String separator : SEPARATORS) {
+            final Pattern pattern = Pattern.compile(separator);
+            final LiteralSplitter splitter = LiteralSplitter.forRegex(separator);
+            assertThat(splitter).as(separator).isNotNull();
+            for (String value : VALUES) {
+                for (int limit = 0; limit < 5; limit++) {
+                    final String[] expected = pattern.split(value, limit);
+                    final String description = separator + " / " + value + " / " + limit;
+                    assertThat(splitter.split(value, limit)).as(description).containsExactly(expected);
+                    for (int n = -1; n <= expected.length; n++) {
+                        if (n >= 0 && n < expected.length) {
+                            assertThat(splitter.part(value, limit, n)).as(description + " / " + n).isEqualTo(expected[n]);
+                        } else {
+                            try {
+                                splitter.part(value, limit, n);
+                                fail("Expected ArrayIndexOutOfBoundsException for " + description + " / " + n);
+                            } catch (ArrayIndexOutOfBoundsException ignored) {
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.graylog.plugins.pipelineprocessor.parser;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 
 import org.graylog.plugins.pipelineprocessor.BaseParserTest;
@@ -31,7 +32,9 @@ import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionDescriptor;
 import org.graylog.plugins.pipelineprocessor.ast.functions.ParameterDescriptor;
+import org.graylog.plugins.pipelineprocessor.codegen.CodeGenerator;
 import org.graylog.plugins.pipelineprocessor.codegen.PipelineClassloader;
+import org.graylog.plugins.pipelineprocessor.codegen.compiler.JavaCompiler;
 import org.graylog.plugins.pipelineprocessor.functions.conversion.LongConversion;
 import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
 import org.graylog.plugins.pipelineprocessor.functions.dates.Now;
@@ -56,6 +59,7 @@ import org.graylog.plugins.pipelineprocessor.parser.errors.InvalidOperation;
 import org.graylog.plugins.pipelineprocessor.parser.errors.NonIndexableType;
 import org.graylog.plugins.pipelineprocessor.parser.errors.OptionalParametersMustBeNamed;
 import org.graylog.plugins.pipelineprocessor.parser.errors.ParseError;
+import org.graylog.plugins.pipelineprocessor.parser.errors.SyntaxError;
 import org.graylog.plugins.pipelineprocessor.parser.errors.UndeclaredFunction;
 import org.graylog.plugins.pipelineprocessor.parser.errors.UndeclaredVariable;
 import org.graylog2.plugin.InstantMillisProvider;
@@ -149,6 +153,44 @@ public class PipelineRuleParserTest extends BaseParserTest {
         }
     }
 
+    @Test
+    public void syntaxError() throws Exception {
+        try {
+            parseRuleWithOptionalCodegen();
+            fail("should throw error: missing 'then'");
+        } catch (ParseException e) {
+            assertTrue("Should find error SyntaxError",
+                       e.getErrors().stream().anyMatch(error -> error instanceof SyntaxError));
+        }
+        // the lexer and parser of this thread must be usable again after a failed parse
+        final Rule rule = parser.parseRule("rule \"fixed\" when true then double_valued_func(); end", false);
+        assertNotNull("rule should be successfully parsed", rule);
+    }
+
+    @Test
+    public void parsedRulesAreCachedUntilFunctionsChange() throws Exception {
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put("doch", new DochFunction());
+        final PipelineRuleParser cachingParser = new PipelineRuleParser(new FunctionRegistry(functions),
+                                                                        new CodeGenerator(JavaCompiler::new));
+        final String source = "rule \"cached\" when doch() then nein(); end";
+
+        try {
+            cachingParser.parseRule("first", source, false);
+            fail("should throw error: undeclared function 'nein'");
+        } catch (ParseException e) {
+            assertTrue(e.getErrors().stream().anyMatch(error -> error instanceof UndeclaredFunction));
+        }
+
+        functions.put("nein", new NeinFunction());
+        final Rule first = cachingParser.parseRule("first", source, false);
+        final Rule second = cachingParser.parseRule("second", source, false);
+
+        assertEquals("first", first.id());
+        assertEquals("second", second.id());
+        assertTrue("the syntax tree should be shared", first.when() == second.when());
+    }
+
     @Test
     public void declaredFunction() throws Exception {
         try {
@@ -0,0 +1,188 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.common.collect.ImmutableSet;
+
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryRuleService;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ConfigurationSnapshotTest {
+
+    private InMemoryRuleService ruleService;
+    private InMemoryPipelineService pipelineService;
+    private InMemoryPipelineStreamConnectionsService connectionsService;
+    private ConfigurationSnapshot snapshot;
+
+    @Before
+    public void setup() {
+        ruleService = new InMemoryRuleService();
+        pipelineService = new InMemoryPipelineService();
+        connectionsService = new InMemoryPipelineStreamConnectionsService();
+        snapshot = new ConfigurationSnapshot(ruleService, pipelineService, connectionsService);
+    }
+
+    @Test
+    public void initialRefreshLoadsEverything() {
+        final RuleDao rule = ruleService.save(rule("first"));
+        final PipelineDao pipeline = pipelineService.save(pipeline("pipeline"));
+        final PipelineConnections connections = connectionsService.save(
+                PipelineConnections.create(null, "stream", ImmutableSet.of(pipeline.id())));
+
+        snapshot.refresh();
+
+        assertThat(snapshot.rules()).containsExactly(rule);
+        assertThat(snapshot.pipelines()).containsExactly(pipeline);
+        assertThat(snapshot.connections()).containsExactly(connections);
+    }
+
+    @Test
+    public void laterRefreshesOnlyLoadChanges() {
+        final RuleDao first = ruleService.save(rule("first"));
+        final RuleDao second = ruleService.save(rule("second"));
+        snapshot.refresh();
+
+        // changes without an event are not picked up
+        final RuleDao unannounced = ruleService.save(rule("unannounced"));
+        final RuleDao updated = ruleService.save(second.toBuilder().source("rule \"second\" when false then end").build());
+        ruleService.delete(first.id());
+        snapshot.rulesChanged(ImmutableSet.of(first.id(), second.id()));
+        snapshot.refresh();
+
+        assertThat(snapshot.rules()).containsExactly(updated);
+
+        snapshot.rulesChanged(Collections.singleton(unannounced.id()));
+        snapshot.refresh();
+
+        assertThat(snapshot.rules()).containsExactlyInAnyOrder(updated, unannounced);
+    }
+
+    @Test
+    public void connectionsAreRefreshedByStream() {
+        snapshot.refresh();
+        assertThat(snapshot.connections()).isEmpty();
+
+        final PipelineConnections connections = connectionsService.save(
+                PipelineConnections.create(null, "stream", ImmutableSet.of("pipeline")));
+        snapshot.connectionsChanged("stream");
+        snapshot.refresh();
+
+        assertThat(snapshot.connections()).containsExactly(connections);
+    }
+
+    @Test
+    public void resyncQueuesUnannouncedChanges() {
+        final RuleDao first = ruleService.save(rule("first"));
+        final RuleDao second = ruleService.save(rule("second"));
+        snapshot.refresh();
+        assertThat(snapshot.resync()).isFalse();
+
+        final RuleDao unannounced = ruleService.save(rule("unannounced"));
+        final RuleDao updated = ruleService.save(second.toBuilder()
+                .source("rule \"second\" when false then end")
+                .modifiedAt(DateTime.now(DateTimeZone.UTC))
+                .build());
+        ruleService.delete(first.id());
+        final PipelineConnections connections = connectionsService.save(
+                PipelineConnections.create(null, "stream", ImmutableSet.of("pipeline")));
+
+        assertThat(snapshot.resync()).isTrue();
+        final ConfigurationSnapshot.Changes changes = snapshot.refresh();
+
+        assertThat(changes.full()).isFalse();
+        assertThat(changes.ruleIds()).containsOnly(first.id(), second.id(), unannounced.id());
+        assertThat(changes.pipelineIds()).isEmpty();
+        assertThat(changes.streamIds()).containsOnly("stream");
+        assertThat(snapshot.rules()).containsOnly(updated, unannounced);
+        assertThat(snapshot.connections()).containsExactly(connections);
+        assertThat(snapshot.resync()).isFalse();
+    }
+
+    @Test
+    public void resyncOnlyLoadsRecentlyModifiedDocuments() {
+        final DateTime now = DateTime.now(DateTimeZone.UTC);
+        final RuleService probedRules = spy(ruleService);
+        snapshot = new ConfigurationSnapshot(probedRules, pipelineService, connectionsService);
+        final RuleDao old = ruleService.save(rule("old").toBuilder().modifiedAt(now.minusHours(1)).build());
+        final RuleDao recent = ruleService.save(rule("recent").toBuilder().modifiedAt(now).build());
+        snapshot.refresh();
+
+        assertThat(snapshot.resync()).isFalse();
+        verify(probedRules, times(1)).loadAll();
+        verify(probedRules).loadModifiedSince(now.minusMinutes(5));
+
+        // an update without a new modification time is not probed for, a deletion is found by the ids
+        ruleService.save(old.toBuilder().source("rule \"old\" when false then end").build());
+        ruleService.delete(recent.id());
+        assertThat(snapshot.resync()).isTrue();
+        assertThat(snapshot.refresh().ruleIds()).containsExactly(recent.id());
+        assertThat(snapshot.rules()).containsExactly(old);
+    }
+
+    @Test
+    public void failedLoadsKeepSnapshotAndRetry() {
+        final RuleService failingRules = spy(ruleService);
+        snapshot = new ConfigurationSnapshot(failingRules, pipelineService, connectionsService);
+        final RuleDao first = ruleService.save(rule("first"));
+
+        doThrow(new IllegalStateException("unavailable")).when(failingRules).loadAll();
+        assertThat(snapshot.refresh().full()).isFalse();
+        assertThat(snapshot.rules()).isEmpty();
+
+        // the first successful refresh is the full one
+        doCallRealMethod().when(failingRules).loadAll();
+        assertThat(snapshot.refresh().full()).isTrue();
+        assertThat(snapshot.rules()).containsExactly(first);
+
+        final RuleDao updated = ruleService.save(first.toBuilder().source("rule \"first\" when false then end").build());
+        snapshot.rulesChanged(Collections.singleton(first.id()));
+        doThrow(new IllegalStateException("unavailable")).when(failingRules).loadByIds(anyCollectionOf(String.class));
+        assertThat(snapshot.refresh().ruleIds()).isEmpty();
+        assertThat(snapshot.rules()).containsExactly(first);
+
+        doCallRealMethod().when(failingRules).loadByIds(anyCollectionOf(String.class));
+        assertThat(snapshot.refresh().ruleIds()).containsExactly(first.id());
+        assertThat(snapshot.rules()).containsExactly(updated);
+    }
+
+    private static RuleDao rule(String title) {
+        return RuleDao.create(null, title, null, "rule \"" + title + "\" when true then end", null, null);
+    }
+
+    private static PipelineDao pipeline(String title) {
+        return PipelineDao.create(null, title, null, "pipeline \"" + title + "\" stage 0 match all end", null, null);
+    }
+}
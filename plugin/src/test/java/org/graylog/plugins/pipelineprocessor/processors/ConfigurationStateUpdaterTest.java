@@ -16,6 +16,7 @@
   */
 package org.graylog.plugins.pipelineprocessor.processors;
 
+import com.github.joschi.jadconfig.util.Duration;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
@@ -76,6 +77,9 @@ public class ConfigurationStateUpdaterTest {
                 binder -> binder.bindConstant().annotatedWith(Names.named("generate_native_code")).to(true),
                 binder -> binder.bindConstant().annotatedWith(Names.named("cached_stageiterators")).to(true),
                 binder -> binder.bindConstant().annotatedWith(Names.named("processbuffer_processors")).to(1),
+                binder -> binder.bindConstant().annotatedWith(Names.named("pipeline_metrics_mode")).to("meters"),
+                binder -> binder.bindConstant().annotatedWith(Names.named("pipeline_metrics_granularity")).to("stage"),
+                binder -> binder.bind(Duration.class).annotatedWith(Names.named("pipeline_configuration_resync_interval")).toInstance(Duration.minutes(1)),
                 binder -> binder.bind(StreamService.class).to(DummyStreamService.class),
                 binder -> binder.bind(GrokPatternService.class).to(InMemoryGrokPatternService.class),
                 binder -> binder.bind(FunctionRegistry.class).asEagerSingleton(),
@@ -17,15 +17,20 @@
 package org.graylog.plugins.pipelineprocessor.processors;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.EventBus;
 
+import com.codahale.metrics.Gauge;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
 
+import org.graylog.plugins.pipelineprocessor.EvaluationContext;
 import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
 import org.graylog.plugins.pipelineprocessor.ast.Rule;
 import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.ast.functions.FunctionArgs;
 import org.graylog.plugins.pipelineprocessor.codegen.CodeGenerator;
 import org.graylog.plugins.pipelineprocessor.codegen.compiler.JavaCompiler;
 import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
@@ -39,24 +44,35 @@ import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryRuleService;
 import org.graylog.plugins.pipelineprocessor.db.mongodb.MongoDbPipelineService;
 import org.graylog.plugins.pipelineprocessor.db.mongodb.MongoDbPipelineStreamConnectionsService;
 import org.graylog.plugins.pipelineprocessor.db.mongodb.MongoDbRuleService;
+import org.graylog.plugins.pipelineprocessor.events.PipelineConnectionsChangedEvent;
+import org.graylog.plugins.pipelineprocessor.events.PipelinesChangedEvent;
+import org.graylog.plugins.pipelineprocessor.events.RulesChangedEvent;
 import org.graylog.plugins.pipelineprocessor.functions.conversion.StringConversion;
 import org.graylog.plugins.pipelineprocessor.functions.messages.CreateMessage;
+import org.graylog.plugins.pipelineprocessor.functions.messages.HasField;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
 import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
 import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.processors.listeners.NoopInterpreterListener;
 import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
 import org.graylog2.plugin.Message;
+import org.graylog2.plugin.MessageCollection;
 import org.graylog2.plugin.Messages;
 import org.graylog2.plugin.Tools;
 import org.graylog2.plugin.streams.Stream;
 import org.graylog2.shared.journal.Journal;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.codahale.metrics.MetricRegistry.name;
+import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.collect.Sets.newHashSet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.graylog2.plugin.streams.Stream.DEFAULT_STREAM_ID;
@@ -106,24 +122,9 @@ public class PipelineInterpreterTest {
         functions.put(CreateMessage.NAME, new CreateMessage());
         functions.put(StringConversion.NAME, new StringConversion());
 
-        final FunctionRegistry functionRegistry = new FunctionRegistry(functions);
-        final PipelineRuleParser parser = new PipelineRuleParser(functionRegistry, new CodeGenerator(JavaCompiler::new));
-
-        final ConfigurationStateUpdater stateUpdater = new ConfigurationStateUpdater(ruleService,
-                pipelineService,
-                pipelineStreamConnectionsService,
-                parser,
-                new MetricRegistry(),
-                functionRegistry,
-                Executors.newScheduledThreadPool(1),
-                mock(EventBus.class),
-                (currentPipelines, streamPipelineConnections, classLoader) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, null, new MetricRegistry(), 1, true),
-                false);
-        final PipelineInterpreter interpreter = new PipelineInterpreter(
-                mock(Journal.class),
-                new MetricRegistry(),
-                stateUpdater
-        );
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, functions, new MetricRegistry());
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, new MetricRegistry(), false, false, Duration.seconds(5));
 
         Message msg = messageInDefaultStream("original message", "test");
         final Messages processed = interpreter.process(msg);
@@ -165,24 +166,10 @@ public class PipelineInterpreterTest {
 
         final Map<String, Function<?>> functions = Maps.newHashMap();
 
-        final FunctionRegistry functionRegistry = new FunctionRegistry(functions);
-        final PipelineRuleParser parser = new PipelineRuleParser(functionRegistry, new CodeGenerator(JavaCompiler::new));
-
         final MetricRegistry metricRegistry = new MetricRegistry();
-        final ConfigurationStateUpdater stateUpdater = new ConfigurationStateUpdater(ruleService,
-                pipelineService,
-                pipelineStreamConnectionsService,
-                parser,
-                metricRegistry,
-                functionRegistry,
-                Executors.newScheduledThreadPool(1),
-                mock(EventBus.class), (currentPipelines, streamPipelineConnections, commonClassLoader) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, null, new MetricRegistry(), 1, true),
-                false);
-        final PipelineInterpreter interpreter = new PipelineInterpreter(
-                mock(Journal.class),
-                metricRegistry,
-                stateUpdater
-        );
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, functions, metricRegistry);
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, metricRegistry, false, false, Duration.seconds(5));
 
         interpreter.process(messageInDefaultStream("", ""));
 
@@ -228,6 +215,365 @@ public class PipelineInterpreterTest {
 
     }
 
+    @Test
+    public void testStateIsWarmedUpAndVersioned() {
+        final RuleService ruleService = new InMemoryRuleService();
+        ruleService.save(RuleDao.create("abc",
+                "title",
+                "description",
+                "rule \"match_all\"\n" +
+                        "when true\n" +
+                        "then\n" +
+                        "end",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(PipelineDao.create("cde", "title", "description",
+                "pipeline \"pipeline\"\n" +
+                        "stage 0 match all\n" +
+                        "    rule \"match_all\";\n" +
+                        "end\n",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineStreamConnectionsService pipelineStreamConnectionsService = new InMemoryPipelineStreamConnectionsService();
+        pipelineStreamConnectionsService.save(PipelineConnections.create(null,
+                DEFAULT_STREAM_ID,
+                newHashSet("cde")));
+
+        final MetricRegistry stateMetrics = new MetricRegistry();
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, Collections.emptyMap(), stateMetrics);
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, metricRegistry, false, false, Duration.seconds(5));
+
+        interpreter.process(messageInDefaultStream("", ""));
+
+        // the only stage configuration was built before the state was published
+        assertThat(stateMetrics.getGauges().get(name(PipelineInterpreter.class, "stage-cache", "misses")).getValue()).isEqualTo(1L);
+        assertThat(stateMetrics.getGauges().get(name(PipelineInterpreter.class, "stage-cache", "hits")).getValue()).isEqualTo(1L);
+
+        final Gauge version = metricRegistry.getGauges().get(name(PipelineInterpreter.class, "state-version"));
+        final Gauge reloads = metricRegistry.getGauges().get(name(PipelineInterpreter.class, "state-reloads"));
+        final long firstVersion = stateUpdater.getConfigurationVersion();
+        assertThat(version.getValue()).isEqualTo(firstVersion);
+        assertThat(reloads.getValue()).isEqualTo(1L);
+
+        // reloading the same configuration only counts as a reload
+        stateUpdater.reload();
+        assertThat(version.getValue()).isEqualTo(firstVersion);
+        assertThat(reloads.getValue()).isEqualTo(2L);
+
+        ruleService.save(ruleService.loadAll().iterator().next().toBuilder()
+                .source("rule \"match_all\"\nwhen false\nthen\nend")
+                .build());
+        stateUpdater.handleRuleChanges(RulesChangedEvent.updatedRuleId("abc"));
+        stateUpdater.reload();
+        final long changedVersion = stateUpdater.getConfigurationVersion();
+        assertThat(changedVersion).isNotEqualTo(firstVersion);
+        assertThat(version.getValue()).isEqualTo(changedVersion);
+
+        // another node loading the same configuration computes the same version
+        final ConfigurationStateUpdater otherNode = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, Collections.emptyMap(), new MetricRegistry());
+        assertThat(otherNode.getConfigurationVersion()).isEqualTo(changedVersion);
+        assertThat(otherNode.getReloadCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testParallelBatchProcessingKeepsOrder() {
+        final RuleService ruleService = new InMemoryRuleService();
+        ruleService.save(RuleDao.create("abc",
+                "title",
+                "description",
+                "rule \"derive message\"\n" +
+                        "when to_string($message.source) == \"test\"\n" +
+                        "then\n" +
+                        "  create_message(to_string($message.message), \"derived\");\n" +
+                        "end",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(PipelineDao.create("cde", "title", "description",
+                "pipeline \"pipeline\"\n" +
+                        "stage 0 match all\n" +
+                        "    rule \"derive message\";\n" +
+                        "end\n",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineStreamConnectionsService pipelineStreamConnectionsService = new InMemoryPipelineStreamConnectionsService();
+        pipelineStreamConnectionsService.save(PipelineConnections.create(null,
+                DEFAULT_STREAM_ID,
+                newHashSet("cde")));
+
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put(CreateMessage.NAME, new CreateMessage());
+        functions.put(StringConversion.NAME, new StringConversion());
+
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, functions, new MetricRegistry());
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, new MetricRegistry(), true, false, Duration.seconds(5));
+
+        final int batchSize = 500;
+        final List<Message> batch = Lists.newArrayList();
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(messageInDefaultStream("message " + i, "test"));
+        }
+        final Message[] messages = Iterables.toArray(interpreter.process(new MessageCollection(batch)), Message.class);
+
+        assertThat(messages).hasSize(2 * batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            assertThat(messages[i]).isSameAs(batch.get(i));
+            assertThat(messages[batchSize + i].getSource()).isEqualTo("derived");
+            assertThat(messages[batchSize + i].getMessage()).isEqualTo("message " + i);
+        }
+    }
+
+    @Test
+    public void testParallelStageExecution() {
+        final RuleService ruleService = new InMemoryRuleService();
+        ruleService.save(RuleDao.create("r1", "r1", "description",
+                "rule \"set a\"\n" +
+                        "when true\n" +
+                        "then\n" +
+                        "  set_field(\"a\", \"1\");\n" +
+                        "  create_message(\"from a\", \"derived\");\n" +
+                        "end",
+                Tools.nowUTC(),
+                null));
+        ruleService.save(RuleDao.create("r2", "r2", "description",
+                "rule \"set b\"\n" +
+                        "when true\n" +
+                        "then\n" +
+                        "  set_field(\"b\", \"2\");\n" +
+                        "  create_message(\"from b\", \"derived\");\n" +
+                        "end",
+                Tools.nowUTC(),
+                null));
+        ruleService.save(RuleDao.create("r3", "r3", "description",
+                "rule \"read a\"\n" +
+                        "when has_field(\"a\")\n" +
+                        "then\n" +
+                        "  set_field(\"c\", \"3\");\n" +
+                        "end",
+                Tools.nowUTC(),
+                null));
+
+        final PipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(PipelineDao.create("p1", "p1", "description",
+                "pipeline \"p1\"\nstage 0 match all\n    rule \"set a\";\nend\n", Tools.nowUTC(), null));
+        pipelineService.save(PipelineDao.create("p2", "p2", "description",
+                "pipeline \"p2\"\nstage 0 match all\n    rule \"set b\";\nend\n", Tools.nowUTC(), null));
+        pipelineService.save(PipelineDao.create("p3", "p3", "description",
+                "pipeline \"p3\"\nstage 1 match all\n    rule \"read a\";\nend\n", Tools.nowUTC(), null));
+
+        final PipelineStreamConnectionsService pipelineStreamConnectionsService = new InMemoryPipelineStreamConnectionsService();
+        final PipelineConnections connections = pipelineStreamConnectionsService.save(PipelineConnections.create(null,
+                DEFAULT_STREAM_ID,
+                newHashSet("p1", "p2", "p3")));
+
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put(CreateMessage.NAME, new CreateMessage());
+        functions.put(HasField.NAME, new HasField());
+        functions.put(SetField.NAME, new SetField());
+
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, functions, new MetricRegistry());
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, metricRegistry, false, true, Duration.seconds(5));
+        final Meter concurrentSlices = metricRegistry.meter(name(PipelineInterpreter.class, "concurrentSlices"));
+        final PipelineInterpreter serialInterpreter = interpreter(stateUpdater, new MetricRegistry(), false, false, Duration.seconds(5));
+        final Message[] serialMessages = Iterables.toArray(serialInterpreter.process(messageInDefaultStream("original message", "test")), Message.class);
+        final Object[] expectedCreated = Arrays.stream(serialMessages).skip(1).map(Message::getMessage).toArray();
+        assertThat(expectedCreated).containsOnly("from a", "from b");
+
+        // stage 0 of p1 and p2 write different fields and run concurrently, stage 1 runs alone afterwards.
+        // the results must not depend on the thread scheduling, so run the slice a couple of times
+        final int runs = 20;
+        for (int run = 0; run < runs; run++) {
+            final Message message = messageInDefaultStream("original message", "test");
+            final Message[] messages = Iterables.toArray(interpreter.process(message), Message.class);
+
+            assertThat(message.getField("a")).isEqualTo("1");
+            assertThat(message.getField("b")).isEqualTo("2");
+            assertThat(message.getField("c")).isEqualTo("3");
+            assertThat(messages).hasSize(3);
+            assertThat(messages[0]).isSameAs(message);
+            // created messages are returned in stage order, exactly like serial execution does
+            assertThat(Arrays.stream(messages).skip(1).map(Message::getMessage).toArray()).containsExactly(expectedCreated);
+        }
+        assertThat(concurrentSlices.getCount()).isEqualTo((long) runs);
+
+        // a stage reading a field written by another stage of the same slice prevents concurrent execution
+        pipelineService.save(PipelineDao.create("p4", "p4", "description",
+                "pipeline \"p4\"\nstage 0 match all\n    rule \"read a\";\nend\n", Tools.nowUTC(), null));
+        pipelineStreamConnectionsService.save(connections.toBuilder().pipelineIds(newHashSet("p1", "p2", "p3", "p4")).build());
+        stateUpdater.handlePipelineChanges(PipelinesChangedEvent.updatedPipelineId("p4"));
+        stateUpdater.handlePipelineConnectionChanges(PipelineConnectionsChangedEvent.create(DEFAULT_STREAM_ID, newHashSet("p4")));
+        stateUpdater.reload();
+
+        interpreter.process(messageInDefaultStream("original message", "test"));
+        assertThat(concurrentSlices.getCount()).isEqualTo((long) runs);
+    }
+
+    @Test
+    public void testBudgetExceededTripsCircuitBreaker() {
+        final RuleService ruleService = new InMemoryRuleService();
+        ruleService.save(RuleDao.create("abc",
+                "title",
+                "description",
+                "rule \"slow rule\"\n" +
+                        "when true\n" +
+                        "then\n" +
+                        "end",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(PipelineDao.create("cde", "title", "description",
+                "pipeline \"pipeline\"\n" +
+                        "stage 0 match all\n" +
+                        "    rule \"slow rule\";\n" +
+                        "stage 1 match either\n" +
+                        "    rule \"slow rule\";\n" +
+                        "end\n",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineStreamConnectionsService pipelineStreamConnectionsService = new InMemoryPipelineStreamConnectionsService();
+        pipelineStreamConnectionsService.save(PipelineConnections.create(null,
+                DEFAULT_STREAM_ID,
+                newHashSet("cde")));
+
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, Collections.emptyMap(), metricRegistry);
+        // every rule exceeds a budget of one nanosecond, and a single violation disables the rule
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, metricRegistry, false, false, Duration.nanoseconds(1));
+
+        // simulating the pipeline exceeds the budget as well, without disabling the rule
+        final Message simulated = messageInDefaultStream("simulated", "test");
+        interpreter.processForPipelines(simulated, newHashSet("cde"), new NoopInterpreterListener(), stateUpdater.getLatestState());
+        assertThat(simulated.hasField(PipelineInterpreter.GL2_PROCESSING_ERROR)).isTrue();
+        assertThat(metricRegistry.meter(name(RuleCircuitBreaker.class, "trippedRules")).getCount()).isEqualTo(0L);
+
+        final Message first = getOnlyElement(interpreter.process(messageInDefaultStream("first", "test")));
+        assertThat(first.getField(PipelineInterpreter.GL2_PROCESSING_ERROR))
+                .isEqualTo("For rule 'slow rule': Exceeded the processing time budget of 0ms, skipping the remaining pipelines");
+
+        final Message second = getOnlyElement(interpreter.process(messageInDefaultStream("second", "test")));
+        assertThat(second.hasField(PipelineInterpreter.GL2_PROCESSING_ERROR)).isFalse();
+
+        assertThat(metricRegistry.meter(name(PipelineInterpreter.class, "timeBudgetExceeded")).getCount()).isEqualTo(1L);
+        // the disabled rule is skipped in stage 0, which stops the pipeline
+        assertThat(metricRegistry.meter(name(PipelineInterpreter.class, "skippedRules")).getCount()).isEqualTo(1L);
+        assertThat(metricRegistry.meter(name(RuleCircuitBreaker.class, "trippedRules")).getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void testMissingRequiredFieldSkipsCondition() {
+        final RuleService ruleService = new InMemoryRuleService();
+        ruleService.save(RuleDao.create("abc",
+                "title",
+                "description",
+                "rule \"requires field\"\n" +
+                        "when to_string($message.message) == \"original message\" && has_field(\"absent\")\n" +
+                        "then\n" +
+                        "  set_field(\"matched\", true);\n" +
+                        "end",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(PipelineDao.create("cde", "title", "description",
+                "pipeline \"pipeline\"\n" +
+                        "stage 0 match all\n" +
+                        "    rule \"requires field\";\n" +
+                        "end\n",
+                Tools.nowUTC(),
+                null)
+        );
+
+        final PipelineStreamConnectionsService pipelineStreamConnectionsService = new InMemoryPipelineStreamConnectionsService();
+        pipelineStreamConnectionsService.save(PipelineConnections.create(null,
+                DEFAULT_STREAM_ID,
+                newHashSet("cde")));
+
+        // counts how often the condition gets evaluated
+        final AtomicInteger conversions = new AtomicInteger();
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put(StringConversion.NAME, new StringConversion() {
+            @Override
+            public String evaluate(FunctionArgs args, EvaluationContext context) {
+                conversions.incrementAndGet();
+                return super.evaluate(args, context);
+            }
+        });
+        functions.put(HasField.NAME, new HasField());
+        functions.put(SetField.NAME, new SetField());
+
+        final ConfigurationStateUpdater stateUpdater = stateUpdater(ruleService, pipelineService,
+                pipelineStreamConnectionsService, functions, new MetricRegistry());
+        final PipelineInterpreter interpreter = interpreter(stateUpdater, new MetricRegistry(), false, false, Duration.seconds(5));
+
+        final Message missing = getOnlyElement(interpreter.process(messageInDefaultStream("original message", "test")));
+        assertThat(missing.hasField("matched")).isFalse();
+        assertThat(conversions.get()).isEqualTo(0);
+
+        final Message present = messageInDefaultStream("original message", "test");
+        present.addField("absent", "not anymore");
+        assertThat(getOnlyElement(interpreter.process(present)).getField("matched")).isEqualTo(true);
+        assertThat(conversions.get()).isEqualTo(1);
+    }
+
+    private static ConfigurationStateUpdater stateUpdater(RuleService ruleService,
+                                                          PipelineService pipelineService,
+                                                          PipelineStreamConnectionsService connectionsService,
+                                                          Map<String, Function<?>> functions,
+                                                          MetricRegistry metricRegistry) {
+        final FunctionRegistry functionRegistry = new FunctionRegistry(functions);
+        return new ConfigurationStateUpdater(ruleService,
+                pipelineService,
+                connectionsService,
+                new PipelineRuleParser(functionRegistry, new CodeGenerator(JavaCompiler::new)),
+                PipelineMetrics.meters(metricRegistry),
+                functionRegistry,
+                mock(ScheduledExecutorService.class),
+                mock(EventBus.class),
+                (currentPipelines, streamPipelineConnections, classLoader) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, null, metricRegistry, 1, true),
+                false,
+                Duration.minutes(1));
+    }
+
+    // a single rule exceeding the budget trips the circuit breaker
+    private static PipelineInterpreter interpreter(ConfigurationStateUpdater stateUpdater,
+                                                   MetricRegistry metricRegistry,
+                                                   boolean parallelBatchProcessing,
+                                                   boolean parallelStageExecution,
+                                                   Duration budgetTime) {
+        return new PipelineInterpreter(
+                mock(Journal.class),
+                metricRegistry,
+                stateUpdater,
+                parallelBatchProcessing,
+                1,
+                parallelStageExecution,
+                new RuleCircuitBreaker(metricRegistry, 1, Duration.minutes(1), Duration.minutes(5)),
+                budgetTime,
+                100
+        );
+    }
+
     private Message messageInDefaultStream(String message, String source) {
         final Message msg = new Message(message, source, Tools.nowUTC());
 
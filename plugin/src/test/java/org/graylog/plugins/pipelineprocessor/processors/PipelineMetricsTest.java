@@ -0,0 +1,112 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.ValidationException;
+
+import org.graylog.plugins.pipelineprocessor.ast.ExecutionMetrics;
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class PipelineMetricsTest {
+
+    @Test
+    public void countersAreFoldedIntoMeters() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PipelineMetrics pipelineMetrics = new PipelineMetrics(metricRegistry,
+                PipelineMetrics.Mode.COUNTERS,
+                PipelineMetrics.Granularity.STAGE,
+                mock(ScheduledExecutorService.class));
+
+        final ExecutionMetrics.Marker marker = pipelineMetrics.pipelineMarkers("abc").get("executed");
+        final String meterName = name(Pipeline.class, "abc", "executed");
+
+        marker.mark();
+        marker.mark();
+        assertThat(metricRegistry.meter(meterName).getCount()).isEqualTo(0);
+
+        pipelineMetrics.fold();
+        assertThat(metricRegistry.meter(meterName).getCount()).isEqualTo(2);
+
+        pipelineMetrics.removePipeline("abc");
+        assertThat(metricRegistry.getMeters()).isEmpty();
+        marker.mark();
+        pipelineMetrics.fold();
+        assertThat(metricRegistry.getMeters()).isEmpty();
+    }
+
+    @Test
+    public void markersAreReusedUntilRemoved() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PipelineMetrics pipelineMetrics = PipelineMetrics.meters(metricRegistry);
+
+        final ExecutionMetrics.Markers global = pipelineMetrics.ruleMarkers("rule");
+        final ExecutionMetrics.Markers local = pipelineMetrics.ruleMarkers("rule", "pipeline", "0");
+        pipelineMetrics.stageMarkers("pipeline", "0");
+        pipelineMetrics.pipelineMarkers("pipeline");
+        pipelineMetrics.ruleMarkers("other");
+
+        assertThat(pipelineMetrics.ruleMarkers("rule")).isSameAs(global);
+        assertThat(pipelineMetrics.ruleMarkers("rule", "pipeline", "0")).isSameAs(local);
+        assertThat(local.metricNames()).contains(name(Rule.class, "rule", "pipeline", "0", "executed"));
+        assertThat(metricRegistry.getMeters()).hasSize(14);
+
+        pipelineMetrics.removePipeline("pipeline");
+        assertThat(metricRegistry.getMeters()).hasSize(8);
+        assertThat(metricRegistry.getMeters()).containsKey(name(Rule.class, "rule", "executed"));
+
+        pipelineMetrics.removeRule("rule");
+        assertThat(metricRegistry.getMeters()).hasSize(4);
+        assertThat(pipelineMetrics.ruleMarkers("rule")).isNotSameAs(global);
+    }
+
+    @Test
+    public void globalGranularitySkipsStageMetrics() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final PipelineMetrics pipelineMetrics = new PipelineMetrics(metricRegistry, "meters", "global", null);
+
+        assertThat(pipelineMetrics.hasStageGranularity()).isFalse();
+        pipelineMetrics.stageMarkers("pipeline", "0").get("executed").mark();
+        pipelineMetrics.ruleMarkers("rule", "pipeline", "0").get("executed").mark();
+        assertThat(metricRegistry.getMeters()).isEmpty();
+
+        pipelineMetrics.ruleMarkers("rule").get("executed").mark();
+        assertThat(metricRegistry.meter(name(Rule.class, "rule", "executed")).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void settingsAreValidated() throws Exception {
+        new PipelineMetrics.ModeValidator().validate("pipeline_metrics_mode", "Counters");
+        new PipelineMetrics.GranularityValidator().validate("pipeline_metrics_granularity", "global");
+
+        assertThatThrownBy(() -> new PipelineMetrics.ModeValidator().validate("pipeline_metrics_mode", "timers"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("[meters, counters]");
+        assertThatThrownBy(() -> new PipelineMetrics.GranularityValidator().validate("pipeline_metrics_granularity", null))
+                .isInstanceOf(ValidationException.class)
+                .hasMessageContaining("[global, stage]");
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.google.common.base.Ticker;
+
+import com.codahale.metrics.MetricRegistry;
+import com.github.joschi.jadconfig.util.Duration;
+
+import org.graylog.plugins.pipelineprocessor.ast.Rule;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.codahale.metrics.MetricRegistry.name;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RuleCircuitBreakerTest {
+
+    @Test
+    public void disablesRuleForCooldownAfterRepeatedViolations() {
+        final AtomicLong now = new AtomicLong(42);
+        final Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        };
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final RuleCircuitBreaker circuitBreaker = new RuleCircuitBreaker(metricRegistry, 2, Duration.minutes(1), Duration.minutes(1), ticker);
+        final Rule rule = rule("abc");
+        final Rule other = rule("def");
+
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isTrue();
+        assertThat(circuitBreaker.isOpen(other)).isFalse();
+        assertThat(metricRegistry.getGauges().get(name(RuleCircuitBreaker.class, "disabledRules")).getValue()).isEqualTo(1L);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertThat(circuitBreaker.isOpen(rule)).isTrue();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+
+        // the violations are counted from zero after the cooldown
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+        assertThat(metricRegistry.meter(name(RuleCircuitBreaker.class, "trippedRules")).getCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void onlyCountsViolationsWithinWindow() {
+        final AtomicLong now = new AtomicLong(42);
+        final Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return now.get();
+            }
+        };
+        final RuleCircuitBreaker circuitBreaker = new RuleCircuitBreaker(new MetricRegistry(), 3, Duration.minutes(1), Duration.minutes(5), ticker);
+        final Rule rule = rule("abc");
+
+        // occasional violations never add up
+        for (int i = 0; i < 10; i++) {
+            circuitBreaker.recordViolation(rule);
+            now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        }
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+
+        // the earlier violations have left the window
+        now.addAndGet(TimeUnit.SECONDS.toNanos(60));
+        circuitBreaker.recordViolation(rule);
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isTrue();
+    }
+
+    @Test
+    public void ignoresRulesWithoutId() {
+        final RuleCircuitBreaker circuitBreaker = new RuleCircuitBreaker(new MetricRegistry(), 1, Duration.minutes(1), Duration.minutes(1));
+        final Rule rule = rule(null);
+
+        circuitBreaker.recordViolation(rule);
+        assertThat(circuitBreaker.isOpen(rule)).isFalse();
+    }
+
+    private static Rule rule(String id) {
+        final Rule rule = mock(Rule.class);
+        when(rule.id()).thenReturn(id);
+        when(rule.name()).thenReturn("rule " + id);
+        return rule;
+    }
+}
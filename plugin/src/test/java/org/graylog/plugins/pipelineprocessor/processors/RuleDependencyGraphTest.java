@@ -0,0 +1,143 @@
+/**
+ * This file is part of Graylog Pipeline Processor.
+ *
+ * Graylog Pipeline Processor is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Graylog Pipeline Processor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Graylog Pipeline Processor.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.graylog.plugins.pipelineprocessor.processors;
+
+import com.github.joschi.jadconfig.util.Duration;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.EventBus;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.graylog.plugins.pipelineprocessor.ast.Pipeline;
+import org.graylog.plugins.pipelineprocessor.ast.functions.Function;
+import org.graylog.plugins.pipelineprocessor.codegen.CodeGenerator;
+import org.graylog.plugins.pipelineprocessor.codegen.compiler.JavaCompiler;
+import org.graylog.plugins.pipelineprocessor.db.PipelineDao;
+import org.graylog.plugins.pipelineprocessor.db.RuleDao;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryPipelineStreamConnectionsService;
+import org.graylog.plugins.pipelineprocessor.db.memory.InMemoryRuleService;
+import org.graylog.plugins.pipelineprocessor.events.RulesChangedEvent;
+import org.graylog.plugins.pipelineprocessor.functions.messages.SetField;
+import org.graylog.plugins.pipelineprocessor.parser.FunctionRegistry;
+import org.graylog.plugins.pipelineprocessor.parser.PipelineRuleParser;
+import org.graylog.plugins.pipelineprocessor.rest.PipelineConnections;
+import org.graylog2.plugin.Tools;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class RuleDependencyGraphTest {
+
+    private InMemoryRuleService ruleService;
+    private ConfigurationStateUpdater stateUpdater;
+
+    @Before
+    public void setup() {
+        ruleService = new InMemoryRuleService();
+        ruleService.save(rule("r1", "first", "a"));
+        ruleService.save(rule("r2", "second", "b"));
+
+        final InMemoryPipelineService pipelineService = new InMemoryPipelineService();
+        pipelineService.save(pipeline("p1", "stage 0 match all rule \"first\"; stage 1 match all rule \"second\";"));
+        pipelineService.save(pipeline("p2", "stage 5 match all rule \"second\"; rule \"missing\";"));
+
+        final InMemoryPipelineStreamConnectionsService connectionsService = new InMemoryPipelineStreamConnectionsService();
+        connectionsService.save(PipelineConnections.create(null, "s1", ImmutableSet.of("p1")));
+        connectionsService.save(PipelineConnections.create(null, "s2", ImmutableSet.of("p1", "p2")));
+
+        final Map<String, Function<?>> functions = Maps.newHashMap();
+        functions.put(SetField.NAME, new SetField());
+        final FunctionRegistry functionRegistry = new FunctionRegistry(functions);
+        final PipelineRuleParser parser = new PipelineRuleParser(functionRegistry, new CodeGenerator(JavaCompiler::new));
+
+        // reloads are triggered explicitly by the tests
+        stateUpdater = new ConfigurationStateUpdater(ruleService,
+                pipelineService,
+                connectionsService,
+                parser,
+                PipelineMetrics.meters(new MetricRegistry()),
+                functionRegistry,
+                mock(ScheduledExecutorService.class),
+                mock(EventBus.class),
+                (currentPipelines, streamPipelineConnections, classLoader) -> new PipelineInterpreter.State(currentPipelines, streamPipelineConnections, null, new MetricRegistry(), 1, true),
+                false,
+                Duration.minutes(1));
+    }
+
+    @Test
+    public void dependentsOfRules() {
+        final RuleDependencyGraph graph = stateUpdater.getDependencyGraph();
+
+        assertThat(graph.ruleNames()).containsExactlyInAnyOrder("first", "second", "missing");
+        assertThat(graph.stagesReferencing("first").entries()).containsExactly(Maps.immutableEntry("p1", 0));
+        assertThat(graph.stagesReferencing("second").entries())
+                .containsExactlyInAnyOrder(Maps.immutableEntry("p1", 1), Maps.immutableEntry("p2", 5));
+        assertThat(graph.stagesReferencing("unknown").isEmpty()).isTrue();
+
+        assertThat(graph.streamsReferencing("first")).containsExactlyInAnyOrder("s1", "s2");
+        assertThat(graph.streamsReferencing("missing")).containsExactly("s2");
+        assertThat(graph.pipelinesReferencing(ImmutableSet.of("first", "missing"))).containsExactlyInAnyOrder("p1", "p2");
+    }
+
+    @Test
+    public void ruleChangesOnlyResolveDependentPipelines() {
+        final Map<String, Pipeline> before = stateUpdater.getLatestState().getCurrentPipelines();
+
+        ruleService.save(rule("r1", "first", "changed"));
+        stateUpdater.handleRuleChanges(RulesChangedEvent.updatedRuleId("r1"));
+        final Map<String, Pipeline> afterUpdate = stateUpdater.reload().getCurrentPipelines();
+
+        assertThat(afterUpdate.get("p1")).isNotSameAs(before.get("p1"));
+        assertThat(afterUpdate.get("p2")).isSameAs(before.get("p2"));
+
+        // creating a rule which was referenced before resolves the pipelines waiting for it
+        ruleService.save(rule("r3", "missing", "c"));
+        stateUpdater.handleRuleChanges(RulesChangedEvent.updatedRuleId("r3"));
+        final Map<String, Pipeline> afterCreate = stateUpdater.reload().getCurrentPipelines();
+
+        assertThat(afterCreate.get("p1")).isSameAs(afterUpdate.get("p1"));
+        assertThat(afterCreate.get("p2")).isNotSameAs(afterUpdate.get("p2"));
+        assertThat(afterCreate.get("p2").stages().last().getRules())
+                .extracting(rule -> rule.id())
+                .containsExactly("r2", "r3");
+    }
+
+    private static RuleDao rule(String id, String name, String field) {
+        return RuleDao.create(id, name, null,
+                "rule \"" + name + "\"\n" +
+                        "when true\n" +
+                        "then\n" +
+                        "  set_field(\"" + field + "\", true);\n" +
+                        "end",
+                Tools.nowUTC(),
+                null);
+    }
+
+    private static PipelineDao pipeline(String id, String stages) {
+        return PipelineDao.create(id, id, null,
+                "pipeline \"" + id + "\"\n" + stages + "\nend\n",
+                Tools.nowUTC(),
+                null);
+    }
+}
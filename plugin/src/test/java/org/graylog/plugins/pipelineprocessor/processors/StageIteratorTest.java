@@ -159,4 +159,29 @@ public class StageIteratorTest {
                           new int[] {-1, 0, 4, 10, 11},
                           stageSets.stream().flatMap(Collection::stream).mapToInt(Stage::stage).distinct().toArray());
     }
+
+    @Test
+    public void sparseStagesOnlyProduceNonEmptySlices() {
+        final ImmutableSortedSet.Builder<Stage> stages = ImmutableSortedSet.naturalOrder();
+        for (int number : new int[]{1000, -100, 100, 0}) {
+            stages.add(Stage.builder()
+                               .stage(number)
+                               .matchAll(true)
+                               .ruleReferences(Collections.emptyList())
+                               .build());
+        }
+        final ImmutableSet<Pipeline> input = ImmutableSet.of(Pipeline.builder()
+                                                                     .name("sparse")
+                                                                     .stages(stages.build())
+                                                                     .build());
+        final StageIterator.Configuration configuration = new StageIterator.Configuration(input);
+        assertEquals(4, configuration.size());
+
+        final StageIterator iterator = new StageIterator(configuration);
+        final int[] numbers = new int[4];
+        for (int i = 0; iterator.hasNext(); i++) {
+            numbers[i] = Iterables.getOnlyElement(iterator.next()).stage();
+        }
+        assertArrayEquals(new int[]{-100, 0, 100, 1000}, numbers);
+    }
 }